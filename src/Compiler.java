@@ -1,12 +1,9 @@
-import backend.BackEnd;
-import error.ErrorRecorder;
-import frontend.FrontEnd;
-import frontend.ast.CompUnit;
-import frontend.lexer.Lexer;
-import frontend.lexer.TokenStream;
+import driver.CompileException;
+import driver.CompileOptions;
+import driver.CompileResult;
+import driver.CompilerDriver;
 import java.io.IOException;
 
-import midend.MidEnd;
 import utils.IOhelper;
 
 public class Compiler {
@@ -16,63 +13,83 @@ public class Compiler {
     private final static boolean NEED_LLVM_IR_OUTPUT = true;
     private final static boolean NEED_MIPS_OUTPUT = true;
     private final static boolean NEED_OPTIMIZE = true;
+    private final static boolean PARALLEL_OPTIMIZE = false;
+    private final static boolean PARALLEL_PARSE = false;
+    private final static boolean PARALLEL_LEX = false;
+    private final static boolean FUSED_IR_GEN = false;
+    private final static boolean SYNTAX_DIRECTED = false;
+    private final static boolean PARALLEL_SEMANTIC = false;
+    private final static boolean NEED_TELEMETRY = false;
     private final static boolean ALL_OUTPUT = true;
 
     public static void main(String[] args) throws IOException {
         IOhelper.initialIO();
 
-        FrontEnd.initialize();
-        FrontEnd.setInput();
-        FrontEnd.startLexer();
-        if (ALL_OUTPUT)
-            IOhelper.printLexer();
-        FrontEnd.setTokenStream(new TokenStream(Lexer.getLexer().getTokens()));
-        FrontEnd.startParser();
-        if (ALL_OUTPUT)
-            IOhelper.printParser();
-
-        MidEnd.initialize();
-        MidEnd.GenerateSymbolTable();
-        if (ALL_OUTPUT)
-            IOhelper.printSymbolTable();
+        CompileOptions options = new CompileOptions()
+                .setOptimize(NEED_OPTIMIZE)
+                .setParallelOptimize(PARALLEL_OPTIMIZE)
+                .setParallelParse(PARALLEL_PARSE)
+                .setParallelLex(PARALLEL_LEX)
+                .setFusedIrGen(FUSED_IR_GEN)
+                .setSyntaxDirected(SYNTAX_DIRECTED)
+                .setParallelSemantic(PARALLEL_SEMANTIC)
+                .setTelemetry(NEED_TELEMETRY);
+        CompileResult result;
+        CompileException failure = null;
+        try {
+            result = CompilerDriver.compile(IOhelper.readSource(), options);
+        } catch (CompileException e) {
+            // 先写出失败前已完成阶段的产物，再抛出原异常
+            failure = e;
+            result = e.getPartialResult();
+            if (result == null) {
+                IOhelper.closeIO();
+                throw e;
+            }
+        }
 
-        if (!ErrorRecorder.haveError()) {
-            MidEnd.GenerateLLVMIR();
-            if (NEED_OPTIMIZE) {
-                new optimize.OptimizeManager(MidEnd.getIrModule()).optimize();
+        if (ALL_OUTPUT) {
+            IOhelper.printLexer(result);
+            IOhelper.printParser(result);
+            IOhelper.printSymbolTable(result);
+            if (!result.hasError()) {
+                IOhelper.printLLVMIR(result);
+                IOhelper.printMips(result);
             }
-            if (ALL_OUTPUT)
-                IOhelper.printLLVMIR();
-            BackEnd.initialize(MidEnd.getIrModule());
-            BackEnd.generateMips();
-            if (ALL_OUTPUT)
-                IOhelper.printMips();
         }
 
-        if (NEED_ERROR_HOLDER) {
-            if (ErrorRecorder.haveError()) {
-                IOhelper.printError();
+        if (NEED_ERROR_HOLDER && failure == null) {
+            if (result.hasError()) {
+                IOhelper.printError(result);
             }
         }
+        if (NEED_TELEMETRY) {
+            IOhelper.printTelemetry(result);
+        }
         if (!ALL_OUTPUT) {
-            if (NEED_LEXER_OUTPUT && !ErrorRecorder.haveError()) {
-                IOhelper.printLexer();
+            if (NEED_LEXER_OUTPUT && !result.hasError()) {
+                IOhelper.printLexer(result);
             }
-            if (NEED_PARSER_OUTPUT && !ErrorRecorder.haveError()) {
-                IOhelper.printParser();
+            if (NEED_PARSER_OUTPUT && !result.hasError()) {
+                IOhelper.printParser(result);
             }
 
-            if (NEED_PARSER_OUTPUT && !ErrorRecorder.haveError()) {
-                IOhelper.printSymbolTable();
+            if (NEED_PARSER_OUTPUT && !result.hasError()) {
+                IOhelper.printSymbolTable(result);
             }
 
-            if (NEED_LLVM_IR_OUTPUT && !ErrorRecorder.haveError()) {
-                IOhelper.printLLVMIR();
+            if (NEED_LLVM_IR_OUTPUT && !result.hasError()) {
+                IOhelper.printLLVMIR(result);
             }
 
-            if (NEED_MIPS_OUTPUT && !ErrorRecorder.haveError()) {
-                IOhelper.printMips();
+            if (NEED_MIPS_OUTPUT && !result.hasError()) {
+                IOhelper.printMips(result);
             }
         }
+
+        IOhelper.closeIO();
+        if (failure != null) {
+            throw failure;
+        }
     }
 }
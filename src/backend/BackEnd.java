@@ -2,28 +2,41 @@ package backend;
 
 import backend.mips.MipsBuilder;
 import backend.mips.MipsModule;
+import driver.CompilationContext;
 import midend.llvm.IrModule;
-import midend.llvm.constant.IrConstString;
 import midend.llvm.value.IrFunction;
-import midend.llvm.value.IrGlobalValue;
-
-import java.util.Map;
+import optimize.LivenessAnalysis;
 
 public class BackEnd {
-    private static IrModule irModule;
+    private IrModule irModule;
+
+    private static BackEnd getBackEnd() {
+        return CompilationContext.current().getComponent(BackEnd.class, BackEnd::new);
+    }
 
     public static void initialize(IrModule module) {
-        irModule = module;
+        getBackEnd().irModule = module;
+        // 不优化时没有经过寄存器分配，保护调用现场所需的活跃变量信息在这里补算
+        LivenessAnalysis livenessAnalysis = new LivenessAnalysis();
+        for (IrFunction function : module.getFunctions()) {
+            if (function.getLiveness() == null) {
+                livenessAnalysis.optimizeFunction(function);
+            }
+        }
         MipsModule mipsModule = new MipsModule();
         MipsBuilder.setBackEndModule(mipsModule);
     }
 
     public static void generateMips() {
-        irModule.toMips();
+        getBackEnd().irModule.toMips();
         new backend.mips.Peephole(MipsBuilder.getCurrentModule()).optimize();
     }
 
+    public static MipsModule getMipsModule() {
+        return MipsBuilder.getCurrentModule();
+    }
+
     public static String getMipsCode() {
-        return MipsBuilder.getCurrentModule().toString();
+        return getMipsModule().toString();
     }
 }
@@ -2,7 +2,9 @@ package backend.mips;
 
 import backend.mips.assembly.MipsAssembly;
 import backend.mips.assembly.data.MipsDataAssembly;
+import driver.CompilationContext;
 import midend.llvm.value.IrFunction;
+import midend.llvm.value.IrNumbering;
 import midend.llvm.value.IrParameter;
 import midend.llvm.value.IrValue;
 
@@ -13,67 +15,84 @@ import java.util.List;
 import java.util.Set;
 
 public class MipsBuilder {
-    private static MipsModule currentModule = null;
+    private MipsModule currentModule = null;
     // value-register分配表
-    private static HashMap<IrValue, Register> valueRegisterMap = null;
+    private HashMap<IrValue, Register> valueRegisterMap = null;
     // 函数栈偏移量分配表
-    private static int stackOffset = 0;
-    private static int frameSize = 0;
-    private static HashMap<IrValue, Integer> stackOffsetValueMap = null;
-    private static HashMap<IrValue, Integer> allocaDataMap = null;
-    private static List<Register> registersNeedSaveList = null;
+    private int stackOffset = 0;
+    private int frameSize = 0;
+    // 以函数内编号为下标的栈偏移；偏移总为负，0 表示未分配
+    private IrNumbering numbering = null;
+    private int[] stackOffsetValues = null;
+    private int[] allocaDataOffsets = null;
+    private List<Register> registersNeedSaveList = null;
+
+    private int raOffset = 0;
+    private int regSaveOffset = 0;
+    private IrFunction currentFunction = null;
+    private boolean autoAdd = true;
+
+    private MipsBuilder() {
+    }
 
-    private static int raOffset = 0;
-    private static int regSaveOffset = 0;
-    private static IrFunction currentFunction = null;
+    // 状态保存在当前编译上下文中
+    private static MipsBuilder getBuilder() {
+        return CompilationContext.current().getComponent(MipsBuilder.class, MipsBuilder::new);
+    }
 
     public static void setBackEndModule(MipsModule mipsModule) {
-        currentModule = mipsModule;
+        getBuilder().currentModule = mipsModule;
     }
 
     public static MipsModule getCurrentModule() {
-        return currentModule;
+        return getBuilder().currentModule;
     }
 
-    private static boolean autoAdd = true;
-
     public static void setAutoAdd(boolean value) {
-        autoAdd = value;
+        getBuilder().autoAdd = value;
     }
 
     public static void addAssembly(MipsAssembly mipsAssembly) {
-        if (!autoAdd)
+        MipsBuilder builder = getBuilder();
+        if (!builder.autoAdd)
             return;
         if (mipsAssembly instanceof MipsDataAssembly) {
-            currentModule.addToData(mipsAssembly);
+            builder.currentModule.addToData(mipsAssembly);
         } else {
-            currentModule.addToText(mipsAssembly);
+            builder.currentModule.addToText(mipsAssembly);
         }
     }
 
     public static void setCurrentFunction(IrFunction irFunction) {
-        currentFunction = irFunction;
+        MipsBuilder builder = getBuilder();
+        builder.currentFunction = irFunction;
         // 设置相应的寄存器分配表
-        valueRegisterMap = irFunction.getValueRegisterMap();
+        builder.valueRegisterMap = irFunction.getValueRegisterMap();
         // 预分配栈空间
         preAllocateFrame(irFunction);
     }
 
     public static IrFunction getCurrentFunction() {
-        return currentFunction;
+        return getBuilder().currentFunction;
     }
 
     private static void preAllocateFrame(IrFunction irFunction) {
-        stackOffset = 0;
-        stackOffsetValueMap = new HashMap<>();
-        allocaDataMap = new HashMap<>();
+        MipsBuilder builder = getBuilder();
+        builder.stackOffset = 0;
+        // 与活跃变量分析共用同一次编号
+        if (irFunction.getLiveness() == null) {
+            throw new RuntimeException("Liveness not computed for function: " + irFunction.getIrName());
+        }
+        builder.numbering = irFunction.getLiveness().getNumbering();
+        builder.stackOffsetValues = new int[builder.numbering.getValueCount()];
+        builder.allocaDataOffsets = new int[builder.numbering.getValueCount()];
 
         // 1. 预留 RA 空间 (放在栈顶，Old SP 下面)
         if (!irFunction.isLeafFunction()) {
-            stackOffset -= 4;
-            raOffset = stackOffset;
+            builder.stackOffset -= 4;
+            builder.raOffset = builder.stackOffset;
         } else {
-            raOffset = 0;
+            builder.raOffset = 0;
         }
 
         // 2. 遍历所有指令分配空间 (局部变量)
@@ -84,19 +103,19 @@ public class MipsBuilder {
                     int size = (targetType instanceof midend.llvm.type.IrArrayType arrayType)
                             ? 4 * arrayType.getArraySize()
                             : 4;
-                    stackOffset -= size;
-                    allocaDataMap.put(instr, stackOffset);
+                    builder.stackOffset -= size;
+                    builder.allocaDataOffsets[builder.numbering.idOf(instr)] = builder.stackOffset;
 
-                    if (valueRegisterMap.get(instr) == null) {
+                    if (builder.valueRegisterMap.get(instr) == null) {
                         allocateStackForValue(instr);
                     }
                 } else if (instr instanceof midend.llvm.instr.MoveInstr moveInstr) {
                     // MoveInstr 的目标值需要分配栈空间（来自 Phi 指令）
                     IrValue dstValue = moveInstr.getDstValue();
-                    if (valueRegisterMap.get(dstValue) == null && !stackOffsetValueMap.containsKey(dstValue)) {
+                    if (builder.valueRegisterMap.get(dstValue) == null) {
                         allocateStackForValue(dstValue);
                     }
-                } else if (!instr.getIrType().isVoidType() && valueRegisterMap.get(instr) == null) {
+                } else if (!instr.getIrType().isVoidType() && builder.valueRegisterMap.get(instr) == null) {
                     allocateStackForValue(instr);
                 }
             }
@@ -112,9 +131,9 @@ public class MipsBuilder {
         for (midend.llvm.value.IrBasicBlock block : irFunction.getBasicBlocks()) {
             for (midend.llvm.instr.Instr instr : block.getInstructions()) {
                 if (instr instanceof midend.llvm.instr.ctrl.CallInstr) {
-                    HashSet<midend.llvm.value.IrValue> liveValues = block.getLiveValuesAt(instr);
-                    for (midend.llvm.value.IrValue val : liveValues) {
-                        Register reg = valueRegisterMap.get(val);
+                    List<IrValue> liveValues = block.getLiveValuesAt(instr);
+                    for (IrValue val : liveValues) {
+                        Register reg = builder.valueRegisterMap.get(val);
                         if (reg != null && isCallerSaved(reg)) {
                             registersNeedSave.add(reg);
                         }
@@ -122,7 +141,7 @@ public class MipsBuilder {
                     // 额外逻辑：如果参数来源是 $a 寄存器，必须预留空间以防覆盖
                     if (instr instanceof midend.llvm.instr.ctrl.CallInstr callInstr) {
                         for (IrValue arg : callInstr.getArgs()) {
-                            Register reg = valueRegisterMap.get(arg);
+                            Register reg = builder.valueRegisterMap.get(arg);
                             if (reg != null && reg.ordinal() >= Register.A0.ordinal()
                                     && reg.ordinal() <= Register.A3.ordinal()) {
                                 registersNeedSave.add(reg);
@@ -131,9 +150,9 @@ public class MipsBuilder {
                     }
                 } else if (instr instanceof midend.llvm.instr.io.IOInstr) {
                     // 对于 IO 指令，我们只担心 $v0 和 $a0 被覆盖
-                    HashSet<midend.llvm.value.IrValue> liveValues = block.getLiveValuesAt(instr);
-                    for (midend.llvm.value.IrValue val : liveValues) {
-                        Register reg = valueRegisterMap.get(val);
+                    List<IrValue> liveValues = block.getLiveValuesAt(instr);
+                    for (IrValue val : liveValues) {
+                        Register reg = builder.valueRegisterMap.get(val);
                         if (reg == Register.V0 || reg == Register.A0) {
                             registersNeedSave.add(reg);
                         }
@@ -142,16 +161,16 @@ public class MipsBuilder {
             }
         }
         // 关键改进：添加所有被使用的 Callee-Saved 寄存器到保存列表
-        for (Register reg : valueRegisterMap.values()) {
+        for (Register reg : builder.valueRegisterMap.values()) {
             if (isCalleeSaved(reg)) {
                 registersNeedSave.add(reg);
             }
         }
 
-        registersNeedSaveList = new ArrayList<>(registersNeedSave);
-        registersNeedSaveList.sort((r1, r2) -> r1.ordinal() - r2.ordinal());
-        regSaveOffset = stackOffset;
-        stackOffset -= registersNeedSaveList.size() * 4;
+        builder.registersNeedSaveList = new ArrayList<>(registersNeedSave);
+        builder.registersNeedSaveList.sort((r1, r2) -> r1.ordinal() - r2.ordinal());
+        builder.regSaveOffset = builder.stackOffset;
+        builder.stackOffset -= builder.registersNeedSaveList.size() * 4;
 
         // 5. 预留参数空间 (Outgoing arguments, 放在栈底)
         int maxArgs = 0;
@@ -163,76 +182,83 @@ public class MipsBuilder {
             }
         }
         int argSpace = Math.max(4, maxArgs) * 4;
-        stackOffset -= argSpace;
+        builder.stackOffset -= argSpace;
 
-        // 6. 对齐并确定最终 frameSize
-        frameSize = -stackOffset;
-        if (frameSize % 8 != 0) {
-            frameSize += (8 - frameSize % 8);
+        // 6. 对齐并确定最终 builder.frameSize
+        builder.frameSize = -builder.stackOffset;
+        if (builder.frameSize % 8 != 0) {
+            builder.frameSize += (8 - builder.frameSize % 8);
         }
     }
 
     public static int getRaOffset() {
-        return raOffset + frameSize;
+        return getBuilder().raOffset + getBuilder().frameSize;
     }
 
     public static Integer getAllocaDataOffset(IrValue irValue) {
-        Integer offset = allocaDataMap.get(irValue);
-        if (offset == null)
+        MipsBuilder builder = getBuilder();
+        int id = builder.numbering.idOf(irValue);
+        if (id < 0 || builder.allocaDataOffsets[id] == 0)
             return null;
-        return offset + frameSize;
+        return builder.allocaDataOffsets[id] + builder.frameSize;
     }
 
     public static int getRegSaveOffset() {
-        return regSaveOffset + frameSize;
+        return getBuilder().regSaveOffset + getBuilder().frameSize;
     }
 
     public static int getFrameSize() {
-        return frameSize;
+        return getBuilder().frameSize;
     }
 
     public static Register getValueToRegister(IrValue irValue) {
-        return valueRegisterMap.get(irValue);
+        return getBuilder().valueRegisterMap.get(irValue);
     }
 
     public static void allocateRegForParam(IrParameter irParameter, Register register) {
-        valueRegisterMap.put(irParameter, register);
+        getBuilder().valueRegisterMap.put(irParameter, register);
     }
 
     public static ArrayList<Register> getAllocatedRegList() {
-        ArrayList<Register> list = new ArrayList<>(new HashSet<>(valueRegisterMap.values()));
+        MipsBuilder builder = getBuilder();
+        ArrayList<Register> list = new ArrayList<>(new HashSet<>(builder.valueRegisterMap.values()));
         list.sort((r1, r2) -> r1.ordinal() - r2.ordinal());
         return list;
     }
 
     public static int getCurrentStackOffset() {
-        return stackOffset;
+        return getBuilder().stackOffset;
     }
 
     public static Integer getStackValueOffset(IrValue irValue) {
-        if (irValue instanceof IrParameter param) {
-            int index = currentFunction.getParameters().indexOf(param);
+        MipsBuilder builder = getBuilder();
+        int id = builder.numbering.idOf(irValue);
+        if (irValue instanceof IrParameter) {
+            // 参数的编号即其下标
+            int index = id;
             if (index >= 4) {
                 // 传入参数 4+ 在调用者的栈帧中
                 // 调用者将第 i 个参数存放在 (i-4)*4($sp_caller)
-                return frameSize + (index - 4) * 4;
+                return builder.frameSize + (index - 4) * 4;
             }
         }
-        Integer offset = stackOffsetValueMap.get(irValue);
-        if (offset == null)
+        if (id < 0 || builder.stackOffsetValues[id] == 0)
             return null;
-        return offset + frameSize;
+        return builder.stackOffsetValues[id] + builder.frameSize;
     }
 
     public static Integer allocateStackForValue(IrValue irValue) {
-        Integer address = stackOffsetValueMap.get(irValue);
-        if (address == null) {
-            stackOffset -= 4;
-            stackOffsetValueMap.put(irValue, stackOffset);
-            address = stackOffset;
+        MipsBuilder builder = getBuilder();
+        int id = builder.numbering.idOf(irValue);
+        if (id < 0) {
+            throw new RuntimeException("Value not numbered in current function: " + irValue.getIrName());
+        }
+        if (builder.stackOffsetValues[id] == 0) {
+            builder.stackOffset -= 4;
+            builder.stackOffsetValues[id] = builder.stackOffset;
         }
 
-        return address;
+        return builder.stackOffsetValues[id];
     }
 
     public static void loadValueToReg(IrValue value, Register reg) {
@@ -259,9 +285,10 @@ public class MipsBuilder {
     }
 
     public static void saveCurrent(List<Register> allocatedRegisterList, Set<Register> registersToSave) {
+        MipsBuilder builder = getBuilder();
         int baseOffset = getRegSaveOffset();
         for (Register reg : registersToSave) {
-            int index = registersNeedSaveList.indexOf(reg);
+            int index = builder.registersNeedSaveList.indexOf(reg);
             if (index != -1) {
                 new backend.mips.assembly.MipsLsu(backend.mips.assembly.MipsLsu.LsuType.SW,
                         reg, Register.SP, baseOffset - (index + 1) * 4);
@@ -270,9 +297,10 @@ public class MipsBuilder {
     }
 
     public static void recoverCurrent(List<Register> allocatedRegisterList, Set<Register> registersToRestore) {
+        MipsBuilder builder = getBuilder();
         int baseOffset = getRegSaveOffset();
         for (Register reg : registersToRestore) {
-            int index = registersNeedSaveList.indexOf(reg);
+            int index = builder.registersNeedSaveList.indexOf(reg);
             if (index != -1) {
                 new backend.mips.assembly.MipsLsu(backend.mips.assembly.MipsLsu.LsuType.LW,
                         reg, Register.SP, baseOffset - (index + 1) * 4);
@@ -292,7 +320,8 @@ public class MipsBuilder {
     }
 
     public static Integer getRegisterOffset(Register register) {
-        int index = registersNeedSaveList.indexOf(register);
+        MipsBuilder builder = getBuilder();
+        int index = builder.registersNeedSaveList.indexOf(register);
         if (index == -1)
             return null;
         return getRegSaveOffset() - (index + 1) * 4;
@@ -2,6 +2,7 @@ package backend.mips;
 
 import backend.mips.assembly.MipsAssembly;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 public class MipsModule {
@@ -28,24 +29,33 @@ public class MipsModule {
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
+        try {
+            emit(builder);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return builder.toString();
+    }
 
+    /**
+     * 将 mips.txt 内容逐条写入 out，不拼接整个程序的字符串
+     */
+    public void emit(Appendable out) throws IOException {
         // data
-        builder.append(".data\n");
+        out.append(".data\n");
         for (MipsAssembly dataAssembly : this.dataSegment) {
-            builder.append("\t");
-            builder.append(dataAssembly);
-            builder.append("\n");
+            out.append("\t");
+            out.append(dataAssembly.toString());
+            out.append("\n");
         }
-        builder.append("\n\n");
+        out.append("\n\n");
 
         // text
-        builder.append(".text\n");
+        out.append(".text\n");
         for (MipsAssembly textAssembly : this.textSegment) {
-            builder.append("\t");
-            builder.append(textAssembly);
-            builder.append("\n");
+            out.append("\t");
+            out.append(textAssembly.toString());
+            out.append("\n");
         }
-
-        return builder.toString();
     }
 }
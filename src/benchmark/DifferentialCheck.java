@@ -0,0 +1,226 @@
+package benchmark;
+
+import driver.CompilationContext;
+import driver.CompileException;
+import driver.CompileOptions;
+import driver.CompileResult;
+import driver.CompilerDriver;
+import driver.IncrementalCompiler;
+import error.Error;
+import error.ErrorRecorder;
+import frontend.lexer.ParallelLexer;
+import frontend.lexer.TableLexer;
+import frontend.lexer.TokenStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 差分回归检查：对语料中的每个源程序，以串行的 CompilerDriver.compile 为基准，
+ * 比较各种编译模式的全部产物（lexer、parser、error、symbol、llvm_ir、mips），有错误的输入同样比较；
+ * 编译抛出异常时比较异常类型。增量编译先编译几个改动过的版本再编译原程序，检查复用的结果与整体编译一致。
+ * 并行词法分析对小于两块的源程序会退回串行扫描，因此另外按固定块数强制分块，与 TableLexer 比较 Token 和错误
+ * 用法：java benchmark.DifferentialCheck <源文件或目录>...，目录下取全部 .txt 和 .sy 文件；发现差异时退出码为 1
+ */
+public class DifferentialCheck {
+    private static final String[] OUTPUTS = {"lexer", "parser", "error", "symbol", "llvm_ir", "mips"};
+    // 强制分块并行词法分析的块数
+    private static final int FORCED_CHUNKS = 8;
+
+    private static final List<Mode> MODES = List.of(
+            new Mode("parallel-lex", true, true, options -> options.setParallelLex(true)),
+            new Mode("parallel-parse", true, true, options -> options.setParallelParse(true)),
+            new Mode("parallel-semantic", true, true, options -> options.setParallelSemantic(true)),
+            new Mode("parallel-optimize", true, true, options -> options.setParallelOptimize(true)),
+            new Mode("fused-irgen", true, true, options -> options.setFusedIrGen(true)),
+            new Mode("fused-parallel-semantic", true, true,
+                    options -> options.setFusedIrGen(true).setParallelSemantic(true)),
+            new Mode("parallel-all", true, true, options -> options.setParallelLex(true).setParallelParse(true)
+                    .setParallelSemantic(true).setParallelOptimize(true)),
+            new Mode("telemetry", true, true, options -> options.setTelemetry(true)),
+            new Mode("syntax-directed", true, false, options -> options.setSyntaxDirected(true)),
+            new Mode("syntax-directed-noopt", false, false, options -> options.setSyntaxDirected(true)),
+            new Mode("parallel-noopt", false, true, options -> options.setParallelLex(true).setParallelParse(true)
+                    .setParallelSemantic(true))
+    );
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: java benchmark.DifferentialCheck <source file or directory>...");
+            System.exit(2);
+        }
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            collect(Paths.get(arg), files);
+        }
+
+        int differences = 0;
+        for (Path file : files) {
+            byte[] source = Files.readAllBytes(file);
+            String[] expected = outputs(source, new CompileOptions());
+            String[] expectedNoopt = outputs(source, new CompileOptions().setOptimize(false));
+            List<String> failures = new ArrayList<>();
+
+            String[] repeated = outputs(source, new CompileOptions());
+            compare("sequential-repeat", expected, repeated, true, failures);
+            for (Mode mode : MODES) {
+                String[] actual = outputs(source, mode.configure.apply(new CompileOptions().setOptimize(mode.optimize)));
+                compare(mode.name, mode.optimize ? expected : expectedNoopt, actual, mode.parser, failures);
+            }
+            compare("incremental", expected, incremental(source, new CompileOptions()), true, failures);
+            compare("incremental-noopt", expectedNoopt,
+                    incremental(source, new CompileOptions().setOptimize(false)), true, failures);
+            String chunked = checkChunkedLex(source);
+            if (chunked != null) {
+                failures.add("forced-chunk-lex: " + chunked);
+            }
+
+            if (failures.isEmpty()) {
+                System.out.println("same " + file);
+            } else {
+                differences++;
+                for (String failure : failures) {
+                    System.out.println("DIFF " + file + " " + failure);
+                }
+            }
+        }
+        System.out.printf("%d file(s), %d with differences%n", files.size(), differences);
+        System.exit(differences == 0 ? 0 : 1);
+    }
+
+    private static void collect(Path path, List<Path> files) throws IOException {
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+        try (Stream<Path> stream = Files.list(path)) {
+            stream.filter(p -> p.toString().endsWith(".txt") || p.toString().endsWith(".sy"))
+                    .sorted()
+                    .forEach(files::add);
+        }
+    }
+
+    /**
+     * 各产物的文本，编译抛出异常时每项都记为异常类型
+     */
+    private static String[] outputs(byte[] source, CompileOptions options) {
+        try {
+            return outputs(CompilerDriver.compile(source, options));
+        } catch (RuntimeException | StackOverflowError e) {
+            return failed(e);
+        }
+    }
+
+    private static String[] outputs(CompileResult result) {
+        return new String[]{
+                result.getLexerOutput(),
+                result.getParserOutput(),
+                result.getErrorOutput(),
+                result.getSymbolOutput(),
+                result.getLlvmIrOutput(),
+                result.getMipsOutput()
+        };
+    }
+
+    private static String[] failed(Throwable e) {
+        Throwable cause = e instanceof CompileException && e.getCause() != null ? e.getCause() : e;
+        String[] outputs = new String[OUTPUTS.length];
+        Arrays.fill(outputs, "exception " + cause.getClass().getName());
+        return outputs;
+    }
+
+    /**
+     * 同一个增量会话依次编译：原程序、开头插入空行、删去后半部分、再恢复原程序，比较最后一次的产物
+     */
+    private static String[] incremental(byte[] source, CompileOptions options) {
+        String text = new String(source, StandardCharsets.UTF_8);
+        IncrementalCompiler compiler = new IncrementalCompiler(options);
+        String[] edits = {text, "\n" + text, text.substring(0, text.length() / 2)};
+        for (String edit : edits) {
+            try {
+                compiler.compile(edit);
+            } catch (RuntimeException | StackOverflowError e) {
+                // 中间版本失败不影响之后的比较
+            }
+        }
+        try {
+            return outputs(compiler.compile(text));
+        } catch (RuntimeException | StackOverflowError e) {
+            return failed(e);
+        }
+    }
+
+    private static void compare(String mode, String[] expected, String[] actual, boolean parser,
+                                List<String> failures) {
+        for (int i = 0; i < OUTPUTS.length; i++) {
+            if (!parser && i == 1 && !expected[i].startsWith("exception ")) {
+                continue;
+            }
+            if (expected[i] == null ? actual[i] != null : !expected[i].equals(actual[i])) {
+                failures.add(mode + ": " + OUTPUTS[i] + " differs");
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 第一处差异的描述，一致时返回 null
+     */
+    private static String checkChunkedLex(byte[] source) {
+        char[] chars = new String(source, StandardCharsets.UTF_8).toCharArray();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        try {
+            String sequential = lex(chars, null);
+            String chunked = lex(chars, pool);
+            return sequential.equals(chunked) ? null : "tokens or errors differ";
+        } catch (Exception e) {
+            return "exception " + e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * pool 为 null 时串行扫描，否则强制按 FORCED_CHUNKS 块并行扫描；返回 Token 输出、结束行号和登记的错误
+     */
+    private static String lex(char[] source, ForkJoinPool pool) throws Exception {
+        return new CompilationContext(new CompileOptions()).call(() -> {
+            TokenStore tokens = new TokenStore(source);
+            int line = pool == null ? new TableLexer(source, tokens, 1).scan()
+                    : ParallelLexer.lex(source, tokens, 1, pool, FORCED_CHUNKS);
+            StringBuilder sb = new StringBuilder();
+            tokens.emit(sb);
+            sb.append("\n#line ").append(line);
+            for (Error error : ErrorRecorder.getErrorRecorder().getErrors()) {
+                sb.append('\n').append(error.info());
+            }
+            return sb.toString();
+        });
+    }
+
+    /**
+     * 一种编译模式：相对于串行编译打开的选项，optimize 决定与哪一个基准比较，parser 为 false 时不比较 parser 输出
+     */
+    private static class Mode {
+        private final String name;
+        private final boolean optimize;
+        private final boolean parser;
+        private final Function<CompileOptions, CompileOptions> configure;
+
+        Mode(String name, boolean optimize, boolean parser, Function<CompileOptions, CompileOptions> configure) {
+            this.name = name;
+            this.optimize = optimize;
+            this.parser = parser;
+            this.configure = configure;
+        }
+    }
+}
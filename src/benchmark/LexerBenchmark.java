@@ -0,0 +1,95 @@
+package benchmark;
+
+import driver.CompilationContext;
+import driver.CompileOptions;
+import frontend.lexer.Lexer;
+import frontend.lexer.TokenStore;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 词法分析基准：在合成的大规模源程序上对比表驱动实现与基于谓词的实现
+ * 用法：java benchmark.LexerBenchmark [函数个数] [轮数]
+ */
+public class LexerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        byte[] source = generateSource(functions).getBytes(StandardCharsets.UTF_8);
+        System.out.printf("source: %d functions, %.2f MB%n", functions, source.length / 1048576.0);
+
+        // 预热并确认两种实现输出一致
+        TokenStore table = lex(source, true);
+        TokenStore predicate = lex(source, false);
+        checkSame(table, predicate);
+        System.out.printf("tokens: %d%n", table.size());
+
+        long bestPredicate = Long.MAX_VALUE;
+        long bestTable = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long predicateNanos = time(source, false);
+            long tableNanos = time(source, true);
+            bestPredicate = Math.min(bestPredicate, predicateNanos);
+            bestTable = Math.min(bestTable, tableNanos);
+            System.out.printf("round %d: predicate %.2f ms, table %.2f ms%n", round,
+                    predicateNanos / 1e6, tableNanos / 1e6);
+        }
+        System.out.printf("best: predicate %.2f ms, table %.2f ms, speedup %.2fx%n",
+                bestPredicate / 1e6, bestTable / 1e6, (double) bestPredicate / bestTable);
+    }
+
+    private static long time(byte[] source, boolean tableDriven) throws Exception {
+        long start = System.nanoTime();
+        lex(source, tableDriven);
+        return System.nanoTime() - start;
+    }
+
+    private static TokenStore lex(byte[] source, boolean tableDriven) throws Exception {
+        return new CompilationContext(new CompileOptions()).call(() -> {
+            Lexer lexer = Lexer.getLexer();
+            lexer.setSource(source);
+            if (tableDriven) {
+                lexer.produceTokens();
+                return lexer.getTokenStore();
+            }
+            char[] chars = new String(source, StandardCharsets.UTF_8).toCharArray();
+            TokenStore tokens = new TokenStore(chars);
+            new PredicateLexer(chars, tokens, 1).scan();
+            return tokens;
+        });
+    }
+
+    static void checkSame(TokenStore expected, TokenStore actual) {
+        if (expected.size() != actual.size()) {
+            throw new RuntimeException("Token count differs: " + expected.size() + " vs " + actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.getType(i) != actual.getType(i) || expected.getLine(i) != actual.getLine(i)
+                    || !expected.getText(i).equals(actual.getText(i))) {
+                throw new RuntimeException("Token " + i + " differs");
+            }
+        }
+    }
+
+    /**
+     * 生成覆盖各类 Token 的合成程序，包含注释、字符串、关键字前缀的标识符和所有运算符
+     */
+    static String generateSource(int functions) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("const int N = 1024;\nint global_array[N];\n");
+        for (int i = 0; i < functions; i++) {
+            sb.append("/* function ").append(i).append(" */\n");
+            sb.append("int func_").append(i).append("(int a, int b[]) {\n");
+            sb.append("    int integer_value = a * ").append(i).append(" + b[0] - 7 / 3 % 2;\n");
+            sb.append("    // loop over the array\n");
+            sb.append("    for (integer_value = 0; integer_value < N && a >= 0 || !a; integer_value = integer_value + 1) {\n");
+            sb.append("        if (a == b[integer_value] || a != 0) { break; } else { continue; }\n");
+            sb.append("    }\n");
+            sb.append("    printf(\"func ").append(i).append(": %d\\n\", integer_value);\n");
+            sb.append("    return integer_value <= a;\n");
+            sb.append("}\n");
+        }
+        sb.append("int main() {\n    return 0;\n}\n");
+        return sb.toString();
+    }
+}
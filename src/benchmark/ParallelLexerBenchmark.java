@@ -0,0 +1,73 @@
+package benchmark;
+
+import driver.CompilationContext;
+import driver.CompileOptions;
+import frontend.lexer.ParallelLexer;
+import frontend.lexer.TableLexer;
+import frontend.lexer.TokenStore;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 分块并行词法分析的扩展性基准：以串行的 TableLexer 为基线，依次测量 1 到 N 个工作线程的耗时
+ * 合成程序中的块注释跨越多行，切块时会落在注释内部，覆盖拼接时的重新扫描
+ * 用法：java benchmark.ParallelLexerBenchmark [函数个数] [轮数] [最大线程数]
+ */
+public class ParallelLexerBenchmark {
+    // 每个工作线程分到的块数，与 ParallelLexer 的默认值一致
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    public static void main(String[] args) throws Exception {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        char[] source = LexerBenchmark.generateSource(functions)
+                .replace(" */\n", "\n * spans\n * several lines\n */\n").toCharArray();
+        System.out.printf("source: %d functions, %.2f MB, %d cores available%n",
+                functions, source.length / 1048576.0, Runtime.getRuntime().availableProcessors());
+
+        TokenStore expected = lex(source, null);
+        System.out.printf("tokens: %d%n", expected.size());
+        long bestSequential = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            bestSequential = Math.min(bestSequential, time(source, null));
+        }
+        System.out.printf("sequential: %.2f ms%n", bestSequential / 1e6);
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                LexerBenchmark.checkSame(expected, lex(source, pool));
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round < rounds; round++) {
+                    best = Math.min(best, time(source, pool));
+                }
+                System.out.printf("%d thread(s): %.2f ms, speedup %.2fx%n",
+                        threads, best / 1e6, (double) bestSequential / best);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static long time(char[] source, ForkJoinPool pool) throws Exception {
+        long start = System.nanoTime();
+        lex(source, pool);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * pool 为 null 时串行扫描，否则按每线程 CHUNKS_PER_WORKER 块并行扫描
+     */
+    private static TokenStore lex(char[] source, ForkJoinPool pool) throws Exception {
+        return new CompilationContext(new CompileOptions()).call(() -> {
+            TokenStore tokens = new TokenStore(source);
+            if (pool == null) {
+                new TableLexer(source, tokens, 1).scan();
+            } else {
+                ParallelLexer.lex(source, tokens, 1, pool, pool.getParallelism() * CHUNKS_PER_WORKER);
+            }
+            return tokens;
+        });
+    }
+}
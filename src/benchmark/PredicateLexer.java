@@ -0,0 +1,241 @@
+package benchmark;
+
+import error.Error;
+import error.ErrorRecorder;
+import error.ErrorType;
+import frontend.lexer.TokenStore;
+import frontend.lexer.TokenType;
+import frontend.lexer.TokenTypeUtil;
+
+/**
+ * 基于谓词逐字符判定的词法分析，是表驱动的 TableLexer 之前的实现
+ * 输出（Token 类型、行号、SINGLE_LOGIC_OP 错误）与 TableLexer 相同，只在 LexerBenchmark 中作对照
+ */
+public class PredicateLexer {
+    private final char[] source;
+    private final TokenStore tokens;
+    private int pos;
+    private char curChar;
+    private int curLine;
+
+    public PredicateLexer(char[] source, TokenStore tokens, int line) {
+        this.source = source;
+        this.tokens = tokens;
+        this.pos = 0;
+        this.curChar = charAt(0);
+        this.curLine = line;
+    }
+
+    /**
+     * 扫描整个源程序
+     * @return 扫描结束时的行号
+     */
+    public int scan() {
+        TokenType type = this.produceToken();
+        while(type!=TokenType.EOF){
+            type = this.produceToken();
+        }
+        return curLine;
+    }
+
+    // 越界时返回 '\uFFFF'，与流读到 -1 后强转的结果一致
+    private char charAt(int index) {
+        return index < source.length ? source[index] : '\uFFFF';
+    }
+
+    private void nextChar() {
+        if (pos < source.length) {
+            pos++;
+        }
+        this.curChar = charAt(pos);
+    }
+
+    /**
+     * 识别一个 Token 并写入 TokenStore，返回其类型；到达文件末尾时返回 EOF 且不写入
+     */
+    private TokenType produceToken() {
+        while (true) {
+            skipBlank();
+            if(isIdent()) {
+                return lexerIdent();
+            } else if (isDigit()) {
+                return lexerDigit();
+            } else if (isQuote()) {
+                return lexerString();
+            } else if (isOp()){
+                if (isSingleOp()) {
+                    return lexerSingleOp();
+                } else if (isMultiOp()) {
+                    return lexerMultiOp();
+                } else {
+                    return lexerLogicOp();
+                }
+            } else if (isDiv()) {
+                // 注释被跳过后继续识别下一个 Token
+                if (lexerDivOp()) {
+                    return TokenType.DIV;
+                }
+            } else {
+                return TokenType.EOF;
+            }
+        }
+    }
+
+    // 判定方法
+    private boolean isBlank() {
+        // \r便于Windows测试
+        return curChar==' '||curChar=='\t'||curChar=='\n'||curChar=='\r';
+    }
+
+    private boolean isNewLine(){
+        return curChar=='\n';
+    }
+
+    private boolean isIdent() {
+        return isLetter()||curChar=='_';
+    }
+
+    private boolean isDigit() {
+        return Character.isDigit(curChar);
+    }
+
+    private boolean isLetter() {
+        return Character.isLetter(curChar);
+    }
+
+    private boolean isQuote() {
+        return curChar=='"';
+    }
+
+    private boolean isDiv() {
+        return curChar=='/';
+    }
+
+    private boolean isEof(){
+        return curChar=='\uFFFF';
+    }
+
+    // 单独处理/
+    private boolean isOp() {
+        return curChar=='&'||curChar=='|'||(curChar!='/'&&TokenTypeUtil.inCharMap(curChar));
+    }
+
+    // 不包含<>=&|
+    private boolean isSingleOp() {
+        return curChar!='<'&&curChar!='>'&&curChar!='='&&curChar!='!'&&TokenTypeUtil.inCharMap(curChar);
+    }
+
+    private boolean isMultiOp() {
+        return curChar=='<'||curChar=='>'||curChar=='='||curChar=='!';
+    }
+
+    private void skipBlank() {
+        while(isBlank()){
+            if(isNewLine()){
+                curLine++;
+            }
+            nextChar();
+        }
+    }
+
+    private TokenType addToken(TokenType type, int start) {
+        tokens.add(type, start, pos - start, curLine);
+        return type;
+    }
+
+    // 分析方法
+    private TokenType lexerIdent() {
+        int start = pos;
+        while(isIdent()||isDigit()){
+            nextChar();
+        }
+        TokenType type = TokenTypeUtil.trans2Type(source, start, pos - start);
+        return addToken(type, start);
+    }
+
+    private TokenType lexerDigit() {
+        int start = pos;
+        while(isDigit()){
+            nextChar();
+        }
+        return addToken(TokenType.INTCON, start);
+    }
+
+    private TokenType lexerString() {
+        int start = pos;
+        nextChar();
+        while(!isQuote() && !isEof()) {
+            nextChar();
+        }
+        nextChar();
+        return addToken(TokenType.STRCON, start);
+    }
+
+    private TokenType lexerSingleOp() {
+        int start = pos;
+        TokenType type = TokenTypeUtil.trans2Type(curChar);
+        nextChar();
+        return addToken(type, start);
+    }
+
+    private TokenType lexerMultiOp() {
+        int start = pos;
+        char first = curChar;
+        nextChar();
+        if(curChar=='=') {
+            nextChar();
+            return addToken(TokenTypeUtil.trans2Type(first, '='), start);
+        }
+        return addToken(TokenTypeUtil.trans2Type(first), start);
+    }
+
+    private TokenType lexerLogicOp() {
+        int start = pos;
+        char first = curChar;
+        nextChar();
+        if(curChar!=first) {
+            ErrorRecorder errorRecorder = ErrorRecorder.getErrorRecorder();
+            errorRecorder.addError(new Error(ErrorType.SINGLE_LOGIC_OP, curLine));
+        }
+        nextChar();
+        // 单个 & 或 | 同样按 && / || 处理，文本取固定拼写
+        return addToken(TokenTypeUtil.trans2Type(first, first), start);
+    }
+
+    /**
+     * 处理以 / 开头的输入：注释被整体跳过并返回 false，除法写入 DIV 并返回 true
+     */
+    private boolean lexerDivOp() {
+        int start = pos;
+        nextChar();
+        switch (curChar) {
+            case '/' -> {
+                // 单行注释
+                while(!isNewLine() && !isEof()) {
+                    nextChar();
+                }
+                return false;
+            }
+            case '*' -> {
+                // 多行注释
+                nextChar();
+                while(true) {
+                    while(curChar!='*') {
+                        nextChar();
+                    }
+                    nextChar();
+                    if(isDiv()){
+                        nextChar();
+                        break;
+                    }
+                }
+                return false;
+            }
+            default -> {
+                // 除法
+                addToken(TokenType.DIV, start);
+                return true;
+            }
+        }
+    }
+}
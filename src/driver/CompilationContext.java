@@ -0,0 +1,84 @@
+package driver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * 一次编译的全部可变状态
+ * Lexer/Parser/ErrorRecorder/SymbolManager/IrBuilder/MipsBuilder 等原先的单例都作为组件挂在上下文里，
+ * 其静态访问方法通过当前线程绑定的上下文取得实例，因此同一 JVM 中可以重复、并发地编译
+ */
+public class CompilationContext {
+    private static final ThreadLocal<CompilationContext> CURRENT = new ThreadLocal<>();
+
+    private final CompileOptions options;
+    private final Map<Class<?>, Object> components;
+
+    public CompilationContext(CompileOptions options) {
+        this.options = options;
+        this.components = new HashMap<>();
+    }
+
+    /**
+     * 获取当前线程正在使用的编译上下文
+     */
+    public static CompilationContext current() {
+        CompilationContext context = CURRENT.get();
+        if (context == null) {
+            throw new RuntimeException("No compilation context bound to current thread");
+        }
+        return context;
+    }
+
+    public CompileOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 获取组件实例，不存在时用 factory 创建
+     * 每个需要跨调用保存状态的类以自身 Class 为键，保证一次编译内唯一
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getComponent(Class<T> key, Supplier<T> factory) {
+        synchronized (components) {
+            Object component = components.get(key);
+            if (component == null) {
+                component = factory.get();
+                components.put(key, component);
+            }
+            return (T) component;
+        }
+    }
+
+    /**
+     * 在本上下文中执行 task，结束后恢复线程原先绑定的上下文
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        CompilationContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void run(Runnable task) {
+        try {
+            call(() -> {
+                task.run();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package driver;
+
+/**
+ * 编译中途抛出异常：原异常作为 cause，同时带上失败前已经完成的阶段的产物
+ */
+@SuppressWarnings("serial")
+public class CompileException extends RuntimeException {
+    private final transient CompileResult partialResult;
+
+    public CompileException(Throwable cause, CompileResult partialResult) {
+        super(cause);
+        this.partialResult = partialResult;
+    }
+
+    /**
+     * 已完成阶段的产物，未完成阶段的产物为 null
+     */
+    public CompileResult getPartialResult() {
+        return partialResult;
+    }
+}
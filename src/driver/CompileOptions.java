@@ -0,0 +1,110 @@
+package driver;
+
+/**
+ * 编译选项
+ */
+public class CompileOptions {
+    private boolean optimize = true;
+    private boolean parallelOptimize = false;
+    private boolean telemetry = false;
+    private boolean parallelParse = false;
+    private boolean parallelLex = false;
+    private boolean fusedIrGen = false;
+    private boolean syntaxDirected = false;
+    private boolean parallelSemantic = false;
+
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    public CompileOptions setOptimize(boolean optimize) {
+        this.optimize = optimize;
+        return this;
+    }
+
+    public boolean isParallelOptimize() {
+        return parallelOptimize;
+    }
+
+    /**
+     * 按函数并行执行函数级优化，输出与串行模式逐字节一致
+     */
+    public CompileOptions setParallelOptimize(boolean parallelOptimize) {
+        this.parallelOptimize = parallelOptimize;
+        return this;
+    }
+
+    public boolean isTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * 记录各阶段、各优化器的耗时、分配字节数和 IR 规模，结果见 CompileResult.getTelemetry
+     */
+    public CompileOptions setTelemetry(boolean telemetry) {
+        this.telemetry = telemetry;
+        return this;
+    }
+
+    public boolean isParallelParse() {
+        return parallelParse;
+    }
+
+    /**
+     * 按顶层函数定义切分 Token 并行进行语法分析，parser.txt 和错误输出与串行模式一致
+     */
+    public CompileOptions setParallelParse(boolean parallelParse) {
+        this.parallelParse = parallelParse;
+        return this;
+    }
+
+    public boolean isParallelLex() {
+        return parallelLex;
+    }
+
+    /**
+     * 源程序按行分块并行进行词法分析，Token、行号和错误与串行模式一致
+     */
+    public CompileOptions setParallelLex(boolean parallelLex) {
+        this.parallelLex = parallelLex;
+        return this;
+    }
+
+    public boolean isFusedIrGen() {
+        return fusedIrGen;
+    }
+
+    /**
+     * 语义分析逐个成分检查通过后立即生成中间代码，省去单独的中间代码生成遍历；llvm_ir.txt 与分两遍时一致
+     */
+    public CompileOptions setFusedIrGen(boolean fusedIrGen) {
+        this.fusedIrGen = fusedIrGen;
+        return this;
+    }
+
+    public boolean isSyntaxDirected() {
+        return syntaxDirected;
+    }
+
+    /**
+     * 语法制导的快速编译：语法分析每归约出一个顶层成分就完成语义检查和中间代码生成，不构建完整的 AST，
+     * 错误类型和行号与常规模式一致，但不输出 parser.txt；适合只看错误或冒烟测试的场景，通常与 setOptimize(false) 搭配
+     */
+    public CompileOptions setSyntaxDirected(boolean syntaxDirected) {
+        this.syntaxDirected = syntaxDirected;
+        return this;
+    }
+
+    public boolean isParallelSemantic() {
+        return parallelSemantic;
+    }
+
+    /**
+     * 登记全部函数符号后并行分析各函数体，symbol.txt 和错误输出与串行模式一致；
+     * 中间代码需要按顺序生成，因此与 fusedIrGen 同时开启时不再合并生成
+     */
+    public CompileOptions setParallelSemantic(boolean parallelSemantic) {
+        this.parallelSemantic = parallelSemantic;
+        return this;
+    }
+}
@@ -0,0 +1,170 @@
+package driver;
+
+import backend.mips.MipsModule;
+import driver.telemetry.Telemetry;
+import error.Error;
+import frontend.ast.CompUnit;
+import frontend.lexer.Token;
+import frontend.lexer.TokenStore;
+import midend.llvm.IrModule;
+import midend.semantic.SymbolManager;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 一次编译的产物
+ * 保存各阶段的结果对象，按需生成对应的输出文本；CompileException 带出的部分产物中，未完成阶段的结果对象为 null
+ */
+public class CompileResult {
+    private final TokenStore tokens;
+    private final CompUnit ast;
+    private final SymbolManager symbolManager;
+    private final List<Error> errors;
+    private final IrModule irModule;
+    private final MipsModule mipsModule;
+    private final Telemetry telemetry;
+
+    public CompileResult(TokenStore tokens, CompUnit ast, SymbolManager symbolManager,
+                         List<Error> errors, IrModule irModule, MipsModule mipsModule,
+                         Telemetry telemetry) {
+        this.tokens = tokens;
+        this.ast = ast;
+        this.symbolManager = symbolManager;
+        this.errors = errors;
+        this.irModule = irModule;
+        this.mipsModule = mipsModule;
+        this.telemetry = telemetry;
+    }
+
+    public boolean hasError() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * 物化全部 Token；只需输出时用 emitLexerOutput，不会创建 Token 对象
+     */
+    public List<Token> getTokens() {
+        return tokens != null ? tokens.toTokenList() : List.of();
+    }
+
+    public TokenStore getTokenStore() {
+        return tokens;
+    }
+
+    public CompUnit getAST() {
+        return ast;
+    }
+
+    public List<Error> getErrors() {
+        return errors;
+    }
+
+    public IrModule getIrModule() {
+        return irModule;
+    }
+
+    public MipsModule getMipsModule() {
+        return mipsModule;
+    }
+
+    /**
+     * 遥测数据，未开启 CompileOptions.telemetry 时记录为空
+     */
+    public Telemetry getTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * lexer.txt 内容
+     */
+    public String getLexerOutput() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            emitLexerOutput(sb);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
+
+    public void emitLexerOutput(Appendable out) throws IOException {
+        if (tokens != null) {
+            tokens.emit(out);
+        }
+    }
+
+    /**
+     * parser.txt 内容
+     */
+    public String getParserOutput() {
+        return ast != null ? ast.toString() : "";
+    }
+
+    public void emitParserOutput(Appendable out) throws IOException {
+        if (ast != null) {
+            ast.emit(out);
+        }
+    }
+
+    /**
+     * symbol.txt 内容
+     */
+    public String getSymbolOutput() {
+        return symbolManager != null ? symbolManager.outputAllSymbols() : "";
+    }
+
+    public void emitSymbolOutput(Appendable out) throws IOException {
+        if (symbolManager != null) {
+            symbolManager.emitAllSymbols(out);
+        }
+    }
+
+    /**
+     * error.txt 内容，没有错误时为空串
+     */
+    public String getErrorOutput() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            emitErrorOutput(sb);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
+
+    public void emitErrorOutput(Appendable out) throws IOException {
+        for (int i = 0; i < errors.size(); i++) {
+            out.append(errors.get(i).info());
+            if (i != errors.size() - 1) {
+                out.append(System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * llvm_ir.txt 内容，存在错误时为 null
+     */
+    public String getLlvmIrOutput() {
+        return irModule != null ? irModule.toString() : null;
+    }
+
+    /**
+     * mips.txt 内容，存在错误时为 null
+     */
+    public String getMipsOutput() {
+        return mipsModule != null ? mipsModule.toString() : null;
+    }
+
+    public void emitLlvmIrOutput(Appendable out) throws IOException {
+        if (irModule != null) {
+            irModule.emit(out);
+        }
+    }
+
+    public void emitMipsOutput(Appendable out) throws IOException {
+        if (mipsModule != null) {
+            mipsModule.emit(out);
+        }
+    }
+}
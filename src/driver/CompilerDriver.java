@@ -0,0 +1,131 @@
+package driver;
+
+import backend.BackEnd;
+import driver.telemetry.Telemetry;
+import error.ErrorRecorder;
+import frontend.FrontEnd;
+import frontend.lexer.Lexer;
+import frontend.lexer.TokenStream;
+import midend.MidEnd;
+import midend.semantic.SymbolManager;
+import optimize.OptimizeManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+
+/**
+ * 编译器库入口
+ * 每次调用创建独立的 CompilationContext，不依赖也不修改任何全局状态
+ */
+public class CompilerDriver {
+    public static CompileResult compile(String source, CompileOptions options) {
+        return compile(source.getBytes(StandardCharsets.UTF_8), options);
+    }
+
+    /**
+     * @throws CompileException 编译中途抛出异常时，带上已完成阶段的产物
+     */
+    public static CompileResult compile(byte[] source, CompileOptions options) {
+        return run(new CompilationContext(options), () -> runPipeline(source, options));
+    }
+
+    /**
+     * 在 context 中执行编译流程，失败时收集已完成阶段的产物并包装为 CompileException
+     */
+    static CompileResult run(CompilationContext context, Callable<CompileResult> pipeline) {
+        try {
+            return context.call(pipeline);
+        } catch (Exception | StackOverflowError e) {
+            CompileResult partialResult;
+            try {
+                partialResult = context.call(() -> partialResult(context.getOptions()));
+            } catch (Exception collectFailure) {
+                e.addSuppressed(collectFailure);
+                partialResult = null;
+            }
+            throw new CompileException(e, partialResult);
+        }
+    }
+
+    /**
+     * 按阶段执行并计入遥测，正常结束后登记为已完成
+     */
+    static void phase(Telemetry telemetry, String name, Telemetry.Action action) throws Exception {
+        telemetry.phase(name, MidEnd::getIrModule, action);
+        PhaseProgress.getProgress().complete(name);
+    }
+
+    private static CompileResult runPipeline(byte[] source, CompileOptions options) throws Exception {
+        Telemetry telemetry = Telemetry.getTelemetry();
+        phase(telemetry, "lexer", () -> {
+            FrontEnd.setSource(source);
+            FrontEnd.startLexer();
+        });
+        if (options.isSyntaxDirected()) {
+            phase(telemetry, "translate", () -> {
+                FrontEnd.setTokenStream(new TokenStream(Lexer.getLexer().getTokenStore()));
+                MidEnd.Translate();
+            });
+        } else {
+            phase(telemetry, "parser", () -> {
+                FrontEnd.setTokenStream(new TokenStream(Lexer.getLexer().getTokenStore()));
+                FrontEnd.startParser();
+            });
+            analyze(telemetry);
+        }
+        return generate(options, telemetry);
+    }
+
+    /**
+     * 对 Parser 中的AST做语义分析
+     */
+    static void analyze(Telemetry telemetry) throws Exception {
+        phase(telemetry, "semantic", () -> {
+            MidEnd.initialize();
+            MidEnd.GenerateSymbolTable();
+        });
+    }
+
+    /**
+     * 没有错误时生成中间代码和目标代码，收集各阶段的产物
+     */
+    static CompileResult generate(CompileOptions options, Telemetry telemetry) throws Exception {
+        if (!ErrorRecorder.haveError()) {
+            phase(telemetry, "irgen", MidEnd::GenerateLLVMIR);
+            if (options.isOptimize()) {
+                phase(telemetry, "optimize", () ->
+                        new OptimizeManager(MidEnd.getIrModule(), options.isParallelOptimize()).optimize());
+            }
+            phase(telemetry, "backend", () -> {
+                BackEnd.initialize(MidEnd.getIrModule());
+                BackEnd.generateMips();
+            });
+        }
+
+        return new CompileResult(
+                Lexer.getLexer().getTokenStore(),
+                FrontEnd.getAST(),
+                SymbolManager.getInstance(),
+                ErrorRecorder.getErrorRecorder().getErrors(),
+                ErrorRecorder.haveError() ? null : MidEnd.getIrModule(),
+                ErrorRecorder.haveError() ? null : BackEnd.getMipsModule(),
+                telemetry);
+    }
+
+    /**
+     * 失败前已完成阶段的产物：词法、语法、语义分析的结果，以及优化（不优化时为中间代码生成）完成后的中间代码
+     */
+    private static CompileResult partialResult(CompileOptions options) {
+        PhaseProgress progress = PhaseProgress.getProgress();
+        boolean analyzed = progress.isCompleted("semantic") || progress.isCompleted("translate");
+        boolean irReady = progress.isCompleted(options.isOptimize() ? "optimize" : "irgen");
+        return new CompileResult(
+                progress.isCompleted("lexer") ? Lexer.getLexer().getTokenStore() : null,
+                progress.isCompleted("parser") ? FrontEnd.getAST() : null,
+                analyzed ? SymbolManager.getInstance() : null,
+                ErrorRecorder.getErrorRecorder().getErrors(),
+                irReady ? MidEnd.getIrModule() : null,
+                null,
+                Telemetry.getTelemetry());
+    }
+}
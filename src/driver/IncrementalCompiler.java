@@ -0,0 +1,64 @@
+package driver;
+
+import driver.telemetry.Telemetry;
+import frontend.ast.CompUnit;
+import frontend.lexer.IncrementalLexer;
+import frontend.lexer.Lexer;
+import frontend.lexer.TokenStore;
+import frontend.parser.IncrementalParser;
+import frontend.parser.Parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 编辑—编译循环的长期会话
+ * 在多次编译之间保留上一次的 Token 和顶层成分，每次只重新扫描受改动影响的区间、
+ * 只重新解析包含改动的顶层声明或函数定义，其余子树复制后复用；语义分析及之后的阶段仍对整个程序重新进行。
+ * 每次编译仍在独立的 CompilationContext 中进行，产物与 CompilerDriver.compile 完全相同，
+ * 先后返回的 CompileResult 互不影响，只共用不可变的 Token 对象。
+ * 总是构建语法树，忽略 CompileOptions 中的语法制导翻译和并行词法、语法分析选项
+ */
+public class IncrementalCompiler {
+    private final CompileOptions options;
+    private final IncrementalLexer lexer;
+    private final IncrementalParser parser;
+
+    public IncrementalCompiler(CompileOptions options) {
+        this.options = options;
+        this.lexer = new IncrementalLexer();
+        this.parser = new IncrementalParser();
+    }
+
+    public CompileResult compile(String source) {
+        return compile(source.toCharArray());
+    }
+
+    public CompileResult compile(byte[] source) {
+        return compile(new String(source, StandardCharsets.UTF_8).toCharArray());
+    }
+
+    private CompileResult compile(char[] source) {
+        return CompilerDriver.run(new CompilationContext(options), () -> runPipeline(source));
+    }
+
+    private CompileResult runPipeline(char[] source) throws Exception {
+        Telemetry telemetry = Telemetry.getTelemetry();
+        CompilerDriver.phase(telemetry, "lexer", () -> {
+            TokenStore tokens = lexer.update(source);
+            Lexer.getLexer().setTokens(source, tokens);
+        });
+        CompilerDriver.phase(telemetry, "parser", () -> {
+            CompUnit compUnit;
+            try {
+                compUnit = parser.update(Lexer.getLexer().getTokenStore(), lexer);
+            } catch (RuntimeException e) {
+                // 解析中途失败时记住的成分与新 Token 不再对应
+                parser.reset();
+                throw e;
+            }
+            Parser.getParser().setAST(compUnit);
+        });
+        CompilerDriver.analyze(telemetry);
+        return CompilerDriver.generate(options, telemetry);
+    }
+}
@@ -0,0 +1,23 @@
+package driver;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 一次编译中已经完成的阶段，编译中途失败时据此收集已经产生的产物
+ */
+class PhaseProgress {
+    private final Set<String> completed = new HashSet<>();
+
+    static PhaseProgress getProgress() {
+        return CompilationContext.current().getComponent(PhaseProgress.class, PhaseProgress::new);
+    }
+
+    void complete(String phase) {
+        completed.add(phase);
+    }
+
+    boolean isCompleted(String phase) {
+        return completed.contains(phase);
+    }
+}
@@ -0,0 +1,74 @@
+package driver.telemetry;
+
+import midend.llvm.IrModule;
+import midend.llvm.instr.Instr;
+import midend.llvm.instr.MoveInstr;
+import midend.llvm.instr.phi.PhiInstr;
+import midend.llvm.value.IrBasicBlock;
+import midend.llvm.value.IrFunction;
+
+/**
+ * IR 规模统计：函数、基本块、指令、phi、move 的数量
+ */
+public class IrStats {
+    private int functions;
+    private int blocks;
+    private int instructions;
+    private int phis;
+    private int moves;
+
+    public static IrStats of(IrModule module) {
+        IrStats stats = new IrStats();
+        if (module != null) {
+            for (IrFunction function : module.getFunctions()) {
+                stats.add(of(function));
+            }
+        }
+        return stats;
+    }
+
+    public static IrStats of(IrFunction function) {
+        IrStats stats = new IrStats();
+        stats.functions = 1;
+        for (IrBasicBlock block : function.getBasicBlocks()) {
+            stats.blocks++;
+            for (Instr instr : block.getInstructions()) {
+                stats.instructions++;
+                if (instr instanceof PhiInstr) {
+                    stats.phis++;
+                } else if (instr instanceof MoveInstr) {
+                    stats.moves++;
+                }
+            }
+        }
+        return stats;
+    }
+
+    public synchronized void add(IrStats other) {
+        this.functions += other.functions;
+        this.blocks += other.blocks;
+        this.instructions += other.instructions;
+        this.phis += other.phis;
+        this.moves += other.moves;
+    }
+
+    public int getFunctions() {
+        return functions;
+    }
+
+    public int getBlocks() {
+        return blocks;
+    }
+
+    public int getInstructions() {
+        return instructions;
+    }
+
+    public int getPhis() {
+        return phis;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+}
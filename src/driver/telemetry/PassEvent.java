@@ -0,0 +1,48 @@
+package driver.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 阶段/优化器的 JFR 事件，字段与 PassRecord 一致
+ */
+@Name("compiler.Pass")
+@Label("Compiler Pass")
+@Category("Compiler")
+@Description("One compiler phase or optimizer pass")
+public class PassEvent extends Event {
+    @Label("Kind")
+    public String kind;
+
+    @Label("Name")
+    public String name;
+
+    @Label("Index")
+    public int index;
+
+    @Label("Function")
+    public String function;
+
+    @Label("Allocated")
+    @DataAmount
+    public long allocatedBytes;
+
+    @Label("Iterations")
+    public int iterations;
+
+    @Label("Instructions Before")
+    public int instructionsBefore;
+
+    @Label("Instructions After")
+    public int instructionsAfter;
+
+    @Label("Blocks Before")
+    public int blocksBefore;
+
+    @Label("Blocks After")
+    public int blocksAfter;
+}
@@ -0,0 +1,69 @@
+package driver.telemetry;
+
+/**
+ * 一个阶段（lexer、parser 等）或一个优化器实例的测量结果
+ * 并行优化时同一优化器在各函数上的测量会累加到同一条记录中
+ */
+public class PassRecord {
+    private final String kind;
+    private final String name;
+    private final int index;
+    private long wallNanos;
+    private long allocatedBytes;
+    private int iterations;
+    private final IrStats before;
+    private final IrStats after;
+
+    public PassRecord(String kind, String name, int index) {
+        this.kind = kind;
+        this.name = name;
+        this.index = index;
+        this.iterations = -1;
+        this.before = new IrStats();
+        this.after = new IrStats();
+    }
+
+    public synchronized void addMeasurement(long wallNanos, long allocatedBytes) {
+        this.wallNanos += wallNanos;
+        this.allocatedBytes += allocatedBytes;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * 变化驱动循环的迭代次数，不适用时为 -1
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    public IrStats getBefore() {
+        return before;
+    }
+
+    public IrStats getAfter() {
+        return after;
+    }
+}
@@ -0,0 +1,246 @@
+package driver.telemetry;
+
+import driver.CompilationContext;
+import jdk.jfr.EventType;
+import midend.llvm.IrModule;
+import midend.llvm.value.IrFunction;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 编译遥测：记录每个阶段和每个优化器实例的耗时、分配字节数、前后 IR 规模和迭代次数
+ * 开启 CompileOptions.telemetry 或 JFR 录制了 compiler.Pass 事件时才测量，否则直接执行不做任何统计
+ * 分配字节数按线程计数：并行任务在工作线程上的分配由 function 和 worker 单独测量，累加到正在测量的阶段中
+ */
+public class Telemetry {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final boolean enabled;
+    private final List<PassRecord> records;
+    private int phaseCount;
+    // 正在测量阶段或优化器的线程，以及其他线程上的任务累计分配的字节数
+    private volatile Thread measuringThread;
+    private final LongAdder workerAllocated = new LongAdder();
+
+    private Telemetry() {
+        this.enabled = CompilationContext.current().getOptions().isTelemetry()
+                || EventType.getEventType(PassEvent.class).isEnabled();
+        this.records = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    public static Telemetry getTelemetry() {
+        return CompilationContext.current().getComponent(Telemetry.class, Telemetry::new);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<PassRecord> getRecords() {
+        return records;
+    }
+
+    public PassRecord newRecord(String kind, String name, int index) {
+        PassRecord record = new PassRecord(kind, name, index);
+        records.add(record);
+        return record;
+    }
+
+    /**
+     * 测量一个阶段，module 在阶段前后分别取值，尚未生成 IR 时返回 null
+     */
+    public void phase(String name, Supplier<IrModule> module, Action action) throws Exception {
+        if (!enabled) {
+            action.run();
+            return;
+        }
+        measure(newRecord("phase", name, phaseCount++), module, null, action);
+    }
+
+    /**
+     * 测量一个优化器实例在整个模块上的执行，iterations 在执行结束后读取
+     */
+    public void pass(PassRecord record, IrModule module, IntSupplier iterations, Runnable action) {
+        try {
+            measure(record, () -> module, iterations, action::run);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 测量一个优化器在单个函数上的执行，结果累加到 record 中
+     */
+    public void function(PassRecord record, IrFunction function, Runnable action) {
+        IrStats before = IrStats.of(function);
+        PassEvent event = new PassEvent();
+        event.begin();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        action.run();
+        long wall = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+        event.end();
+        IrStats after = IrStats.of(function);
+
+        if (Thread.currentThread() != measuringThread) {
+            workerAllocated.add(allocated);
+        }
+
+        record.getBefore().add(before);
+        record.getAfter().add(after);
+        record.addMeasurement(wall, allocated);
+        commit(event, record, function.getIrName(), allocated, before, after);
+    }
+
+    /**
+     * 执行并行阶段中的一个任务；任务在其他线程上运行时，其分配的字节数计入正在测量的阶段
+     */
+    public void worker(Runnable action) {
+        if (!enabled || Thread.currentThread() == measuringThread) {
+            action.run();
+            return;
+        }
+        long allocated = allocatedBytes();
+        try {
+            action.run();
+        } finally {
+            workerAllocated.add(allocatedBytes() - allocated);
+        }
+    }
+
+    private void measure(PassRecord record, Supplier<IrModule> module, IntSupplier iterations,
+                         Action action) throws Exception {
+        IrStats before = IrStats.of(module.get());
+        PassEvent event = new PassEvent();
+        event.begin();
+        Thread outer = measuringThread;
+        measuringThread = Thread.currentThread();
+        long workers = workerAllocated.sum();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            measuringThread = outer;
+        }
+        long wall = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated + workerAllocated.sum() - workers;
+        event.end();
+        IrStats after = IrStats.of(module.get());
+        if (iterations != null) {
+            record.setIterations(iterations.getAsInt());
+        }
+
+        record.getBefore().add(before);
+        record.getAfter().add(after);
+        record.addMeasurement(wall, allocated);
+        commit(event, record, null, allocated, before, after);
+    }
+
+    private static void commit(PassEvent event, PassRecord record, String function,
+                               long allocated, IrStats before, IrStats after) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.kind = record.getKind();
+        event.name = record.getName();
+        event.index = record.getIndex();
+        event.function = function;
+        event.allocatedBytes = allocated;
+        event.iterations = record.getIterations();
+        event.instructionsBefore = before.getInstructions();
+        event.instructionsAfter = after.getInstructions();
+        event.blocksBefore = before.getBlocks();
+        event.blocksAfter = after.getBlocks();
+        event.commit();
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"records\": [");
+        synchronized (records) {
+            for (int i = 0; i < records.size(); i++) {
+                PassRecord record = records.get(i);
+                sb.append(i == 0 ? "\n" : ",\n");
+                sb.append("    {\"kind\": \"").append(record.getKind())
+                        .append("\", \"name\": \"").append(record.getName())
+                        .append("\", \"index\": ").append(record.getIndex())
+                        .append(", \"wallNanos\": ").append(record.getWallNanos())
+                        .append(", \"allocatedBytes\": ").append(record.getAllocatedBytes())
+                        .append(", \"iterations\": ").append(record.getIterations())
+                        .append(", \"before\": ");
+                appendJson(sb, record.getBefore());
+                sb.append(", \"after\": ");
+                appendJson(sb, record.getAfter());
+                sb.append("}");
+            }
+        }
+        sb.append("\n  ]\n}\n");
+        return sb.toString();
+    }
+
+    private static void appendJson(StringBuilder sb, IrStats stats) {
+        sb.append("{\"functions\": ").append(stats.getFunctions())
+                .append(", \"blocks\": ").append(stats.getBlocks())
+                .append(", \"instructions\": ").append(stats.getInstructions())
+                .append(", \"phis\": ").append(stats.getPhis())
+                .append(", \"moves\": ").append(stats.getMoves())
+                .append("}");
+    }
+
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("kind,name,index,wall_ns,allocated_bytes,iterations,")
+                .append("functions_before,blocks_before,instructions_before,phis_before,moves_before,")
+                .append("functions_after,blocks_after,instructions_after,phis_after,moves_after\n");
+        synchronized (records) {
+            for (PassRecord record : records) {
+                sb.append(record.getKind()).append(',')
+                        .append(record.getName()).append(',')
+                        .append(record.getIndex()).append(',')
+                        .append(record.getWallNanos()).append(',')
+                        .append(record.getAllocatedBytes()).append(',')
+                        .append(record.getIterations()).append(',');
+                appendCsv(sb, record.getBefore());
+                sb.append(',');
+                appendCsv(sb, record.getAfter());
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendCsv(StringBuilder sb, IrStats stats) {
+        sb.append(stats.getFunctions()).append(',')
+                .append(stats.getBlocks()).append(',')
+                .append(stats.getInstructions()).append(',')
+                .append(stats.getPhis()).append(',')
+                .append(stats.getMoves());
+    }
+
+    /**
+     * 被测量的代码，允许抛出受检异常（如词法分析的 IOException）
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+}
@@ -1,5 +1,7 @@
 package error;
 
+import driver.CompilationContext;
+
 import java.util.ArrayList;
 import java.util.Comparator;
 
@@ -7,17 +9,13 @@ public class ErrorRecorder {
     private final ArrayList<Error> errorList;
     private boolean active = true;
 
-    // 单例懒加载ErrorRecorder
+    // 每个编译上下文一个ErrorRecorder
     private ErrorRecorder() {
         this.errorList = new ArrayList<>();
     }
 
-    private static class Holder {
-        private static final ErrorRecorder INSTANCE = new ErrorRecorder();
-    }
-
     public static ErrorRecorder getErrorRecorder() {
-        return Holder.INSTANCE;
+        return CompilationContext.current().getComponent(ErrorRecorder.class, ErrorRecorder::new);
     }
 
     public void addError(Error e) {
@@ -30,7 +28,7 @@ public class ErrorRecorder {
     }
 
     public static boolean haveError(){
-        return !Holder.INSTANCE.errorList.isEmpty();
+        return !getErrorRecorder().errorList.isEmpty();
     }
 
     public void negative() {
@@ -5,46 +5,39 @@ import frontend.lexer.Lexer;
 import frontend.lexer.TokenStream;
 import frontend.parser.Parser;
 import java.io.IOException;
-import utils.IOhelper;
+import java.io.PushbackInputStream;
 
 public class FrontEnd {
-    private static Lexer lexer;
-    private static Parser parser;
-
-    public static void initialize() {
-        lexer = Lexer.getLexer();
-        parser = Parser.getParser();
+    public static void setInput(PushbackInputStream input) throws IOException{
+        Lexer.getLexer().setInput(input);
     }
 
-    public static void setInput() throws IOException{
-        if (lexer != null){
-            lexer.setInput(IOhelper.getInput());
-        }
+    /**
+     * 直接以整个源程序作为词法分析输入，不经过输入流
+     */
+    public static void setSource(byte[] source) {
+        Lexer.getLexer().setSource(source);
     }
 
     public static void startLexer() throws IOException{
-        if (lexer != null){
-            lexer.produceTokens();
-        }
+        Lexer.getLexer().produceTokens();
     }
 
     public static void setTokenStream(TokenStream tokenStream) {
-        parser.setTokenStream(tokenStream);
+        Parser.getParser().setTokenStream(tokenStream);
     }
     
     /**
      * 开始语法分析，生成AST
      */
     public static void startParser() {
-        if (parser != null) {
-            parser.parse();
-        }
+        Parser.getParser().parse();
     }
     
     /**
      * 获取生成的AST根节点
      */
     public static CompUnit getAST() {
-        return parser != null ? parser.getAST() : null;
+        return Parser.getParser().getAST();
     }
 }
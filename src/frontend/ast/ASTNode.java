@@ -1,6 +1,8 @@
 package frontend.ast;
 
 import frontend.lexer.Token;
+
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -20,9 +22,19 @@ public interface ASTNode {
     SyntaxType getSyntaxType();
     
     /**
-     * 获取子节点列表
+     * 获取子节点列表（只读视图，不复制）
      */
     List<ASTNode> getChildren();
+
+    /**
+     * 获取子节点数量
+     */
+    int getChildCount();
+
+    /**
+     * 获取指定索引的子节点，越界时返回 null
+     */
+    ASTNode getChild(int index);
     
     /**
      * 添加子节点
@@ -48,4 +60,9 @@ public interface ASTNode {
      * 获取节点的字符串表示（用于调试和输出）
      */
     String toString();
+
+    /**
+     * 将 toString() 的内容（parser.txt 格式）直接写入 out，不生成中间字符串，见 AstPrinter
+     */
+    void emit(Appendable out) throws IOException;
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package frontend.ast;
 
 import frontend.lexer.Token;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -11,17 +14,18 @@ import java.util.List;
 public abstract class AbstractASTNode implements ASTNode {
     protected final SyntaxType syntaxType;
     protected final List<ASTNode> children;
+    // children 的只读视图，getChildren 每次返回同一对象
+    private final List<ASTNode> childrenView;
     protected Token token;
     
     public AbstractASTNode(SyntaxType syntaxType) {
-        this.syntaxType = syntaxType;
-        this.children = new ArrayList<>();
-        this.token = null;
+        this(syntaxType, null);
     }
     
     public AbstractASTNode(SyntaxType syntaxType, Token token) {
         this.syntaxType = syntaxType;
         this.children = new ArrayList<>();
+        this.childrenView = Collections.unmodifiableList(children);
         this.token = token;
     }
     
@@ -32,7 +36,7 @@ public abstract class AbstractASTNode implements ASTNode {
     
     @Override
     public List<ASTNode> getChildren() {
-        return new ArrayList<>(children);
+        return childrenView;
     }
     
     @Override
@@ -60,18 +64,19 @@ public abstract class AbstractASTNode implements ASTNode {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        List<ASTNode> children = getChildren();
-        if(!children.isEmpty()) {
-            for (ASTNode child : children) {
-                sb.append(child.toString());
-            }
-        } else {
-            if(token!=null) sb.append(token.info());
+        try {
+            emit(sb);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        if(getToPrint()) sb.append("<").append(getSyntaxType()).append(">").append("\n");
         return sb.toString();
     }
 
+    @Override
+    public void emit(Appendable out) throws IOException {
+        AstPrinter.print(this, out);
+    }
+
     /**
      * 获取是否呈现语法成分
      */
@@ -82,6 +87,7 @@ public abstract class AbstractASTNode implements ASTNode {
     /**
      * 获取子节点数量
      */
+    @Override
     public int getChildCount() {
         return children.size();
     }
@@ -89,6 +95,7 @@ public abstract class AbstractASTNode implements ASTNode {
     /**
      * 获取指定索引的子节点
      */
+    @Override
     public ASTNode getChild(int index) {
         if (index >= 0 && index < children.size()) {
             return children.get(index);
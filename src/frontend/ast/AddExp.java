@@ -9,6 +9,8 @@ import java.util.List;
  * 加减表达式节点
  */
 public class AddExp extends RecursionNode {
+    // ConstExpEvaluator 求得的值，未求值或不是常量表达式时为 null
+    private Integer constValue;
     
     public AddExp() {
         super(SyntaxType.ADD_EXP);
@@ -42,6 +44,14 @@ public class AddExp extends RecursionNode {
         return operators;
     }
 
+    public Integer getConstValue() {
+        return constValue;
+    }
+
+    public void setConstValue(Integer constValue) {
+        this.constValue = constValue;
+    }
+
     @Override
     protected RecursionNode createNewNode() {
         return new AddExp();
@@ -0,0 +1,418 @@
+package frontend.ast;
+
+import frontend.lexer.Token;
+import utils.ParserWrapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * 语法树的深复制
+ * 按子节点顺序重放构造过程：由类型专属的 setter 添加的子节点仍经 setter 添加，语法分析直接加入的 Token 节点原样加入，
+ * 因此副本的子节点序列和各个字段与原树一一对应。Token 经调用方给出的映射换成新的对象；
+ * 语义分析写在节点上的符号绑定和常量值不复制。与 AstPrinter 一样用显式栈遍历，不受树深度限制
+ */
+public class AstCopier {
+    private AstCopier() {
+    }
+
+    public static ASTNode copy(ASTNode root, UnaryOperator<Token> tokenMapper) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root));
+        while (true) {
+            Frame frame = stack.peek();
+            if (frame.next < frame.node.getChildCount()) {
+                stack.push(new Frame(frame.node.getChild(frame.next++)));
+                continue;
+            }
+            stack.pop();
+            ASTNode copy = rebuild(frame.node, frame.copies, tokenMapper);
+            if (stack.isEmpty()) {
+                return copy;
+            }
+            stack.peek().copies.add(copy);
+        }
+    }
+
+    /**
+     * 由 node 和其子节点的副本 copies 构造 node 的副本
+     */
+    private static ASTNode rebuild(ASTNode node, List<ASTNode> copies, UnaryOperator<Token> tokenMapper) {
+        // 叶节点
+        if (node instanceof TokenNode) {
+            return new TokenNode(tokenMapper.apply(node.getToken()));
+        } else if (node instanceof Ident) {
+            return new Ident(tokenMapper.apply(node.getToken()));
+        } else if (node instanceof Number) {
+            return new Number(tokenMapper.apply(node.getToken()));
+        } else if (node instanceof FuncType) {
+            return new FuncType(tokenMapper.apply(node.getToken()));
+        }
+
+        // 包装节点只有被包装的一个子节点，由构造函数加入
+        if (node instanceof ParserWrapper.BlockItemWrapper) {
+            ASTNode wrapped = copies.get(0);
+            return wrapped instanceof Decl decl
+                    ? new ParserWrapper.BlockItemWrapper(decl)
+                    : new ParserWrapper.BlockItemWrapper((Stmt) wrapped);
+        } else if (node instanceof ParserWrapper.StmtWrapper) {
+            return wrapStmt(copies.get(0));
+        } else if (node instanceof ParserWrapper.ExpWrapper) {
+            return new ParserWrapper.ExpWrapper((AddExp) copies.get(0));
+        }
+
+        AbstractASTNode copy = create(node);
+        for (int i = 0; i < copies.size(); i++) {
+            ASTNode child = node.getChild(i);
+            if (!addTyped(node, copy, child, copies.get(i), tokenMapper)) {
+                copy.addChild(copies.get(i));
+            }
+        }
+        return copy;
+    }
+
+    private static AbstractASTNode create(ASTNode node) {
+        if (node instanceof RecursionNode recursionNode) {
+            return recursionNode.createNewNode();
+        } else if (node instanceof CompUnit) {
+            return new CompUnit();
+        } else if (node instanceof ConstDecl) {
+            return new ConstDecl();
+        } else if (node instanceof VarDecl varDecl) {
+            VarDecl copy = new VarDecl();
+            copy.setStatic(varDecl.isStatic());
+            return copy;
+        } else if (node instanceof ConstDef) {
+            return new ConstDef();
+        } else if (node instanceof VarDef) {
+            return new VarDef();
+        } else if (node instanceof ConstInitVal constInitVal) {
+            ConstInitVal copy = new ConstInitVal();
+            copy.setIsArray(constInitVal.isArray());
+            return copy;
+        } else if (node instanceof InitVal initVal) {
+            InitVal copy = new InitVal();
+            copy.setIsArray(initVal.isArray());
+            return copy;
+        } else if (node instanceof FuncDef) {
+            return new FuncDef();
+        } else if (node instanceof MainFuncDef) {
+            return new MainFuncDef();
+        } else if (node instanceof FuncFParams) {
+            return new FuncFParams();
+        } else if (node instanceof FuncFParam funcFParam) {
+            FuncFParam copy = new FuncFParam();
+            copy.setIsArray(funcFParam.isArray());
+            return copy;
+        } else if (node instanceof FuncRParams) {
+            return new FuncRParams();
+        } else if (node instanceof Block) {
+            return new Block();
+        } else if (node instanceof AssignmentStmt) {
+            return new AssignmentStmt();
+        } else if (node instanceof ExprStmt) {
+            return new ExprStmt();
+        } else if (node instanceof IfStmt) {
+            return new IfStmt();
+        } else if (node instanceof ForLoopStmt) {
+            return new ForLoopStmt();
+        } else if (node instanceof ForStmt) {
+            return new ForStmt();
+        } else if (node instanceof BreakStmt) {
+            return new BreakStmt();
+        } else if (node instanceof ContinueStmt) {
+            return new ContinueStmt();
+        } else if (node instanceof ReturnStmt) {
+            return new ReturnStmt();
+        } else if (node instanceof PrintStmt) {
+            return new PrintStmt();
+        } else if (node instanceof CondExp) {
+            return new CondExp();
+        } else if (node instanceof ConstExp) {
+            return new ConstExp();
+        } else if (node instanceof PrimaryExp) {
+            return new PrimaryExp();
+        } else if (node instanceof UnaryExp) {
+            return new UnaryExp();
+        } else if (node instanceof UnaryOp) {
+            return new UnaryOp();
+        } else if (node instanceof LVal) {
+            return new LVal();
+        }
+        throw new RuntimeException("Cannot copy AST node: " + node.getClass().getName());
+    }
+
+    /**
+     * 若 child 是 node 的某个字段所引用的子节点，经对应的 setter 把副本加到 copy 上
+     * @return 是否已加入；否则由调用方直接加入子节点列表
+     */
+    private static boolean addTyped(ASTNode node, AbstractASTNode copy, ASTNode child, ASTNode childCopy,
+                                    UnaryOperator<Token> tokenMapper) {
+        if (node instanceof RecursionNode recursionNode) {
+            RecursionNode target = (RecursionNode) copy;
+            if (child instanceof TokenNode && containsToken(recursionNode.getOperators(), child.getToken())) {
+                target.addOperator(tokenMapper.apply(child.getToken()));
+            } else if (containsNode(recursionNode.getOperands(), child)) {
+                target.addOperand(childCopy);
+            } else {
+                return false;
+            }
+        } else if (node instanceof CompUnit) {
+            CompUnit target = (CompUnit) copy;
+            if (childCopy instanceof Decl decl) {
+                target.addDeclaration(decl);
+            } else if (childCopy instanceof FuncDef funcDef) {
+                target.addFunctionDefinition(funcDef);
+            } else if (childCopy instanceof MainFuncDef mainFuncDef) {
+                target.setMainFunction(mainFuncDef);
+            } else {
+                return false;
+            }
+        } else if (node instanceof ConstDecl) {
+            if (!(childCopy instanceof ConstDef constDef)) {
+                return false;
+            }
+            ((ConstDecl) copy).addConstDef(constDef);
+        } else if (node instanceof VarDecl) {
+            if (!(childCopy instanceof VarDef varDef)) {
+                return false;
+            }
+            ((VarDecl) copy).addVarDef(varDef);
+        } else if (node instanceof ConstDef constDef) {
+            ConstDef target = (ConstDef) copy;
+            if (child == constDef.getIdent()) {
+                target.setIdent((Ident) childCopy);
+            } else if (child == constDef.getConstExp()) {
+                target.setConstExp((ConstExp) childCopy);
+            } else if (child == constDef.getInitVal()) {
+                target.setInitVal((ConstInitVal) childCopy);
+            } else {
+                return false;
+            }
+        } else if (node instanceof VarDef varDef) {
+            VarDef target = (VarDef) copy;
+            if (child == varDef.getIdent()) {
+                target.setIdent((Ident) childCopy);
+            } else if (child == varDef.getConstExp()) {
+                target.setConstExp((ConstExp) childCopy);
+            } else if (child == varDef.getInitVal()) {
+                target.setInitVal((InitVal) childCopy);
+            } else {
+                return false;
+            }
+        } else if (node instanceof ConstInitVal) {
+            if (!(childCopy instanceof ConstExp constExp)) {
+                return false;
+            }
+            ((ConstInitVal) copy).addConstExp(constExp);
+        } else if (node instanceof InitVal) {
+            if (!(childCopy instanceof Exp exp)) {
+                return false;
+            }
+            ((InitVal) copy).addExp(exp);
+        } else if (node instanceof FuncDef funcDef) {
+            FuncDef target = (FuncDef) copy;
+            if (child == funcDef.getFuncType()) {
+                target.setFuncType((FuncType) childCopy);
+            } else if (child == funcDef.getIdent()) {
+                target.setIdent((Ident) childCopy);
+            } else if (child == funcDef.getFuncFParams()) {
+                target.setFuncFParams((FuncFParams) childCopy);
+            } else if (child == funcDef.getBlock()) {
+                target.setBlock((Block) childCopy);
+            } else {
+                return false;
+            }
+        } else if (node instanceof MainFuncDef mainFuncDef) {
+            if (child != mainFuncDef.getBlock()) {
+                return false;
+            }
+            ((MainFuncDef) copy).setBlock((Block) childCopy);
+        } else if (node instanceof FuncFParams) {
+            if (!(childCopy instanceof FuncFParam funcFParam)) {
+                return false;
+            }
+            ((FuncFParams) copy).addParam(funcFParam);
+        } else if (node instanceof FuncFParam funcFParam) {
+            if (child != funcFParam.getIdent()) {
+                return false;
+            }
+            ((FuncFParam) copy).setIdent((Ident) childCopy);
+        } else if (node instanceof FuncRParams) {
+            if (!(childCopy instanceof Exp exp)) {
+                return false;
+            }
+            ((FuncRParams) copy).addParam(exp);
+        } else if (node instanceof Block) {
+            if (!(childCopy instanceof BlockItem blockItem)) {
+                return false;
+            }
+            ((Block) copy).addBlockItem(blockItem);
+        } else if (node instanceof AssignmentStmt assignmentStmt) {
+            AssignmentStmt target = (AssignmentStmt) copy;
+            if (child == assignmentStmt.getLVal()) {
+                target.setLVal((LVal) childCopy);
+            } else if (child == assignmentStmt.getExp()) {
+                target.setExp((Exp) childCopy);
+            } else {
+                return false;
+            }
+        } else if (node instanceof ExprStmt exprStmt) {
+            if (child != exprStmt.getExp()) {
+                return false;
+            }
+            ((ExprStmt) copy).setExp((Exp) childCopy);
+        } else if (node instanceof IfStmt ifStmt) {
+            IfStmt target = (IfStmt) copy;
+            if (child == ifStmt.getCondition()) {
+                target.setCondition((CondExp) childCopy);
+            } else if (child == ifStmt.getThenStmt()) {
+                target.setThenStmt((Stmt) childCopy);
+            } else if (child == ifStmt.getElseStmt()) {
+                target.setElseStmt((Stmt) childCopy);
+            } else {
+                return false;
+            }
+        } else if (node instanceof ForLoopStmt forLoopStmt) {
+            ForLoopStmt target = (ForLoopStmt) copy;
+            if (child == forLoopStmt.getInitStmt()) {
+                target.setInitStmt((ForStmt) childCopy);
+            } else if (child == forLoopStmt.getCondition()) {
+                target.setCondition((CondExp) childCopy);
+            } else if (child == forLoopStmt.getUpdateStmt()) {
+                target.setUpdateStmt((ForStmt) childCopy);
+            } else if (child == forLoopStmt.getBody()) {
+                target.setBody((Stmt) childCopy);
+            } else {
+                return false;
+            }
+        } else if (node instanceof ForStmt) {
+            ForStmt target = (ForStmt) copy;
+            if (childCopy instanceof LVal lVal) {
+                target.addLVal(lVal);
+            } else if (childCopy instanceof Exp exp) {
+                target.addExpr(exp);
+            } else {
+                return false;
+            }
+        } else if (node instanceof ReturnStmt returnStmt) {
+            if (child != returnStmt.getExp()) {
+                return false;
+            }
+            ((ReturnStmt) copy).setExp((Exp) childCopy);
+        } else if (node instanceof PrintStmt printStmt) {
+            PrintStmt target = (PrintStmt) copy;
+            if (child instanceof TokenNode && child.getToken() == printStmt.getStringConst()) {
+                target.setStringConst(tokenMapper.apply(child.getToken()));
+            } else if (childCopy instanceof Exp exp) {
+                target.addExp(exp);
+            } else {
+                return false;
+            }
+        } else if (node instanceof CondExp condExp) {
+            if (child != condExp.getLOrExp()) {
+                return false;
+            }
+            ((CondExp) copy).setLOrExp((LOrExp) childCopy);
+        } else if (node instanceof ConstExp constExp) {
+            if (child != constExp.getAddExp()) {
+                return false;
+            }
+            ((ConstExp) copy).setAddExp((AddExp) childCopy);
+        } else if (node instanceof PrimaryExp primaryExp) {
+            if (child != primaryExp.getPrimary()) {
+                return false;
+            }
+            ((PrimaryExp) copy).setPrimary(childCopy);
+        } else if (node instanceof UnaryExp unaryExp) {
+            UnaryExp target = (UnaryExp) copy;
+            if (child == unaryExp.getUnaryOp()) {
+                target.setUnaryOp((UnaryOp) childCopy);
+            } else if (child == unaryExp.getUnaryExp()) {
+                target.setUnaryExp((UnaryExp) childCopy);
+            } else if (child == unaryExp.getFuncName()) {
+                target.setFuncName((Ident) childCopy);
+            } else if (child == unaryExp.getFuncRParams()) {
+                target.setFuncRParams((FuncRParams) childCopy);
+            } else if (child == unaryExp.getPrimaryExp()) {
+                target.setPrimaryExp((PrimaryExp) childCopy);
+            } else {
+                return false;
+            }
+        } else if (node instanceof UnaryOp unaryOp) {
+            if (!(child instanceof TokenNode) || child.getToken() != unaryOp.getOp()) {
+                return false;
+            }
+            ((UnaryOp) copy).setOp(tokenMapper.apply(child.getToken()));
+        } else if (node instanceof LVal lVal) {
+            LVal target = (LVal) copy;
+            if (child == lVal.getIdent()) {
+                target.setIdent((Ident) childCopy);
+            } else if (child == lVal.getIndexExp()) {
+                target.setIndexExp((Exp) childCopy);
+            } else {
+                return false;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static ParserWrapper.StmtWrapper wrapStmt(ASTNode stmt) {
+        if (stmt instanceof Block block) {
+            return new ParserWrapper.StmtWrapper(block);
+        } else if (stmt instanceof AssignmentStmt assignmentStmt) {
+            return new ParserWrapper.StmtWrapper(assignmentStmt);
+        } else if (stmt instanceof ExprStmt exprStmt) {
+            return new ParserWrapper.StmtWrapper(exprStmt);
+        } else if (stmt instanceof IfStmt ifStmt) {
+            return new ParserWrapper.StmtWrapper(ifStmt);
+        } else if (stmt instanceof ForLoopStmt forLoopStmt) {
+            return new ParserWrapper.StmtWrapper(forLoopStmt);
+        } else if (stmt instanceof BreakStmt breakStmt) {
+            return new ParserWrapper.StmtWrapper(breakStmt);
+        } else if (stmt instanceof ContinueStmt continueStmt) {
+            return new ParserWrapper.StmtWrapper(continueStmt);
+        } else if (stmt instanceof ReturnStmt returnStmt) {
+            return new ParserWrapper.StmtWrapper(returnStmt);
+        } else if (stmt instanceof PrintStmt printStmt) {
+            return new ParserWrapper.StmtWrapper(printStmt);
+        }
+        throw new RuntimeException("Cannot wrap AST node as Stmt: " + stmt.getClass().getName());
+    }
+
+    private static boolean containsNode(List<ASTNode> nodes, ASTNode node) {
+        for (ASTNode candidate : nodes) {
+            if (candidate == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsToken(List<Token> tokens, Token token) {
+        for (Token candidate : tokens) {
+            if (candidate == token) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 遍历中的一个节点：下一个待复制的子节点和已复制好的子节点
+     */
+    private static class Frame {
+        private final ASTNode node;
+        private final List<ASTNode> copies = new ArrayList<>();
+        private int next;
+
+        Frame(ASTNode node) {
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package frontend.ast;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * parser.txt 输出
+ * 用显式栈一次遍历整棵树并直接写入 out：叶子节点输出 Token，节点的全部子节点输出完后输出其语法成分，
+ * 不拼接子树字符串，输出时间与结果长度成线性，且不受树深度限制
+ */
+public class AstPrinter {
+    public static void print(ASTNode root, Appendable out) throws IOException {
+        ASTNode[] nodes = new ASTNode[64];
+        int[] nextChild = new int[64];
+        int top = 0;
+        nodes[0] = root;
+        nextChild[0] = 0;
+        while (top >= 0) {
+            ASTNode node = nodes[top];
+            int index = nextChild[top];
+            int childCount = node.getChildCount();
+            if (index == 0 && childCount == 0 && node.getToken() != null) {
+                node.getToken().emit(out);
+            }
+            if (index < childCount) {
+                nextChild[top] = index + 1;
+                top++;
+                if (top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top << 1);
+                    nextChild = Arrays.copyOf(nextChild, top << 1);
+                }
+                nodes[top] = node.getChild(index);
+                nextChild[top] = 0;
+                continue;
+            }
+            if (node.getToPrint()) {
+                out.append('<').append(node.getSyntaxType().toString()).append('>');
+                // 根节点 CompUnit 末尾不换行
+                if (!(node instanceof CompUnit)) {
+                    out.append('\n');
+                }
+            }
+            nodes[top--] = null;
+        }
+    }
+}
@@ -90,19 +90,4 @@ public class CompUnit extends AbstractASTNode {
     public boolean hasMainFunction() {
         return mainFunction != null;
     }
-
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        List<ASTNode> children = getChildren();
-        if(!children.isEmpty()) {
-            for (ASTNode child : children) {
-                sb.append(child.toString());
-            }
-        } else {
-            if(token!=null) sb.append(token.info());
-        }
-        if(getToPrint()) sb.append("<").append(getSyntaxType()).append(">");
-        return sb.toString();
-    }
-}
\ No newline at end of file
+}
@@ -1,11 +1,14 @@
 package frontend.ast;
 
 import frontend.lexer.Token;
+import midend.semantic.Symbol;
 
 /**
  * 标识符节点
  */
 public class Ident extends AbstractASTNode {
+    // 语义分析解析出的符号：定义处为所定义的符号，使用处为此处可见的定义
+    private Symbol symbol;
     
     public Ident(Token token) {
         super(SyntaxType.IDENT, token);
@@ -17,4 +20,18 @@ public class Ident extends AbstractASTNode {
     public String getName() {
         return token != null ? token.getContent() : "";
     }
-}
\ No newline at end of file
+    
+    /**
+     * 获取语义分析绑定的符号，未解析时为 null
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+    
+    /**
+     * 绑定符号
+     */
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
+}
@@ -44,4 +44,11 @@ public class InitVal extends AbstractASTNode {
     public void setIsArray(boolean isArray) {
         this.isArray = isArray;
     }
+
+    /**
+     * 是否为数组定义初始值
+     */
+    public boolean isArray() {
+        return isArray;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package frontend.ast;
 
+import midend.semantic.Symbol;
+
 /**
  * 左值节点
  */
@@ -52,6 +54,13 @@ public class LVal extends AbstractASTNode {
         return ident != null ? ident.getName() : "";
     }
     
+    /**
+     * 获取语义分析绑定的符号
+     */
+    public Symbol getSymbol() {
+        return ident != null ? ident.getSymbol() : null;
+    }
+    
     /**
      * 检查是否为数组访问
      */
@@ -0,0 +1,139 @@
+package frontend.lexer;
+
+/**
+ * 编辑—编译循环中的增量词法分析
+ * 保留上一次的源程序和 TokenStore；新源程序到来时先求两者的公共前缀与公共后缀，
+ * 前缀中不受影响的 Token 原样复制，从受损区间前一个 Token 的起点开始逐个成分重新扫描，
+ * 一旦扫描位置进入公共后缀并恰好落在旧结果某个 Token 的起点上，此后的 Token 整体平移后拼接。
+ * TableLexer 在 Token 之间的状态只有位置和行号，Token 不跨行计数，因此结果与整体重新扫描完全一致；
+ * Token 不可变，下标和行号都不变的区间直接共用已创建的 Token 对象，其余位置在新存储中按需重新创建
+ */
+public class IncrementalLexer {
+    private char[] source;
+    private TokenStore tokens;
+    private boolean stopped;
+
+    // 最近一次更新：新旧结果在 [0, firstRelexed) 上相同，旧的 [firstReused, 旧长度) 平移到新的 [firstShifted, 新长度)
+    private int firstRelexed;
+    private int firstReused;
+    private int firstShifted;
+    private int lineDelta;
+
+    /**
+     * 扫描新的源程序，尽量复用上一次的结果；SINGLE_LOGIC_OP 错误按 Token 重新判定并登记
+     * @return 新的 TokenStore，上一次返回的存储保持不变
+     */
+    public TokenStore update(char[] newSource) {
+        TokenStore oldTokens = tokens;
+        if (oldTokens == null || stopped) {
+            lexAll(newSource);
+        } else {
+            relex(newSource, oldTokens);
+        }
+        this.source = newSource;
+        ParallelLexer.reportErrors(newSource, tokens, 0);
+        return tokens;
+    }
+
+    private void lexAll(char[] newSource) {
+        TokenStore store = new TokenStore(newSource);
+        TableLexer lexer = new TableLexer(newSource, store, 1, false);
+        lexer.scanRange(0, newSource.length);
+        this.tokens = store;
+        this.stopped = lexer.isStopped();
+        this.firstRelexed = 0;
+        this.firstReused = Integer.MAX_VALUE;
+        this.firstShifted = store.size();
+        this.lineDelta = 0;
+    }
+
+    private void relex(char[] newSource, TokenStore oldTokens) {
+        char[] oldSource = source;
+        int oldLength = oldSource.length;
+        int newLength = newSource.length;
+        int limit = Math.min(oldLength, newLength);
+        int prefix = 0;
+        while (prefix < limit && oldSource[prefix] == newSource[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && oldSource[oldLength - 1 - suffix] == newSource[newLength - 1 - suffix]) {
+            suffix++;
+        }
+
+        // 第一个可能受影响的 Token：终点不早于公共前缀的末尾；从它的前一个 Token 开始重扫更稳妥
+        int oldSize = oldTokens.size();
+        int damaged = 0;
+        while (damaged < oldSize && oldTokens.getStart(damaged) + oldTokens.getLength(damaged) < prefix) {
+            damaged++;
+        }
+        int restart = Math.max(damaged - 1, 0);
+        int pos = restart == 0 ? 0 : oldTokens.getStart(restart);
+        int line = restart == 0 ? 1 : oldTokens.getLine(restart);
+
+        TokenStore store = new TokenStore(newSource);
+        store.appendRange(oldTokens, 0, restart, 0);
+        TableLexer relexer = new TableLexer(newSource, store, line, false);
+        int delta = newLength - oldLength;
+        int next = restart;
+        boolean synced = false;
+        while (pos < newLength && !relexer.isStopped()) {
+            if (pos >= newLength - suffix) {
+                while (next < oldSize && oldTokens.getStart(next) < pos - delta) {
+                    next++;
+                }
+                if (next < oldSize && oldTokens.getStart(next) == pos - delta) {
+                    synced = true;
+                    break;
+                }
+            }
+            pos = relexer.scanRange(pos, pos + 1);
+        }
+
+        int shifted = store.size();
+        int lines = relexer.getLine() - (synced ? oldTokens.getLine(next) : 0);
+        store.shareTokens(oldTokens, 0, restart);
+        if (synced) {
+            store.appendRange(oldTokens, next, oldSize, lines, delta);
+            if (shifted == next && lines == 0) {
+                store.shareTokens(oldTokens, next, oldSize);
+            }
+        }
+        this.tokens = store;
+        this.stopped = relexer.isStopped();
+        this.firstRelexed = restart;
+        this.firstReused = synced ? next : Integer.MAX_VALUE;
+        this.firstShifted = shifted;
+        this.lineDelta = synced ? lines : 0;
+    }
+
+    public TokenStore getTokens() {
+        return tokens;
+    }
+
+    /**
+     * 最近一次更新中新旧结果相同的前缀 Token 数，整体重新扫描时为 0
+     */
+    public int getFirstRelexed() {
+        return firstRelexed;
+    }
+
+    /**
+     * 最近一次更新中被平移复用的第一个旧 Token 下标，没有复用时为 Integer.MAX_VALUE
+     */
+    public int getFirstReused() {
+        return firstReused;
+    }
+
+    /**
+     * getFirstReused 对应的 Token 在新结果中的下标
+     */
+    public int getFirstShifted() {
+        return firstShifted;
+    }
+
+    public int getLineDelta() {
+        return lineDelta;
+    }
+}
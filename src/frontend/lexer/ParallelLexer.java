@@ -0,0 +1,179 @@
+package frontend.lexer;
+
+import driver.telemetry.Telemetry;
+import error.Error;
+import error.ErrorRecorder;
+import error.ErrorType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 分块并行的词法分析
+ * 源程序在换行处切成若干块，每块假定自己从 Token 边界开始（不在块注释或字符串内部），
+ * 在各自的线程上用 TableLexer 扫描到独立的 TokenStore，行号从 0 计起。
+ * 之后按顺序拼接：上一块实际结束的位置恰好是本块起点时直接采用推测结果；
+ * 否则说明上一块的字符串、注释或 & | 吞掉的字符跨过了边界，从实际位置逐个成分重新扫描，
+ * 直到落在推测结果中某个 Token 的起点上，此后两者状态相同，剩余部分直接拼接。
+ * TableLexer 在 Token 之间的状态只有位置和行号，因此结果与串行扫描完全一致；
+ * SINGLE_LOGIC_OP 错误在拼接后按 Token 重新判定，顺序与行号也与串行一致
+ */
+public class ParallelLexer {
+    // 每块至少的字符数，源程序不足两块时直接串行扫描
+    private static final int MIN_CHUNK_CHARS = 1 << 16;
+    // 每个工作线程分到的块数，块多一些可以平衡负载
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * 使用公共 ForkJoinPool 扫描整个源程序
+     * @return 扫描结束时的行号
+     */
+    public static int lex(char[] source, TokenStore tokens, int line) {
+        return lex(source, tokens, line, ForkJoinPool.commonPool());
+    }
+
+    public static int lex(char[] source, TokenStore tokens, int line, ForkJoinPool pool) {
+        int chunks = Math.min(pool.getParallelism() * CHUNKS_PER_WORKER, source.length / MIN_CHUNK_CHARS);
+        if (pool.getParallelism() < 2 || chunks < 2) {
+            return new TableLexer(source, tokens, line).scan();
+        }
+        return lex(source, tokens, line, pool, chunks);
+    }
+
+    /**
+     * 按指定块数扫描，不检查块的大小
+     */
+    public static int lex(char[] source, TokenStore tokens, int line, ForkJoinPool pool, int chunkCount) {
+        List<Chunk> chunks = split(source, chunkCount, Telemetry.getTelemetry());
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(chunks);
+            }
+        });
+
+        int first = tokens.size();
+        int pos = 0;
+        for (Chunk chunk : chunks) {
+            if (pos >= chunk.end) {
+                // 整块都在上一块跨过来的字符串或注释之内
+                continue;
+            }
+            if (pos == chunk.begin) {
+                tokens.appendRange(chunk.tokens, 0, chunk.tokens.size(), line);
+                line += chunk.endLine;
+                pos = chunk.resume;
+                if (chunk.stopped) {
+                    break;
+                }
+                continue;
+            }
+
+            // 推测失败：从实际位置重新扫描，直到与推测结果的某个 Token 起点重合
+            TableLexer relexer = new TableLexer(source, tokens, line, false);
+            TokenStore guessed = chunk.tokens;
+            int next = 0;
+            boolean synced = false;
+            while (pos < chunk.end && !relexer.isStopped()) {
+                while (next < guessed.size() && guessed.getStart(next) < pos) {
+                    next++;
+                }
+                if (next < guessed.size() && guessed.getStart(next) == pos) {
+                    synced = true;
+                    break;
+                }
+                pos = relexer.scanRange(pos, pos + 1);
+            }
+            if (synced) {
+                int lineDelta = relexer.getLine() - guessed.getLine(next);
+                tokens.appendRange(guessed, next, guessed.size(), lineDelta);
+                line = chunk.endLine + lineDelta;
+                pos = chunk.resume;
+                if (chunk.stopped) {
+                    break;
+                }
+            } else {
+                line = relexer.getLine();
+                if (relexer.isStopped()) {
+                    break;
+                }
+            }
+        }
+
+        reportErrors(source, tokens, first);
+        return line;
+    }
+
+    /**
+     * 在 chunkCount 等分点之后的第一个换行处切分
+     */
+    private static List<Chunk> split(char[] source, int chunkCount, Telemetry telemetry) {
+        List<Chunk> chunks = new ArrayList<>();
+        int begin = 0;
+        for (int i = 1; i <= chunkCount && begin < source.length; i++) {
+            int end = i == chunkCount ? source.length
+                    : Math.max(begin + 1, (int) ((long) source.length * i / chunkCount));
+            while (end < source.length && source[end - 1] != '\n') {
+                end++;
+            }
+            if (end > begin) {
+                chunks.add(new Chunk(source, begin, end, telemetry));
+                begin = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 单独出现的 & 或 | 报 SINGLE_LOGIC_OP，与 TableLexer 的判定相同
+     */
+    static void reportErrors(char[] source, TokenStore tokens, int first) {
+        for (int i = first; i < tokens.size(); i++) {
+            TokenType type = tokens.getType(i);
+            if (type != TokenType.AND && type != TokenType.OR) {
+                continue;
+            }
+            int start = tokens.getStart(i);
+            if (start + 1 >= source.length || source[start + 1] != source[start]) {
+                ErrorRecorder.getErrorRecorder().addError(new Error(ErrorType.SINGLE_LOGIC_OP, tokens.getLine(i)));
+            }
+        }
+    }
+
+    /**
+     * 一个块的推测扫描结果
+     */
+    @SuppressWarnings("serial")
+    private static class Chunk extends RecursiveAction {
+        private final char[] source;
+        private final int begin;
+        private final int end;
+        private final TokenStore tokens;
+        private final Telemetry telemetry;
+        // 扫描结束的位置、相对行号和是否因无法识别的字符停止
+        private int resume;
+        private int endLine;
+        private boolean stopped;
+
+        Chunk(char[] source, int begin, int end, Telemetry telemetry) {
+            this.source = source;
+            this.begin = begin;
+            this.end = end;
+            this.tokens = new TokenStore(source);
+            this.telemetry = telemetry;
+        }
+
+        @Override
+        protected void compute() {
+            telemetry.worker(() -> {
+                TableLexer lexer = new TableLexer(source, tokens, 0, false);
+                resume = lexer.scanRange(begin, end);
+                endLine = lexer.getLine();
+                stopped = lexer.isStopped();
+            });
+        }
+    }
+}
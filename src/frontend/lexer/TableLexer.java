@@ -0,0 +1,246 @@
+package frontend.lexer;
+
+import error.Error;
+import error.ErrorRecorder;
+import error.ErrorType;
+
+/**
+ * 表驱动的词法分析核心
+ * 用字符类别表决定每个 Token 的起始状态，运算符按转移表识别，关键字用完美哈希判定，
+ * 结果（Token 类型、行号、SINGLE_LOGIC_OP 错误）与此前基于谓词的实现（保留在 benchmark.PredicateLexer 中作对照）完全一致
+ */
+public class TableLexer {
+    // 字符类别
+    private static final byte OTHER = 0;
+    private static final byte BLANK = 1;
+    private static final byte NEWLINE = 2;
+    private static final byte LETTER = 3;
+    private static final byte DIGIT = 4;
+    private static final byte QUOTE = 5;
+    private static final byte SLASH = 6;
+    private static final byte OPERATOR = 7;
+
+    private static final byte[] CHAR_CLASS = new byte[128];
+    // 运算符转移表：单字符类型、可接的第二个字符及双字符类型
+    private static final TokenType[] SINGLE_OP = new TokenType[128];
+    private static final char[] PAIR_SECOND = new char[128];
+    private static final TokenType[] PAIR_OP = new TokenType[128];
+    // & 和 | 只有双字符形式，单独出现时报 SINGLE_LOGIC_OP
+    private static final boolean[] PAIR_ONLY = new boolean[128];
+
+    private static final String[] KEYWORDS = {
+            "const", "int", "static", "break", "continue", "if",
+            "else", "for", "return", "void", "main", "printf"
+    };
+    private static final int KEYWORD_TABLE_SIZE = 32;
+    private static final String[] KEYWORD_TABLE = new String[KEYWORD_TABLE_SIZE];
+    private static final TokenType[] KEYWORD_TYPE_TABLE = new TokenType[KEYWORD_TABLE_SIZE];
+
+    static {
+        CHAR_CLASS[' '] = BLANK;
+        CHAR_CLASS['\t'] = BLANK;
+        CHAR_CLASS['\r'] = BLANK;
+        CHAR_CLASS['\n'] = NEWLINE;
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASS[c] = LETTER;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CHAR_CLASS[c] = LETTER;
+        }
+        CHAR_CLASS['_'] = LETTER;
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASS[c] = DIGIT;
+        }
+        CHAR_CLASS['"'] = QUOTE;
+        CHAR_CLASS['/'] = SLASH;
+
+        for (char c : ";,()[]{}+-*%<>=!".toCharArray()) {
+            CHAR_CLASS[c] = OPERATOR;
+            SINGLE_OP[c] = TokenTypeUtil.trans2Type(c);
+        }
+        for (char c : "<>=!".toCharArray()) {
+            PAIR_SECOND[c] = '=';
+            PAIR_OP[c] = TokenTypeUtil.trans2Type(c, '=');
+        }
+        for (char c : "&|".toCharArray()) {
+            CHAR_CLASS[c] = OPERATOR;
+            PAIR_SECOND[c] = c;
+            PAIR_OP[c] = TokenTypeUtil.trans2Type(c, c);
+            PAIR_ONLY[c] = true;
+        }
+
+        for (String keyword : KEYWORDS) {
+            int slot = keywordHash(keyword.charAt(0), keyword.charAt(keyword.length() - 1), keyword.length());
+            if (KEYWORD_TABLE[slot] != null) {
+                throw new RuntimeException("Keyword hash collision: " + keyword + " and " + KEYWORD_TABLE[slot]);
+            }
+            KEYWORD_TABLE[slot] = keyword;
+            KEYWORD_TYPE_TABLE[slot] = TokenTypeUtil.trans2Type(keyword);
+        }
+    }
+
+    private final char[] source;
+    private final TokenStore tokens;
+    private int line;
+    // 为 false 时不登记 SINGLE_LOGIC_OP，由调用方根据 Token 自行判定，见 ParallelLexer
+    private final boolean reportErrors;
+    // 是否因无法识别的字符而停止
+    private boolean stopped;
+
+    public TableLexer(char[] source, TokenStore tokens, int line) {
+        this(source, tokens, line, true);
+    }
+
+    public TableLexer(char[] source, TokenStore tokens, int line, boolean reportErrors) {
+        this.source = source;
+        this.tokens = tokens;
+        this.line = line;
+        this.reportErrors = reportErrors;
+        this.stopped = false;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * 首字符、尾字符和长度上的完美哈希，对 SysY 的 12 个关键字无冲突
+     */
+    private static int keywordHash(char first, char last, int length) {
+        return (first + 4 * last + length) & (KEYWORD_TABLE_SIZE - 1);
+    }
+
+    private static byte classOf(char c) {
+        if (c < 128) {
+            return CHAR_CLASS[c];
+        }
+        // 非 ASCII 字符沿用 Character 的判定
+        if (Character.isLetter(c)) {
+            return LETTER;
+        }
+        return Character.isDigit(c) ? DIGIT : OTHER;
+    }
+
+    private TokenType keywordOrIdent(int start, int length) {
+        int slot = keywordHash(source[start], source[start + length - 1], length);
+        String keyword = KEYWORD_TABLE[slot];
+        if (keyword == null || keyword.length() != length) {
+            return TokenType.IDENFR;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyword.charAt(i) != source[start + i]) {
+                return TokenType.IDENFR;
+            }
+        }
+        return KEYWORD_TYPE_TABLE[slot];
+    }
+
+    /**
+     * 扫描整个源程序，遇到无法识别的字符时停止，与原实现返回 EOF 的行为一致
+     * @return 扫描结束时的行号
+     */
+    public int scan() {
+        scanRange(0, source.length);
+        return line;
+    }
+
+    /**
+     * 扫描起点位于 [begin, end) 的全部 Token、空白和注释；跨过 end 的字符串、注释照常读完
+     * @return 下一个待扫描的位置，可能大于 end；遇到无法识别的字符时返回该字符的位置并置 stopped
+     */
+    public int scanRange(int begin, int end) {
+        final char[] src = source;
+        int pos = begin;
+        while (pos < end) {
+            char c = src[pos];
+            int start = pos;
+            switch (classOf(c)) {
+                case BLANK -> pos++;
+                case NEWLINE -> {
+                    line++;
+                    pos++;
+                }
+                case LETTER -> {
+                    pos++;
+                    byte cls;
+                    while (pos < src.length && ((cls = classOf(src[pos])) == LETTER || cls == DIGIT)) {
+                        pos++;
+                    }
+                    tokens.add(keywordOrIdent(start, pos - start), start, pos - start, line);
+                }
+                case DIGIT -> {
+                    pos++;
+                    while (pos < src.length && classOf(src[pos]) == DIGIT) {
+                        pos++;
+                    }
+                    tokens.add(TokenType.INTCON, start, pos - start, line);
+                }
+                case QUOTE -> {
+                    pos++;
+                    while (pos < src.length && src[pos] != '"') {
+                        pos++;
+                    }
+                    pos = Math.min(pos + 1, src.length);
+                    tokens.add(TokenType.STRCON, start, pos - start, line);
+                }
+                case SLASH -> pos = scanSlash(pos);
+                case OPERATOR -> pos = scanOperator(pos);
+                default -> {
+                    stopped = true;
+                    return pos;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private int scanOperator(int pos) {
+        final char[] src = source;
+        int start = pos;
+        char first = src[pos++];
+        char second = pos < src.length ? src[pos] : '\uFFFF';
+        if (PAIR_ONLY[first]) {
+            // 与原实现一致：第二个字符无论是否匹配都被吞掉
+            if (second != first && reportErrors) {
+                ErrorRecorder.getErrorRecorder().addError(new Error(ErrorType.SINGLE_LOGIC_OP, line));
+            }
+            pos = Math.min(pos + 1, src.length);
+            tokens.add(PAIR_OP[first], start, pos - start, line);
+        } else if (PAIR_OP[first] != null && second == PAIR_SECOND[first]) {
+            pos++;
+            tokens.add(PAIR_OP[first], start, pos - start, line);
+        } else {
+            tokens.add(SINGLE_OP[first], start, pos - start, line);
+        }
+        return pos;
+    }
+
+    private int scanSlash(int pos) {
+        final char[] src = source;
+        final int end = src.length;
+        int start = pos++;
+        char next = pos < end ? src[pos] : '\uFFFF';
+        if (next == '/') {
+            // 单行注释，换行符留给主循环计数
+            while (pos < end && src[pos] != '\n') {
+                pos++;
+            }
+        } else if (next == '*') {
+            // 多行注释；与原实现一致，注释内的换行不计入行号
+            pos++;
+            while (pos < end) {
+                if (src[pos] == '*' && pos + 1 < end && src[pos + 1] == '/') {
+                    return pos + 2;
+                }
+                pos++;
+            }
+        } else {
+            tokens.add(TokenType.DIV, start, 1, line);
+        }
+        return pos;
+    }
+}
@@ -1,14 +1,23 @@
 package frontend.lexer;
 
+import java.io.IOException;
+
 public class Token {
     private final TokenType type;
     private final String content;
     private final int lineId;
+    // 在 TokenStore 中的下标，语法分析错误恢复时补出的 Token 为 -1
+    private final int index;
 
     public Token(TokenType type, String content, int lineId) {
+        this(type, content, lineId, -1);
+    }
+
+    public Token(TokenType type, String content, int lineId, int index) {
         this.type = type;
         this.content = content;
         this.lineId = lineId;
+        this.index = index;
     }
 
     public TokenType getType() {
@@ -23,6 +32,10 @@ public class Token {
         return this.lineId;
     }
 
+    public int getIndex() {
+        return this.index;
+    }
+
     @Override
     public String toString() {
         return this.content;
@@ -31,4 +44,11 @@ public class Token {
     public String info() {
         return this.type + " " + this.content + "\n"; 
     }
+
+    /**
+     * 将 info() 的内容直接写入 out
+     */
+    public void emit(Appendable out) throws IOException {
+        out.append(this.type.toString()).append(' ').append(this.content).append('\n');
+    }
 }
@@ -0,0 +1,232 @@
+package frontend.lexer;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 紧凑的 Token 存储
+ * 词法分析只向并列的 int 数组写入类型、起始下标、长度和行号，文本直接引用源程序字符数组；
+ * Token 对象和标识符字符串只在语法分析真正取用时才创建，标识符按内容驻留
+ */
+public class TokenStore {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final char[] source;
+    private int[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+    // 已创建的 Token，保证同一位置多次取用得到同一对象
+    private Token[] tokens;
+    // 标识符驻留表，开放定址
+    private String[] internTable;
+    private int internCount;
+
+    public TokenStore(char[] source) {
+        this.source = source;
+        this.types = new int[INITIAL_CAPACITY];
+        this.starts = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.lines = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.tokens = new Token[0];
+        this.internTable = new String[256];
+        this.internCount = 0;
+    }
+
+    public void add(TokenType type, int start, int length, int line) {
+        if (size == types.length) {
+            int capacity = size << 1;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    /**
+     * 追加 other 中下标 [from, to) 的 Token，行号加上 lineDelta；两者须引用同一源程序
+     */
+    public void appendRange(TokenStore other, int from, int to, int lineDelta) {
+        appendRange(other, from, to, lineDelta, 0);
+    }
+
+    /**
+     * 同上，起始下标再加上 startDelta；other 可以引用另一份源程序，只要这些 Token 的文本在两者中平移 startDelta 后相同
+     */
+    void appendRange(TokenStore other, int from, int to, int lineDelta, int startDelta) {
+        int count = to - from;
+        if (size + count > types.length) {
+            int capacity = Math.max(types.length << 1, size + count);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        System.arraycopy(other.types, from, types, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        for (int i = 0; i < count; i++) {
+            starts[size + i] = other.starts[from + i] + startDelta;
+            lines[size + i] = other.lines[from + i] + lineDelta;
+        }
+        size += count;
+    }
+
+    /**
+     * 把 old 中下标 [from, to) 已创建的 Token 放入本存储的缓存；这些位置须已由 appendRange 不加平移地写入，
+     * Token 不可变，两个存储共用同一对象
+     */
+    void shareTokens(TokenStore old, int from, int to) {
+        Token[] cache = old.tokens;
+        int limit = Math.min(to, cache.length);
+        for (int i = from; i < limit; i++) {
+            if (cache[i] == null) {
+                continue;
+            }
+            if (i >= tokens.length) {
+                tokens = Arrays.copyOf(tokens, Math.max(size, i + 1));
+            }
+            tokens[i] = cache[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public TokenType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Token 的文本；关键字和运算符使用固定拼写，标识符驻留，其余按源程序切片
+     */
+    public String getText(int index) {
+        TokenType type = getType(index);
+        return switch (type) {
+            case IDENFR -> intern(starts[index], lengths[index]);
+            case INTCON, STRCON -> new String(source, starts[index], lengths[index]);
+            default -> TokenTypeUtil.getSpelling(type);
+        };
+    }
+
+    public Token getToken(int index) {
+        Token[] cache = tokens;
+        if (index < cache.length && cache[index] != null) {
+            return cache[index];
+        }
+        return createToken(index);
+    }
+
+    /**
+     * 创建并缓存 Token；加锁使并行语法分析的多个线程可以同时取用，Token 的字段均为 final，读缓存无需加锁
+     */
+    private synchronized Token createToken(int index) {
+        if (index >= tokens.length) {
+            tokens = Arrays.copyOf(tokens, Math.max(size, 1));
+        }
+        Token token = tokens[index];
+        if (token == null) {
+            token = new Token(getType(index), getText(index), lines[index], index);
+            tokens[index] = token;
+        }
+        return token;
+    }
+
+    /**
+     * 物化全部 Token，供需要 List<Token> 的调用方使用
+     */
+    public List<Token> toTokenList() {
+        List<Token> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(getToken(i));
+        }
+        return list;
+    }
+
+    /**
+     * 以 lexer.txt 格式输出，文本直接从源程序数组写出，不创建 Token
+     */
+    public void emit(Appendable out) throws IOException {
+        CharSequence chars = CharBuffer.wrap(source);
+        for (int i = 0; i < size; i++) {
+            TokenType type = getType(i);
+            out.append(type.toString()).append(' ');
+            switch (type) {
+                case IDENFR, INTCON, STRCON -> out.append(chars, starts[i], starts[i] + lengths[i]);
+                default -> out.append(TokenTypeUtil.getSpelling(type));
+            }
+            out.append('\n');
+        }
+    }
+
+    private synchronized String intern(int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + source[i];
+        }
+        int mask = internTable.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (internTable[slot] != null) {
+            String candidate = internTable[slot];
+            if (candidate.length() == length && regionEquals(candidate, start)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        String string = new String(source, start, length);
+        internTable[slot] = string;
+        if (++internCount * 2 > internTable.length) {
+            rehash();
+        }
+        return string;
+    }
+
+    private boolean regionEquals(String candidate, int start) {
+        for (int i = 0; i < candidate.length(); i++) {
+            if (candidate.charAt(i) != source[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] old = internTable;
+        internTable = new String[old.length << 1];
+        int mask = internTable.length - 1;
+        for (String string : old) {
+            if (string == null) {
+                continue;
+            }
+            int hash = string.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (internTable[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            internTable[slot] = string;
+        }
+    }
+}
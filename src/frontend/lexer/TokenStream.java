@@ -5,16 +5,33 @@ import java.util.List;
 import java.util.Stack;
 
 public class TokenStream {
-    private final ArrayList<Token> tokens;
+    private static final Token EOF_TOKEN = new Token(TokenType.EOF, "eof", -1);
+
+    private final TokenStore tokens;
     private int index;
     private final Stack<Integer> prePeekStack;
 
-    public TokenStream(ArrayList<Token> tokens) {
+    public TokenStream(TokenStore tokens) {
+        this(tokens, 0);
+    }
+
+    /**
+     * 从下标 index 处开始读取的 Token 流，窥视仍可越过起点之后的任意位置
+     */
+    public TokenStream(TokenStore tokens, int index) {
         this.tokens = tokens;
-        this.index = 0;
+        this.index = index;
         this.prePeekStack = new Stack<>();
     }
 
+    public TokenStore getTokenStore() {
+        return tokens;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
     public void next() {
         if(this.index>=tokens.size()) {
             return;
@@ -36,7 +53,7 @@ public class TokenStream {
     }
 
     public int getLastTokenLineId() {
-        if(this.index > 1)  return this.tokens.get(this.index-1).getLineId();
+        if(this.index > 1)  return this.tokens.getLine(this.index-1);
         else return -1;
     }
 
@@ -44,7 +61,7 @@ public class TokenStream {
     public List<Token> getLast10Tokens() {
         ArrayList<Token> last10Tokens = new ArrayList<>();
         for(int i=6;i>=-10;i--) {
-            last10Tokens.add(this.tokens.get(index-i));
+            last10Tokens.add(this.tokens.getToken(index-i));
         }
         return last10Tokens;
     }
@@ -52,9 +69,19 @@ public class TokenStream {
     public Token peek(int peekStep) {
         if(this.index + peekStep >= this.tokens.size()) {
             // 这里读取到token流的末尾返回错误的Token
-            return new Token(TokenType.EOF,"eof",-1);
+            return EOF_TOKEN;
         }
         // 窥视不入栈
-        return this.tokens.get(this.index + peekStep);
+        return this.tokens.getToken(this.index + peekStep);
+    }
+
+    /**
+     * 只取类型的窥视，不创建 Token 对象
+     */
+    public TokenType peekType(int peekStep) {
+        if(this.index + peekStep >= this.tokens.size()) {
+            return TokenType.EOF;
+        }
+        return this.tokens.getType(this.index + peekStep);
     }
 }
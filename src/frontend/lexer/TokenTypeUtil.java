@@ -1,11 +1,16 @@
 package frontend.lexer;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
 public class TokenTypeUtil {
     private static final Map<String, TokenType> stringMap = new HashMap<>();
     private static final Map<Character, TokenType> charMap = new HashMap<>();
+    // 关键字和运算符的固定拼写
+    private static final Map<TokenType, String> spellingMap = new EnumMap<>(TokenType.class);
+    private static final String[] keywords;
+    private static final TokenType[] keywordTypes;
 
     static {
         // 关键字
@@ -46,6 +51,19 @@ public class TokenTypeUtil {
         charMap.put('=', TokenType.ASSIGN);
         charMap.put('<', TokenType.LSS);
         charMap.put('>', TokenType.GRE);
+
+        for (Map.Entry<String, TokenType> entry : stringMap.entrySet()) {
+            spellingMap.put(entry.getValue(), entry.getKey());
+        }
+        for (Map.Entry<Character, TokenType> entry : charMap.entrySet()) {
+            spellingMap.put(entry.getValue(), String.valueOf(entry.getKey()));
+        }
+        keywords = stringMap.keySet().stream()
+                .filter(key -> Character.isLetter(key.charAt(0))).sorted().toArray(String[]::new);
+        keywordTypes = new TokenType[keywords.length];
+        for (int i = 0; i < keywords.length; i++) {
+            keywordTypes[i] = stringMap.get(keywords[i]);
+        }
     }
 
     public static TokenType trans2Type(String str) {
@@ -69,6 +87,52 @@ public class TokenTypeUtil {
         };
     }
 
+    /**
+     * 标识符或关键字，直接比较源程序中的字符区间，不创建字符串
+     */
+    public static TokenType trans2Type(char[] source, int start, int length) {
+        for (int i = 0; i < keywords.length; i++) {
+            String keyword = keywords[i];
+            if (keyword.length() != length) {
+                continue;
+            }
+            int j = 0;
+            while (j < length && keyword.charAt(j) == source[start + j]) {
+                j++;
+            }
+            if (j == length) {
+                return keywordTypes[i];
+            }
+        }
+        return TokenType.IDENFR;
+    }
+
+    /**
+     * 双字符运算符 <= >= == != && ||
+     */
+    public static TokenType trans2Type(char first, char second) {
+        if (second == '=') {
+            switch (first) {
+                case '<': return TokenType.LEQ;
+                case '>': return TokenType.GEQ;
+                case '=': return TokenType.EQL;
+                case '!': return TokenType.NEQ;
+                default: break;
+            }
+        } else if (first == second) {
+            if (first == '&') return TokenType.AND;
+            if (first == '|') return TokenType.OR;
+        }
+        return TokenType.IDENFR;
+    }
+
+    /**
+     * 关键字和运算符的文本，其余类型返回 null
+     */
+    public static String getSpelling(TokenType type) {
+        return spellingMap.get(type);
+    }
+
     public static TokenType trans2Type(char c) {
         return charMap.getOrDefault(c, TokenType.IDENFR);
     }
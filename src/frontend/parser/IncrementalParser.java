@@ -0,0 +1,220 @@
+package frontend.parser;
+
+import error.Error;
+import error.ErrorRecorder;
+import frontend.ast.ASTNode;
+import frontend.ast.AstCopier;
+import frontend.ast.CompUnit;
+import frontend.ast.Decl;
+import frontend.ast.FuncDef;
+import frontend.ast.MainFuncDef;
+import frontend.lexer.IncrementalLexer;
+import frontend.lexer.TokenStore;
+import frontend.lexer.TokenStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编辑—编译循环中的增量语法分析
+ * 记住上一次每个顶层成分（声明、函数定义、主函数）占据的 Token 区间、子树和语法错误。
+ * IncrementalLexer 给出新旧 Token 序列相同的前缀和平移复用的后缀后，完全落在前缀中（连同窥视的 Token）
+ * 或后缀中的无错误成分复用子树，只有夹在中间、包含改动的区间按 parseCompUnit 的顺序重新解析。
+ * 复用的子树按新的 Token 存储复制一份，上一次返回的语法树和 Token 都不被修改。
+ * 串行解析器的状态只有 Token 下标和所处阶段，因此重新解析恰好结束在第一个复用成分的起点、
+ * 且复用成分与所处阶段相符时，结果与整体重新解析完全一致；否则退回到整体重新解析
+ */
+public class IncrementalParser {
+    // Parser 至多窥视到当前位置之后第 2 个 Token
+    private static final int LOOKAHEAD = 2;
+
+    private List<Segment> segments;
+
+    /**
+     * 按 lexer 最近一次更新的结果解析 tokens，登记语法错误
+     * 返回的语法树不与上一次返回的 CompUnit 共享节点
+     */
+    public CompUnit update(TokenStore tokens, IncrementalLexer lexer) {
+        List<Segment> updated = null;
+        if (segments != null) {
+            updated = reparse(tokens, lexer);
+        }
+        if (updated == null) {
+            updated = new ArrayList<>();
+            parseRegion(tokens, 0, Integer.MAX_VALUE, Phase.DECL, updated);
+        }
+        segments = updated;
+
+        CompUnit compUnit = new CompUnit();
+        ErrorRecorder recorder = ErrorRecorder.getErrorRecorder();
+        for (Segment segment : updated) {
+            switch (segment.kind) {
+                case DECL -> compUnit.addDeclaration((Decl) segment.node);
+                case FUNC_DEF -> compUnit.addFunctionDefinition((FuncDef) segment.node);
+                case MAIN_FUNC_DEF -> compUnit.setMainFunction((MainFuncDef) segment.node);
+            }
+            for (Error error : segment.errors) {
+                recorder.addError(error);
+            }
+        }
+        return compUnit;
+    }
+
+    /**
+     * 丢弃记住的成分，下一次整体解析；解析中途抛出异常后调用
+     */
+    public void reset() {
+        segments = null;
+    }
+
+    /**
+     * @return 新的成分序列；无法保证与整体解析一致时返回 null
+     */
+    private List<Segment> reparse(TokenStore tokens, IncrementalLexer lexer) {
+        int firstRelexed = lexer.getFirstRelexed();
+        int firstReused = lexer.getFirstReused();
+        int shift = lexer.getFirstShifted() - firstReused;
+
+        int prefix = 0;
+        while (prefix < segments.size() && segments.get(prefix).errors.isEmpty()
+                && segments.get(prefix).end + LOOKAHEAD < firstRelexed) {
+            prefix++;
+        }
+        int suffix = segments.size();
+        while (suffix > prefix && segments.get(suffix - 1).errors.isEmpty()
+                && segments.get(suffix - 1).begin >= firstReused) {
+            suffix--;
+        }
+
+        List<Segment> updated = new ArrayList<>();
+        Phase phase = Phase.DECL;
+        for (int i = 0; i < prefix; i++) {
+            Segment segment = reuse(tokens, segments.get(i), 0);
+            updated.add(segment);
+            phase = segment.kind.next;
+        }
+        int begin = prefix == 0 ? 0 : segments.get(prefix - 1).end;
+        int end = suffix == segments.size() ? Integer.MAX_VALUE : segments.get(suffix).begin + shift;
+        phase = parseRegion(tokens, begin, end, phase, updated);
+        if (end != Integer.MAX_VALUE && (phase == Phase.DONE || lastEnd(updated, begin) != end)) {
+            return null;
+        }
+
+        for (int i = suffix; i < segments.size(); i++) {
+            Segment segment = reuse(tokens, segments.get(i), shift);
+            phase = enter(tokens, segment, phase);
+            if (phase == null) {
+                return null;
+            }
+            updated.add(segment);
+        }
+        return updated;
+    }
+
+    /**
+     * 复制 old 的子树，其中的 Token 换成 tokens 中下标平移 shift 后的 Token；错误恢复补出的 Token 原样保留
+     */
+    private static Segment reuse(TokenStore tokens, Segment old, int shift) {
+        ASTNode node = AstCopier.copy(old.node,
+                token -> token.getIndex() < 0 ? token : tokens.getToken(token.getIndex() + shift));
+        return new Segment(old.kind, old.begin + shift, old.end + shift, node, old.errors);
+    }
+
+    private static int lastEnd(List<Segment> segments, int begin) {
+        return segments.isEmpty() ? begin : Math.max(begin, segments.get(segments.size() - 1).end);
+    }
+
+    /**
+     * 串行解析在 phase 阶段遇到 segment 起点时是否会解析出同类成分
+     * @return 解析该成分之后的阶段；不相符时返回 null
+     */
+    private static Phase enter(TokenStore tokens, Segment segment, Phase phase) {
+        Parser parser = new Parser(new TokenStream(tokens, segment.begin), new ArrayList<>());
+        if (phase == Phase.DECL && segment.kind != SegmentKind.DECL) {
+            if (parser.isDecl()) {
+                return null;
+            }
+            phase = Phase.FUNC_DEF;
+        }
+        if (phase == Phase.FUNC_DEF && segment.kind == SegmentKind.MAIN_FUNC_DEF) {
+            if (parser.isFuncDef()) {
+                return null;
+            }
+            phase = Phase.MAIN_FUNC_DEF;
+        }
+        return segment.kind.phase == phase ? segment.kind.next : null;
+    }
+
+    /**
+     * 从 begin 起按 parseCompUnit 的顺序解析顶层成分，直到下标到达 end 或主函数解析完毕
+     * @return 结束时所处的阶段
+     */
+    private static Phase parseRegion(TokenStore tokens, int begin, int end, Phase phase, List<Segment> out) {
+        TokenStream stream = new TokenStream(tokens, begin);
+        while (phase != Phase.DONE && stream.getIndex() < end) {
+            int start = stream.getIndex();
+            List<Error> errors = new ArrayList<>();
+            Parser parser = new Parser(stream, errors);
+            switch (phase) {
+                case DECL -> {
+                    if (!parser.isDecl()) {
+                        phase = Phase.FUNC_DEF;
+                        continue;
+                    }
+                    out.add(new Segment(SegmentKind.DECL, start, 0, parser.parseDecl(), errors));
+                }
+                case FUNC_DEF -> {
+                    if (!parser.isFuncDef()) {
+                        phase = Phase.MAIN_FUNC_DEF;
+                        continue;
+                    }
+                    out.add(new Segment(SegmentKind.FUNC_DEF, start, 0, parser.parseFuncDef(), errors));
+                }
+                default -> {
+                    out.add(new Segment(SegmentKind.MAIN_FUNC_DEF, start, 0, parser.parseMainFuncDef(), errors));
+                    phase = Phase.DONE;
+                }
+            }
+            out.get(out.size() - 1).end = stream.getIndex();
+        }
+        return phase;
+    }
+
+    private enum Phase {
+        DECL, FUNC_DEF, MAIN_FUNC_DEF, DONE
+    }
+
+    private enum SegmentKind {
+        DECL(Phase.DECL, Phase.DECL),
+        FUNC_DEF(Phase.FUNC_DEF, Phase.FUNC_DEF),
+        MAIN_FUNC_DEF(Phase.MAIN_FUNC_DEF, Phase.DONE);
+
+        // 解析该成分时所处的阶段及之后的阶段
+        private final Phase phase;
+        private final Phase next;
+
+        SegmentKind(Phase phase, Phase next) {
+            this.phase = phase;
+            this.next = next;
+        }
+    }
+
+    /**
+     * 一个顶层成分：Token 区间 [begin, end)、子树和解析时产生的错误
+     */
+    private static class Segment {
+        private final SegmentKind kind;
+        private final int begin;
+        private int end;
+        private final ASTNode node;
+        private final List<Error> errors;
+
+        Segment(SegmentKind kind, int begin, int end, ASTNode node, List<Error> errors) {
+            this.kind = kind;
+            this.begin = begin;
+            this.end = end;
+            this.node = node;
+            this.errors = errors;
+        }
+    }
+}
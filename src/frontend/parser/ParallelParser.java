@@ -0,0 +1,191 @@
+package frontend.parser;
+
+import driver.CompilationContext;
+import driver.telemetry.Telemetry;
+import error.Error;
+import error.ErrorRecorder;
+import frontend.ast.CompUnit;
+import frontend.ast.Decl;
+import frontend.ast.FuncDef;
+import frontend.ast.MainFuncDef;
+import frontend.lexer.TokenStore;
+import frontend.lexer.TokenStream;
+import frontend.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 顶层成分的并行语法分析
+ * 先用花括号配对预扫描 Token 数组，把 CompUnit 切成声明段、各个函数定义和主函数三类区间；
+ * 每个区间由独立的 ForkJoin 任务用私有的 Parser 和 TokenStream 解析，错误暂存在任务内，
+ * 全部成功后按源程序顺序拼装 CompUnit 并登记错误。
+ * 串行解析器的状态只有 Token 下标，因此只要每个区间恰好在下一个区间的起点结束，结果就与串行解析完全一致；
+ * 否则（语法错误使切分失准或解析抛出异常）返回 null，由 Parser 回退到串行解析
+ */
+public class ParallelParser {
+    // 函数定义少于该数量时并行没有收益
+    private static final int MIN_FUNCTIONS = 2;
+
+    /**
+     * @return 拼装好的 CompUnit；无法保证与串行结果一致时返回 null
+     */
+    public static CompUnit parse(TokenStore tokens) {
+        // 只有一个工作线程时切分只会增加开销
+        if (ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return null;
+        }
+        List<Integer> starts = splitTopLevel(tokens);
+        if (starts == null || starts.size() - 1 < MIN_FUNCTIONS) {
+            return null;
+        }
+
+        // starts 依次为各函数定义的起点，最后一个是主函数的起点
+        CompilationContext context = CompilationContext.current();
+        List<Segment> segments = new ArrayList<>();
+        int firstStart = starts.get(0);
+        if (firstStart > 0) {
+            segments.add(new Segment(context, SegmentKind.DECLS, tokens, 0, firstStart));
+        }
+        for (int i = 0; i + 1 < starts.size(); i++) {
+            segments.add(new Segment(context, SegmentKind.FUNC_DEF, tokens, starts.get(i), starts.get(i + 1)));
+        }
+        segments.add(new Segment(context, SegmentKind.MAIN_FUNC_DEF, tokens, starts.get(starts.size() - 1), tokens.size()));
+
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(segments);
+            }
+        });
+
+        for (Segment segment : segments) {
+            if (!segment.succeeded) {
+                return null;
+            }
+        }
+        CompUnit compUnit = new CompUnit();
+        ErrorRecorder recorder = ErrorRecorder.getErrorRecorder();
+        for (Segment segment : segments) {
+            for (Decl decl : segment.decls) {
+                compUnit.addDeclaration(decl);
+            }
+            if (segment.funcDef != null) {
+                compUnit.addFunctionDefinition(segment.funcDef);
+            }
+            if (segment.mainFuncDef != null) {
+                compUnit.setMainFunction(segment.mainFuncDef);
+            }
+            for (Error error : segment.errors) {
+                recorder.addError(error);
+            }
+        }
+        return compUnit;
+    }
+
+    /**
+     * 在花括号深度为 0、且前一个 Token 是 ';' 或 '}' 的位置识别函数定义和主函数的起点
+     * @return 各函数定义的起点，末尾附主函数的起点；找不到主函数时返回 null
+     */
+    private static List<Integer> splitTopLevel(TokenStore tokens) {
+        List<Integer> starts = new ArrayList<>();
+        int size = tokens.size();
+        int depth = 0;
+        for (int i = 0; i < size; i++) {
+            TokenType type = tokens.getType(i);
+            if (type == TokenType.LBRACE) {
+                depth++;
+                continue;
+            }
+            if (type == TokenType.RBRACE) {
+                depth--;
+                continue;
+            }
+            if (depth != 0 || !(i == 0 || tokens.getType(i - 1) == TokenType.SEMICN
+                    || tokens.getType(i - 1) == TokenType.RBRACE)) {
+                continue;
+            }
+            TokenType second = i + 1 < size ? tokens.getType(i + 1) : TokenType.EOF;
+            TokenType third = i + 2 < size ? tokens.getType(i + 2) : TokenType.EOF;
+            if (type == TokenType.INTTK && second == TokenType.MAINTK) {
+                starts.add(i);
+                return starts;
+            }
+            if ((type == TokenType.VOIDTK || type == TokenType.INTTK)
+                    && second == TokenType.IDENFR && third == TokenType.LPARENT) {
+                starts.add(i);
+            }
+        }
+        return null;
+    }
+
+    private enum SegmentKind {
+        DECLS, FUNC_DEF, MAIN_FUNC_DEF
+    }
+
+    /**
+     * 一个顶层区间的解析任务
+     */
+    @SuppressWarnings("serial")
+    private static class Segment extends RecursiveAction {
+        private final CompilationContext context;
+        private final SegmentKind kind;
+        private final TokenStore tokens;
+        private final int begin;
+        private final int end;
+        private final List<Decl> decls = new ArrayList<>();
+        private final List<Error> errors = new ArrayList<>();
+        private FuncDef funcDef;
+        private MainFuncDef mainFuncDef;
+        private boolean succeeded;
+
+        Segment(CompilationContext context, SegmentKind kind, TokenStore tokens, int begin, int end) {
+            this.context = context;
+            this.kind = kind;
+            this.tokens = tokens;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            context.run(() -> Telemetry.getTelemetry().worker(() -> {
+                try {
+                    succeeded = parseSegment();
+                } catch (RuntimeException e) {
+                    succeeded = false;
+                }
+            }));
+        }
+
+        private boolean parseSegment() {
+            TokenStream stream = new TokenStream(tokens, begin);
+            Parser parser = new Parser(stream, errors);
+            switch (kind) {
+                case DECLS -> {
+                    while (parser.isDecl()) {
+                        decls.add(parser.parseDecl());
+                    }
+                }
+                case FUNC_DEF -> {
+                    if (!parser.isFuncDef()) {
+                        return false;
+                    }
+                    funcDef = parser.parseFuncDef();
+                }
+                case MAIN_FUNC_DEF -> {
+                    // 串行解析在函数定义循环结束后才解析主函数，起点处不能再被识别为声明或函数定义
+                    if (parser.isDecl() || parser.isFuncDef()) {
+                        return false;
+                    }
+                    mainFuncDef = parser.parseMainFuncDef();
+                    return true;
+                }
+            }
+            return stream.getIndex() == end;
+        }
+    }
+}
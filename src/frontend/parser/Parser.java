@@ -1,5 +1,6 @@
 package frontend.parser;
 
+import driver.CompilationContext;
 import error.Error;
 import error.ErrorRecorder;
 import error.ErrorType;
@@ -9,6 +10,9 @@ import frontend.lexer.TokenStream;
 import frontend.lexer.TokenType;
 import utils.ParserWrapper;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -18,18 +22,21 @@ import java.util.List;
 public class Parser {
     private TokenStream tokenStream;
     private CompUnit rootNode;
+    // 不为 null 时错误先暂存于此，由 ParallelParser 按源程序顺序登记
+    private final List<Error> errorBuffer;
 
     public Parser() {
-        this.tokenStream = null;
-        this.rootNode = null;
+        this(null, null);
     }
 
-    private static class Holder {
-        private static final Parser INSTANCE = new Parser();
+    Parser(TokenStream tokenStream, List<Error> errorBuffer) {
+        this.tokenStream = tokenStream;
+        this.rootNode = null;
+        this.errorBuffer = errorBuffer;
     }
 
     public static Parser getParser() {
-        return Holder.INSTANCE;
+        return CompilationContext.current().getComponent(Parser.class, Parser::new);
     }
 
     public void setTokenStream(TokenStream tokenStream) {
@@ -43,9 +50,40 @@ public class Parser {
         if (tokenStream == null) {
             throw new RuntimeException("TokenStream not set");
         }
+        if (CompilationContext.current().getOptions().isParallelParse()) {
+            rootNode = ParallelParser.parse(tokenStream.getTokenStore());
+            if (rootNode != null) {
+                return;
+            }
+            // 预切分与实际语法不符，回退到串行解析
+            tokenStream = new TokenStream(tokenStream.getTokenStore());
+        }
         rootNode = parseCompUnit();
     }
     
+    /**
+     * 语法制导翻译：每归约出一个顶层成分就交给 translator，不构建 CompUnit，getAST 返回 null
+     */
+    public void parse(Translator translator) {
+        if (tokenStream == null) {
+            throw new RuntimeException("TokenStream not set");
+        }
+        while (isDecl()) {
+            translator.translateDecl(parseDecl());
+        }
+        while (isFuncDef()) {
+            translator.translateFuncDef(parseFuncDef());
+        }
+        translator.translateMainFuncDef(parseMainFuncDef());
+    }
+    
+    /**
+     * 直接采用已经构建好的AST，增量编译时由 IncrementalParser 给出
+     */
+    public void setAST(CompUnit compUnit) {
+        this.rootNode = compUnit;
+    }
+
     /**
      * 获取生成的AST根节点
      */
@@ -66,36 +104,14 @@ public class Parser {
      * 获取当前token类型
      */
     private TokenType getCurrentTokenType() {
-        Token token = getCurrentToken();
-        return token != null ? token.getType() : TokenType.EOF;
+        return tokenStream.peekType(0);
     }
     
     /**
-     * 向前查看n个token
-     */
-    private Token peek(int n) {
-        return tokenStream.peek(n);
-    }
-
-    /**
-     * 存储当前位置入栈
-     */
-    private void pushFlagIndex() {
-        tokenStream.pushFlagIndex();
-    }
-
-    /**
-     * 弹栈并回退
+     * 向前查看n个token的类型
      */
-    private int rollback() {
-        return tokenStream.rollback();
-    }
-
-    /**
-     * 弹栈但不回退
-     */
-    private void justPop() {
-        tokenStream.pop();
+    private TokenType peekType(int n) {
+        return tokenStream.peekType(n);
     }
 
     /**
@@ -178,7 +194,7 @@ public class Parser {
      * 声明
      * Decl → ConstDecl | VarDecl
      */
-    private Decl parseDecl() {
+    Decl parseDecl() {
         if (match(TokenType.CONSTTK)) {
             return parseConstDecl();
         } else {
@@ -362,7 +378,7 @@ public class Parser {
      * 函数定义
      * FuncDef → FuncType Ident '(' [FuncFParams] ')' Block //j
      */
-    private FuncDef parseFuncDef() {
+    FuncDef parseFuncDef() {
         FuncDef funcDef = new FuncDef();
         
         // 解析函数类型
@@ -402,7 +418,7 @@ public class Parser {
      * 主函数定义
      * MainFuncDef → 'int' 'main' '(' ')' Block //j
      */
-    private MainFuncDef parseMainFuncDef() {
+    MainFuncDef parseMainFuncDef() {
         MainFuncDef mainFuncDef = new MainFuncDef();
         
         // 消费 'int'
@@ -567,26 +583,39 @@ public class Parser {
      * 赋值语句或函数调用
      */
     private Stmt parseAssignmentOrExprStmt() {
-        pushFlagIndex();
-        ErrorRecorder.getErrorRecorder().negative();
+        // 只解析一遍：先按表达式解析，若其后是 '='，该表达式只由一个 LVal 构成，直接取出作为左值
         Exp exp = parseExp();
-        ErrorRecorder.getErrorRecorder().positive();
-        if (match(TokenType.ASSIGN)) {
+        LVal lVal = match(TokenType.ASSIGN) ? extractLVal(exp) : null;
+        if (lVal != null) {
             // 赋值语句
-            rollback();
-            return new ParserWrapper.StmtWrapper(parseAssignmentStmt());
+            return new ParserWrapper.StmtWrapper(parseAssignmentStmt(lVal));
         } else {
-            rollback();
-            return new ParserWrapper.StmtWrapper(parseExprStmt());
+            return new ParserWrapper.StmtWrapper(parseExprStmt(exp));
+        }
+    }
+
+    /**
+     * 取出形如 Exp → AddExp → MulExp → UnaryExp → PrimaryExp → LVal 的单一左值，否则返回 null
+     */
+    private LVal extractLVal(Exp exp) {
+        if (!(exp instanceof ParserWrapper.ExpWrapper expWrapper)
+                || !(expWrapper.getWrappedNode() instanceof AddExp addExp)
+                || addExp.getOperands().size() != 1
+                || !(addExp.getOperands().get(0) instanceof MulExp mulExp)
+                || mulExp.getOperands().size() != 1
+                || !(mulExp.getOperands().get(0) instanceof UnaryExp unaryExp)
+                || !unaryExp.isPrimary()) {
+            return null;
         }
+        return unaryExp.getPrimaryExp().getPrimary() instanceof LVal lVal ? lVal : null;
     }
 
     /**
      * 赋值语句  //i
+     * 左值已由 parseAssignmentOrExprStmt 解析
      */
-    private AssignmentStmt parseAssignmentStmt() {
+    private AssignmentStmt parseAssignmentStmt(LVal lval) {
         AssignmentStmt assignmentStmt = new AssignmentStmt();
-        LVal lval = parseLVal();
         assignmentStmt.setLVal(lval);
         consume(assignmentStmt); // 消费 '='
         Exp exp = parseExp();
@@ -599,10 +628,16 @@ public class Parser {
      * 表达式语句  //i
      */
     private ExprStmt parseExprStmt() {
+        return parseExprStmt(match(TokenType.SEMICN) ? null : parseExp());
+    }
+
+    /**
+     * 表达式已解析（可能为空）的表达式语句
+     */
+    private ExprStmt parseExprStmt(Exp exp) {
         ExprStmt exprStmt = new ExprStmt();
 
-        if (!match(TokenType.SEMICN)) {
-            Exp exp = parseExp();
+        if (exp != null) {
             exprStmt.setExp(exp);
         }
 
@@ -787,7 +822,7 @@ public class Parser {
      * Exp → AddExp
      */
     private Exp parseExp() {
-        AddExp addExp = parseAddExp();
+        AddExp addExp = (AddExp) parseBinaryExp(ADD_LEVEL);
         return new ParserWrapper.ExpWrapper(addExp);
     }
 
@@ -797,192 +832,224 @@ public class Parser {
      */
     private CondExp parseCondExp() {
         CondExp condExp = new CondExp();
-        LOrExp lOrExp = parseLOrExp();
+        LOrExp lOrExp = (LOrExp) parseBinaryExp(LOR_LEVEL);
         condExp.setLOrExp(lOrExp);
         return condExp;
     }
     
+    // ==================== 表达式：优先级爬升 + 显式栈 ====================
+
+    // 二元运算符层级，数值越大优先级越低
+    private static final int MUL_LEVEL = 0;
+    private static final int ADD_LEVEL = 1;
+    private static final int REL_LEVEL = 2;
+    private static final int EQ_LEVEL = 3;
+    private static final int LAND_LEVEL = 4;
+    private static final int LOR_LEVEL = 5;
+
     /**
-     * 逻辑或表达式
-     * LOrExp → LAndExp  | LOrExp '||' LAndExp
-     * 这里产生了左递归，改写文法为
-     * LOrExp → LAndExp { '||' LAndExp }
+     * 运算符所在的层级，不是二元运算符时返回 -1
      */
-    private LOrExp parseLOrExp() {
-        LOrExp lOrExp = new LOrExp();
-        LAndExp lAndExp = parseLAndExp();
-        lOrExp.addLAndExp(lAndExp);
-        while(match(TokenType.OR)) {
-            Token op = getCurrentToken();
-            lOrExp.addOperator(op);
-            consumeToken();
-            lAndExp = parseLAndExp();
-            lOrExp.addLAndExp(lAndExp);
-        }
-        return (LOrExp) lOrExp.buildLeftAssociativeTree();
+    private static int binaryLevel(TokenType type) {
+        return switch (type) {
+            case MULT, DIV, MOD -> MUL_LEVEL;
+            case PLUS, MINU -> ADD_LEVEL;
+            case LSS, LEQ, GRE, GEQ -> REL_LEVEL;
+            case EQL, NEQ -> EQ_LEVEL;
+            case AND -> LAND_LEVEL;
+            case OR -> LOR_LEVEL;
+            default -> -1;
+        };
     }
-    
-    /**
-     * 逻辑与表达式
-     * 原文法产生了左递归，改写文法为
-     * LAndExp → EqExp { '&&' EqExp }
-     */
-    private LAndExp parseLAndExp() {
-        LAndExp lAndExp = new LAndExp();
-        EqExp eqExp = parseEqExp();
-        lAndExp.addEqExp(eqExp);
-        while (match(TokenType.AND)) {
-            Token op = getCurrentToken();
-            lAndExp.addOperator(op);
-            consumeToken();
-            eqExp = parseEqExp();
-            lAndExp.addEqExp(eqExp);
-        }
-        return (LAndExp) lAndExp.buildLeftAssociativeTree();
+
+    private static RecursionNode newLevelNode(int level) {
+        return switch (level) {
+            case MUL_LEVEL -> new MulExp();
+            case ADD_LEVEL -> new AddExp();
+            case REL_LEVEL -> new RelExp();
+            case EQ_LEVEL -> new EqExp();
+            case LAND_LEVEL -> new LAndExp();
+            default -> new LOrExp();
+        };
     }
-    
-    /**
-     * 等值表达式
-     * EqExp → RelExp { ('==' | '!=') RelExp }
-     */
-    private EqExp parseEqExp() {
-        EqExp eqExp = new EqExp();
-        RelExp left = parseRelExp();
-        eqExp.addRelExp(left);
-        while (match(TokenType.EQL) || match(TokenType.NEQ)) {
-            Token op = getCurrentToken();
-            eqExp.addOp(op);
-            consumeToken();
-            RelExp right = parseRelExp();
-            eqExp.addRelExp(right);
-        }
 
-        return (EqExp) eqExp.buildLeftAssociativeTree();
+    private enum FrameKind {
+        ROOT,   // 最外层表达式
+        PAREN,  // '(' Exp ')'
+        INDEX,  // LVal '[' Exp ']'
+        CALL    // Ident '(' FuncRParams ')' 中的一个实参
     }
-    
+
     /**
-     * 关系表达式
-     * RelExp → AddExp { ('<' | '<=' | '>' | '>=') AddExp }
+     * 一层嵌套表达式的解析状态
+     * levels[i] 是第 i 层正在累积操作数的节点，遇到更低优先级的运算符或表达式结束时归约
      */
-    private RelExp parseRelExp() {
-        RelExp relExp = new RelExp();
-        AddExp left = parseAddExp();
-        relExp.addAddExp(left);
-        while (match(TokenType.LSS) || match(TokenType.LEQ) || 
-               match(TokenType.GRE) || match(TokenType.GEQ)) {
-            Token op = getCurrentToken();
-            relExp.addOp(op);
-            consumeToken(); // 消费操作符
-            AddExp right = parseAddExp();
-            relExp.addAddExp(right);
+    private static class ExpFrame {
+        private final FrameKind kind;
+        private final int topLevel;
+        private final RecursionNode[] levels;
+        // 嵌套所属操作数的一元前缀，外层在前
+        private final List<UnaryExp> prefixes;
+        // 嵌套完成后得到的一元表达式
+        private final UnaryExp unaryExp;
+        // PAREN 为 PrimaryExp，INDEX 为 LVal，CALL 为 FuncRParams
+        private final AbstractASTNode owner;
+
+        ExpFrame(FrameKind kind, int topLevel, List<UnaryExp> prefixes, UnaryExp unaryExp, AbstractASTNode owner) {
+            this.kind = kind;
+            this.topLevel = topLevel;
+            this.levels = new RecursionNode[LOR_LEVEL + 1];
+            this.prefixes = prefixes;
+            this.unaryExp = unaryExp;
+            this.owner = owner;
         }
 
-        return (RelExp) relExp.buildLeftAssociativeTree();
-    }
-    
-    /**
-     * 加减表达式
-     * AddExp → MulExp { ('+' | '-') MulExp }
-     */
-    private AddExp parseAddExp() {
-        AddExp addExp = new AddExp();
-        MulExp left = parseMulExp();
-        addExp.addMulExp(left);
-        while (match(TokenType.PLUS) || match(TokenType.MINU)) {
-            Token op = getCurrentToken();
-            addExp.addOp(op);
-            consumeToken(); // 消费操作符
-            MulExp right = parseMulExp();
-            addExp.addMulExp(right);
+        /**
+         * 归约 [0, level) 各层，每层建成左结合树后作为上一层的操作数
+         */
+        void reduceBelow(int level) {
+            for (int i = 0; i < level; i++) {
+                if (levels[i + 1] == null) {
+                    levels[i + 1] = newLevelNode(i + 1);
+                }
+                levels[i + 1].addOperand(levels[i].buildLeftAssociativeTree());
+                levels[i] = null;
+            }
         }
-        return (AddExp) addExp.buildLeftAssociativeTree();
-    }
-    
-    /**
-     * 乘除表达式
-     * MulExp → UnaryExp { ('*' | '/' | '%') UnaryExp }
-     */
-    private MulExp parseMulExp() {
-        MulExp mulExp = new MulExp();
-        UnaryExp left = parseUnaryExp();
-        mulExp.addUnaryExp(left);
-        while (match(TokenType.MULT) || match(TokenType.DIV) || match(TokenType.MOD)) {
-            Token op = getCurrentToken();
-            mulExp.addOp(op);
-            consumeToken(); // 消费操作符
-            UnaryExp right = parseUnaryExp();
-            mulExp.addUnaryExp(right);
+
+        void addOperand(UnaryExp operand) {
+            if (levels[MUL_LEVEL] == null) {
+                levels[MUL_LEVEL] = newLevelNode(MUL_LEVEL);
+            }
+            levels[MUL_LEVEL].addOperand(operand);
+        }
+
+        ASTNode finish() {
+            reduceBelow(topLevel);
+            return levels[topLevel].buildLeftAssociativeTree();
         }
-        return (MulExp) mulExp.buildLeftAssociativeTree();
     }
-    
+
     /**
-     * 一元表达式
-     * UnaryExp → PrimaryExp | UnaryOp UnaryExp | Ident '(' [FuncRParams] ')'  // j
+     * 解析以 topLevel 层为根的表达式（AddExp 或 LOrExp）
+     * 每个优先级层不再对应一层 Java 调用；括号、下标和实参的嵌套也压入显式栈，
+     * 因此表达式的长度和嵌套深度都不消耗 Java 栈。生成的 AST 与逐层递归下降完全相同
      */
-    private UnaryExp parseUnaryExp() {
-        UnaryExp unaryExp = new UnaryExp();
-        
-        if (match(TokenType.PLUS) || match(TokenType.MINU) || match(TokenType.NOT)) {
-            // 一元操作符
-            Token op = getCurrentToken();
-            UnaryOp unaryOp = new UnaryOp();
-            unaryOp.setOp(op);
-            unaryExp.setUnaryOp(unaryOp);
-            consumeToken(); // 消费操作符
-            UnaryExp subUnaryExp = parseUnaryExp();
-            unaryExp.setUnaryExp(subUnaryExp);
-        } else if (match(TokenType.IDENFR) && peek(1).getType() == TokenType.LPARENT) {
-            // 函数调用
-            Token funcNameToken = getCurrentToken();
-            consumeToken(); // 消费函数名
-            Ident funcName = new Ident(funcNameToken);
-            unaryExp.setFuncName(funcName);
-            expect(unaryExp,TokenType.LPARENT); // 消费 '('
-            /* 解析实参列表
-             这里可能缺少小括号同时无实参
-             考虑根据FIRST级判断是否存在实参
-             如：func(;
-             */
-            if (match(TokenType.LPARENT)||match(TokenType.IDENFR)||match(TokenType.INTCON)||
-                    match(TokenType.PLUS)||match(TokenType.MINU)||match(TokenType.NOT)) {
-                FuncRParams funcRParams = parseFuncRParams();
-                unaryExp.setFuncRParams(funcRParams);
+    private ASTNode parseBinaryExp(int topLevel) {
+        Deque<ExpFrame> frames = new ArrayDeque<>();
+        ExpFrame frame = new ExpFrame(FrameKind.ROOT, topLevel, null, null, null);
+        while (true) {
+            // 解析一个操作数：UnaryExp → {UnaryOp} (PrimaryExp | Ident '(' [FuncRParams] ')')
+            List<UnaryExp> prefixes = new ArrayList<>();
+            while (match(TokenType.PLUS) || match(TokenType.MINU) || match(TokenType.NOT)) {
+                UnaryExp prefix = new UnaryExp();
+                UnaryOp unaryOp = new UnaryOp();
+                unaryOp.setOp(getCurrentToken());
+                prefix.setUnaryOp(unaryOp);
+                consumeToken(); // 消费操作符
+                prefixes.add(prefix);
+            }
+
+            UnaryExp operand = new UnaryExp();
+            if (match(TokenType.IDENFR) && peekType(1) == TokenType.LPARENT) {
+                // 函数调用
+                Token funcNameToken = getCurrentToken();
+                consumeToken(); // 消费函数名
+                operand.setFuncName(new Ident(funcNameToken));
+                expect(operand, TokenType.LPARENT); // 消费 '('
+                // 可能缺少右括号同时无实参，如 func(; 根据 FIRST 集判断是否存在实参
+                if (match(TokenType.LPARENT) || match(TokenType.IDENFR) || match(TokenType.INTCON) ||
+                        match(TokenType.PLUS) || match(TokenType.MINU) || match(TokenType.NOT)) {
+                    frames.push(frame);
+                    frame = new ExpFrame(FrameKind.CALL, ADD_LEVEL, prefixes, operand, new FuncRParams());
+                    continue;
+                }
+                processErrorJ(operand);
+            } else if (match(TokenType.LPARENT)) {
+                // 括号表达式
+                PrimaryExp primaryExp = new PrimaryExp();
+                consume(primaryExp); // 消费 '('
+                frames.push(frame);
+                frame = new ExpFrame(FrameKind.PAREN, ADD_LEVEL, prefixes, operand, primaryExp);
+                continue;
+            } else if (match(TokenType.IDENFR)) {
+                // 左值
+                LVal lVal = new LVal();
+                lVal.setIdent(parseIdent());
+                if (match(TokenType.LBRACK)) {
+                    consume(lVal); // 消费 '['
+                    frames.push(frame);
+                    frame = new ExpFrame(FrameKind.INDEX, ADD_LEVEL, prefixes, operand, lVal);
+                    continue;
+                }
+                setPrimary(operand, lVal);
+            } else if (match(TokenType.INTCON)) {
+                // 数字
+                setPrimary(operand, parseNumber());
+            } else {
+                throw new RuntimeException("Expected primary expression but got " + getCurrentTokenType() + getLast10Tokens() );
+            }
+
+            // 操作数完成：套上一元前缀并加入当前层；若当前嵌套随之结束，则继续向外层归约
+            while (true) {
+                frame.addOperand(applyPrefixes(prefixes, operand));
+                int level = binaryLevel(getCurrentTokenType());
+                if (level >= 0 && level <= frame.topLevel) {
+                    frame.reduceBelow(level);
+                    frame.levels[level].addOperator(getCurrentToken());
+                    consumeToken(); // 消费操作符
+                    break;
+                }
+
+                ASTNode result = frame.finish();
+                if (frame.kind == FrameKind.ROOT) {
+                    return result;
+                }
+                Exp exp = new ParserWrapper.ExpWrapper((AddExp) result);
+                if (frame.kind == FrameKind.CALL) {
+                    FuncRParams funcRParams = (FuncRParams) frame.owner;
+                    funcRParams.addParam(exp);
+                    if (match(TokenType.COMMA)) {
+                        // 下一个实参
+                        consume(funcRParams); // 消费 ','
+                        frame = new ExpFrame(FrameKind.CALL, ADD_LEVEL, frame.prefixes, frame.unaryExp, funcRParams);
+                        break;
+                    }
+                    frame.unaryExp.setFuncRParams(funcRParams);
+                    processErrorJ(frame.unaryExp);
+                } else if (frame.kind == FrameKind.PAREN) {
+                    PrimaryExp primaryExp = (PrimaryExp) frame.owner;
+                    primaryExp.setPrimary(exp);
+                    processErrorJ(primaryExp);
+                    frame.unaryExp.setPrimaryExp(primaryExp);
+                } else {
+                    LVal lVal = (LVal) frame.owner;
+                    lVal.setIndexExp(exp);
+                    processErrorK(lVal);
+                    setPrimary(frame.unaryExp, lVal);
+                }
+                operand = frame.unaryExp;
+                prefixes = frame.prefixes;
+                frame = frames.pop();
             }
-            processErrorJ(unaryExp);
-        } else {
-            // 基本表达式
-            unaryExp.setPrimaryExp(parsePrimaryExp());
         }
-        return unaryExp;
     }
-    
+
+    private static void setPrimary(UnaryExp unaryExp, ASTNode primary) {
+        PrimaryExp primaryExp = new PrimaryExp();
+        primaryExp.setPrimary(primary);
+        unaryExp.setPrimaryExp(primaryExp);
+    }
+
     /**
-     * 基本表达式
-     * PrimaryExp → '(' Exp ')' | LVal | Number
+     * 由内向外套上一元前缀：UnaryExp → UnaryOp UnaryExp
      */
-    private PrimaryExp parsePrimaryExp() {
-        PrimaryExp primaryExp = new PrimaryExp();
-        
-        if (match(TokenType.LPARENT)) {
-            // 括号表达式
-            consume(primaryExp); // 消费 '('
-            Exp exp = parseExp();
-            primaryExp.setPrimary(exp);
-            processErrorJ(primaryExp);
-        } else if (match(TokenType.IDENFR)) {
-            // 标识符（左值）
-            LVal lVal = parseLVal();
-            primaryExp.setPrimary(lVal);
-        } else if (match(TokenType.INTCON)) {
-            // 数字
-            frontend.ast.Number number = parseNumber();
-            primaryExp.setPrimary(number);
-        } else {
-            throw new RuntimeException("Expected primary expression but got " + getCurrentTokenType() + getLast10Tokens() );
+    private static UnaryExp applyPrefixes(List<UnaryExp> prefixes, UnaryExp operand) {
+        for (int i = prefixes.size() - 1; i >= 0; i--) {
+            prefixes.get(i).setUnaryExp(operand);
+            operand = prefixes.get(i);
         }
-        
-        return primaryExp;
+        return operand;
     }
     
     /**
@@ -1014,31 +1081,12 @@ public class Parser {
     private ConstExp parseConstExp() {
         ConstExp constExp = new ConstExp();
         
-        AddExp exp = parseAddExp();
+        AddExp exp = (AddExp) parseBinaryExp(ADD_LEVEL);
         constExp.setAddExp(exp);
         
         return constExp;
     }
     
-    /**
-     * 函数实参列表
-     * FuncRParams → Exp { ',' Exp }
-     */
-    private FuncRParams parseFuncRParams() {
-        FuncRParams funcRParams = new FuncRParams();
-        
-        // 解析第一个实参
-        Exp exp = parseExp();
-        funcRParams.addParam(exp);
-        // 解析后续实参
-        while (match(TokenType.COMMA)) {
-            consume(funcRParams); // 消费 ','
-            exp = parseExp();
-            funcRParams.addParam(exp);
-        }
-        return funcRParams;
-    }
-    
     /**
      * 标识符
      */
@@ -1068,11 +1116,11 @@ public class Parser {
     /**
      * 判断是否为声明
      */
-    private boolean isDecl() {
+    boolean isDecl() {
         if(match(TokenType.CONSTTK) || match(TokenType.STATICTK)) {
             return true;
         } else if(match(TokenType.INTTK)){
-            return peek(2).getType() != TokenType.LPARENT;
+            return peekType(2) != TokenType.LPARENT;
         } else {
             return false;
         }
@@ -1081,16 +1129,24 @@ public class Parser {
     /**
      * 判断是否为函数定义
      */
-    private boolean isFuncDef() {
-        return match(TokenType.VOIDTK) || (match(TokenType.INTTK) && peek(1).getType()!=TokenType.MAINTK &&
-               peek(2).getType() == TokenType.LPARENT);
+    boolean isFuncDef() {
+        return match(TokenType.VOIDTK) || (match(TokenType.INTTK) && peekType(1)!=TokenType.MAINTK &&
+               peekType(2) == TokenType.LPARENT);
+    }
+
+    private void reportError(Error error) {
+        if (errorBuffer != null) {
+            errorBuffer.add(error);
+        } else {
+            ErrorRecorder.getErrorRecorder().addError(error);
+        }
     }
 
     private void processErrorI(AbstractASTNode node){
         if(match(TokenType.SEMICN)) consume(node);
         else {
             node.addChild(new TokenNode(new Token(TokenType.SEMICN,";",getLastTokenLineId())));
-            ErrorRecorder.getErrorRecorder().addError(new Error(ErrorType.MISSING_SEMICOLON,getLastTokenLineId()));
+            reportError(new Error(ErrorType.MISSING_SEMICOLON,getLastTokenLineId()));
         }
     }
 
@@ -1098,7 +1154,7 @@ public class Parser {
         if(match(TokenType.RPARENT)) consume(node);
         else {
             node.addChild(new TokenNode(new Token(TokenType.RPARENT,")",getLastTokenLineId())));
-            ErrorRecorder.getErrorRecorder().addError(new Error(ErrorType.MISSING_RIGHT_PARENTHESES,getLastTokenLineId()));
+            reportError(new Error(ErrorType.MISSING_RIGHT_PARENTHESES,getLastTokenLineId()));
         }
     }
 
@@ -1106,7 +1162,7 @@ public class Parser {
         if(match(TokenType.RBRACK)) consume(node);
         else {
             node.addChild(new TokenNode(new Token(TokenType.RBRACK,"]",getLastTokenLineId())));
-            ErrorRecorder.getErrorRecorder().addError(new Error(ErrorType.MISSING_RIGHT_BRACKETS,getLastTokenLineId()));
+            reportError(new Error(ErrorType.MISSING_RIGHT_BRACKETS,getLastTokenLineId()));
         }
     }
 }
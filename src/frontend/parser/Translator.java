@@ -0,0 +1,17 @@
+package frontend.parser;
+
+import frontend.ast.Decl;
+import frontend.ast.FuncDef;
+import frontend.ast.MainFuncDef;
+
+/**
+ * 语法制导翻译的接收方
+ * Parser 每归约出一个顶层成分就按源程序顺序交给它，成分处理完即可释放，不组装 CompUnit
+ */
+public interface Translator {
+    void translateDecl(Decl decl);
+
+    void translateFuncDef(FuncDef funcDef);
+
+    void translateMainFuncDef(MainFuncDef mainFuncDef);
+}
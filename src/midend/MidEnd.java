@@ -1,40 +1,92 @@
 package midend;
 
+import driver.CompilationContext;
+import driver.CompileOptions;
+import error.ErrorRecorder;
 import frontend.ast.CompUnit;
 import frontend.parser.Parser;
 import midend.llvm.IrBuilder;
 import midend.llvm.IrModule;
 import midend.semantic.SemanticAnalyzer;
-import midend.visit.IrBlockVisitor;
 import midend.visit.IrVisitor;
 
 public class MidEnd {
-    private static CompUnit root;
-    private static SemanticAnalyzer semanticAnalyzer;
-    private static IrModule irModule;
+    private CompUnit root;
+    private SemanticAnalyzer semanticAnalyzer;
+    private IrModule irModule;
+
+    private static MidEnd getMidEnd() {
+        return CompilationContext.current().getComponent(MidEnd.class, MidEnd::new);
+    }
 
     public static void initialize(){
-        root = Parser.getParser().getAST();
-        semanticAnalyzer = new SemanticAnalyzer();
+        MidEnd midEnd = getMidEnd();
+        midEnd.root = Parser.getParser().getAST();
+        midEnd.semanticAnalyzer = new SemanticAnalyzer(isFusedIrGen());
+    }
+
+    private static boolean isFusedIrGen() {
+        CompileOptions options = CompilationContext.current().getOptions();
+        return options.isFusedIrGen() && !options.isParallelSemantic();
     }
 
     /**
      * 生成符号表并进行语义分析
+     * 合并模式下同时生成中间代码，有错误时丢弃
      */
     public static void GenerateSymbolTable() {
-        if (root != null && semanticAnalyzer != null) {
-            semanticAnalyzer.analyze(root);
-        } else {
+        MidEnd midEnd = getMidEnd();
+        if (midEnd.root == null || midEnd.semanticAnalyzer == null) {
             initialize();
-            semanticAnalyzer.analyze(root);
         }
+        if (isFusedIrGen()) {
+            beginIrModule(midEnd);
+        }
+        midEnd.semanticAnalyzer.analyze(midEnd.root);
+        if (isFusedIrGen()) {
+            finishIrModule(midEnd);
+        }
+    }
+
+    /**
+     * 语法制导翻译：Parser 每归约出一个顶层成分，就对它做语义分析并生成中间代码，不保留 AST
+     * 有错误时丢弃中间代码
+     */
+    public static void Translate() {
+        MidEnd midEnd = getMidEnd();
+        midEnd.root = null;
+        midEnd.semanticAnalyzer = new SemanticAnalyzer(true);
+        beginIrModule(midEnd);
+        midEnd.semanticAnalyzer.begin();
+        Parser.getParser().parse(midEnd.semanticAnalyzer);
+        finishIrModule(midEnd);
     }
 
+    private static void beginIrModule(MidEnd midEnd) {
+        midEnd.irModule = new IrModule();
+        IrBuilder.setCurrentModule(midEnd.irModule);
+    }
+
+    private static void finishIrModule(MidEnd midEnd) {
+        if (ErrorRecorder.haveError()) {
+            midEnd.irModule = null;
+        } else {
+            IrBuilder.skipBlankBlock();
+        }
+    }
+
+    /**
+     * 遍历 AST 生成中间代码；语义分析时已经生成的，直接返回
+     */
     public static void GenerateLLVMIR() {
-        if(root !=null){
-            irModule = new IrModule();
-            IrBuilder.setCurrentModule(irModule);
-            IrVisitor irVisitor = new IrVisitor(root);
+        MidEnd midEnd = getMidEnd();
+        if (midEnd.irModule != null) {
+            return;
+        }
+        if(midEnd.root !=null){
+            midEnd.irModule = new IrModule();
+            IrBuilder.setCurrentModule(midEnd.irModule);
+            IrVisitor irVisitor = new IrVisitor(midEnd.root);
             irVisitor.visit();
             IrBuilder.skipBlankBlock();
         }
@@ -44,10 +96,10 @@ public class MidEnd {
      * 获取AST根节点
      */
     public static CompUnit getRoot() {
-        return root;
+        return getMidEnd().root;
     }
 
     public static IrModule getIrModule() {
-        return irModule;
+        return getMidEnd().irModule;
     }
 }
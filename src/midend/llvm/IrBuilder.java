@@ -1,5 +1,6 @@
 package midend.llvm;
 
+import driver.CompilationContext;
 import midend.llvm.constant.IrConstString;
 import midend.llvm.constant.IrConstant;
 import midend.llvm.instr.Instr;
@@ -9,8 +10,6 @@ import midend.llvm.value.IrFunction;
 import midend.llvm.value.IrGlobalValue;
 import midend.llvm.value.IrLoop;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Stack;
 
 public class IrBuilder {
@@ -22,114 +21,120 @@ public class IrBuilder {
     private static final String STRING_PREFIX = "@s_";
 
     // 当前状态
-    private static IrModule currentModule = null;
-    private static IrFunction currentFunction = null;
-    private static IrBasicBlock currentBasicBlock = null;
+    private IrModule currentModule = null;
+    private IrFunction currentFunction = null;
+    private IrBasicBlock currentBasicBlock = null;
 
     // 计数器
-    private static int globalVarCount = 0;
-    private static int basicBlockCount = 0;
-    private static int stringCount = 0;
-    private static final Map<IrFunction, Integer> localVarCountMap = new HashMap<>();
-    private static final Stack<IrLoop> loopStack = new Stack<>();
+    private int globalVarCount = 0;
+    private int basicBlockCount = 0;
+    private int stringCount = 0;
+    private final Stack<IrLoop> loopStack = new Stack<>();
+
+    private IrBuilder() {
+    }
+
+    // 状态保存在当前编译上下文中
+    private static IrBuilder getBuilder() {
+        return CompilationContext.current().getComponent(IrBuilder.class, IrBuilder::new);
+    }
 
     // 模块管理
     public static void setCurrentModule(IrModule module) {
-        currentModule = module;
+        getBuilder().currentModule = module;
     }
 
     public static IrModule getCurrentModule() {
-        return currentModule;
+        return getBuilder().currentModule;
     }
 
     // 函数管理
     public static IrFunction getNewFunctionIr(String name, IrType returnType) {
+        IrBuilder builder = getBuilder();
         String funcIrName = name.equals("main") ? "@main" : FUNC_PREFIX + name;
         IrFunction newFunction = new IrFunction(funcIrName, returnType);
-        currentModule.addIrFunction(newFunction);
-        currentFunction = newFunction;
-        currentBasicBlock = getNewBasicBlockIr(); // 这里也是入口块
-        localVarCountMap.put(newFunction, 0);
+        builder.currentModule.addIrFunction(newFunction);
+        builder.currentFunction = newFunction;
+        builder.currentBasicBlock = getNewBasicBlockIr(); // 这里也是入口块
         return newFunction;
     }
 
     public static IrFunction getCurrentFunction() {
-        return currentFunction;
+        return getBuilder().currentFunction;
     }
 
     public static IrType getCurrentFunctionReturnType() {
-        return currentFunction.getReturnType();
+        return getBuilder().currentFunction.getReturnType();
     }
 
     // 基本块管理
     public static IrBasicBlock getNewBasicBlockIr() {
-        String blockIrName = BLOCK_PREFIX + basicBlockCount++;
-        return new IrBasicBlock(blockIrName, currentFunction);
+        IrBuilder builder = getBuilder();
+        String blockIrName = BLOCK_PREFIX + builder.basicBlockCount++;
+        return new IrBasicBlock(blockIrName, builder.currentFunction);
     }
 
     public static IrBasicBlock getCurrentBasicBlock() {
-        return currentBasicBlock;
+        return getBuilder().currentBasicBlock;
     }
 
     public static void setCurrentBasicBlock(IrBasicBlock basicBlock) {
-        currentBasicBlock = basicBlock;
+        getBuilder().currentBasicBlock = basicBlock;
     }
 
     // 指令管理
     public static void addInstr(Instr instr) {
-        currentBasicBlock.addInstruction(instr);
-        instr.setBlock(currentBasicBlock);
+        IrBuilder builder = getBuilder();
+        builder.currentBasicBlock.addInstruction(instr);
+        instr.setBlock(builder.currentBasicBlock);
     }
 
     // 全局变量管理
     public static IrGlobalValue getNewGlobalValueIr(IrType irType, IrConstant initValue) {
-        String globalIrName = GLOBAL_VAR_PREFIX + globalVarCount++;
+        IrBuilder builder = getBuilder();
+        String globalIrName = GLOBAL_VAR_PREFIX + builder.globalVarCount++;
         IrGlobalValue newGlobalValue = new IrGlobalValue(globalIrName, irType, initValue);
-        currentModule.addIrGlobalValue(newGlobalValue);
+        builder.currentModule.addIrGlobalValue(newGlobalValue);
         return newGlobalValue;
     }
 
     // 全局字符串管理
     public static IrConstString getNewConstStringIr(String string) {
-        return currentModule.getNewConstantStringIr(string);
+        return getBuilder().currentModule.getNewConstantStringIr(string);
     }
 
     // 循环栈处理方法
     public static void loopStackPush(IrLoop loop) {
-        loopStack.push(loop);
+        getBuilder().loopStack.push(loop);
     }
 
     public static void loopStackPop() {
-        loopStack.pop();
+        getBuilder().loopStack.pop();
     }
 
     public static IrLoop loopStackPeek() {
-        return loopStack.peek();
+        return getBuilder().loopStack.peek();
     }
 
     public static void skipBlankBlock() {
-        currentModule.skipBlankBlock();
+        getBuilder().currentModule.skipBlankBlock();
     }
 
     // 局部变量命名管理
     public static String getLocalVarNameIr() {
-        int count = localVarCountMap.get(currentFunction);
-        localVarCountMap.put(currentFunction, count + 1);
-        return LOCAL_VAR_PREFIX + count;
+        return LOCAL_VAR_PREFIX + getBuilder().currentFunction.nextLocalVarIndex();
     }
 
     /**
      * 为指定函数生成局部变量名（用于优化阶段）
      */
     public static String getLocalVarNameIr(IrFunction irFunction) {
-        int count = localVarCountMap.getOrDefault(irFunction, 0);
-        localVarCountMap.put(irFunction, count + 1);
-        return LOCAL_VAR_PREFIX + count;
+        return LOCAL_VAR_PREFIX + irFunction.nextLocalVarIndex();
     }
 
     // 字符串命名管理
     public static String getStringNameIr() {
-        return STRING_PREFIX + stringCount++;
+        return STRING_PREFIX + getBuilder().stringCount++;
     }
 
     /**
@@ -137,7 +142,8 @@ public class IrBuilder {
      * 该基本块不会被自动添加到函数中，需要手动处理
      */
     public static IrBasicBlock getNewBasicBlockForRemovePhi(IrFunction function) {
-        String blockIrName = BLOCK_PREFIX + basicBlockCount++;
+        IrBuilder builder = getBuilder();
+        String blockIrName = BLOCK_PREFIX + builder.basicBlockCount++;
         return new IrBasicBlock(blockIrName, function);
     }
 }
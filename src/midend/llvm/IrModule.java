@@ -7,13 +7,21 @@ import backend.mips.assembly.MipsLabel;
 import backend.mips.assembly.MipsSyscall;
 import backend.mips.assembly.fake.MarsLi;
 import midend.llvm.constant.IrConstString;
+import midend.llvm.instr.Instr;
+import midend.llvm.use.IrUser;
+import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
 import midend.llvm.value.IrGlobalValue;
+import midend.llvm.value.IrValue;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class IrModule extends IrNode{
     private final List<String> declares;
@@ -65,6 +73,35 @@ public class IrModule extends IrNode{
         }
     }
 
+    /**
+     * 检查全部全局变量和指令的操作数与各值的使用链表互相一致，写在 assert 中供调试构建（-ea）使用
+     * @return 总是 true；发现不一致时抛出异常
+     */
+    public boolean checkUses() {
+        List<IrUser> users = new ArrayList<>(this.globalValues);
+        for (IrFunction function : this.functions) {
+            for (IrBasicBlock block : function.getBasicBlocks()) {
+                for (Instr instr : block.getInstructions()) {
+                    users.add(instr);
+                }
+            }
+        }
+        Set<IrValue> values = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (IrUser user : users) {
+            user.checkUses();
+            values.add(user);
+            for (IrValue value : user.getUseValueList()) {
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+        }
+        for (IrValue value : values) {
+            value.getBeUsedList().check(value);
+        }
+        return true;
+    }
+
     public void skipBlankBlock(){
         for(IrFunction function : this.functions){
             function.skipBlankBlock();
@@ -74,35 +111,44 @@ public class IrModule extends IrNode{
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
+        try {
+            emit(builder);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return builder.toString();
+    }
 
+    /**
+     * 将 llvm_ir.txt 内容逐条写入 out，不拼接整个模块的字符串
+     */
+    public void emit(Appendable out) throws IOException {
         for (String declare : declares) {
-            builder.append(declare);
-            builder.append("\n");
+            out.append(declare);
+            out.append("\n");
         }
-        builder.append("\n");
+        out.append("\n");
 
         List<Map.Entry<String, IrConstString>> entryList =
                 new ArrayList<>(stringConstantMap.entrySet());
         entryList.sort((o1, o2) ->
                 CharSequence.compare(o1.getValue().getIrName(), o2.getValue().getIrName()));
         for (Map.Entry<String, IrConstString> entry : entryList) {
-            builder.append(entry.getValue());
-            builder.append("\n");
+            out.append(entry.getValue().toString());
+            out.append("\n");
         }
-        builder.append("\n");
+        out.append("\n");
 
         for (IrGlobalValue globalValue : globalValues) {
-            builder.append(globalValue);
-            builder.append("\n");
+            out.append(globalValue.toString());
+            out.append("\n");
         }
-        builder.append("\n");
+        out.append("\n");
 
         for (IrFunction irFunction : functions) {
-            builder.append(irFunction.toString());
-            builder.append("\n\n");
+            irFunction.emit(out);
+            out.append("\n\n");
         }
-
-        return builder.toString();
     }
 
     public void toMips() {
@@ -9,6 +9,10 @@ import midend.llvm.value.IrBasicBlock;
 public abstract class Instr extends IrUser {
     private IrBasicBlock block;
     private final InstrType instrType;
+    // 所在指令链表中的前后指令及链表本身，由 InstrList 维护；不在任何块中时 list 为 null
+    Instr prev;
+    Instr next;
+    InstrList list;
 
     public Instr(IrType irType, InstrType instrType) {
         super(irType, IrBuilder.getLocalVarNameIr());
@@ -37,6 +41,29 @@ public abstract class Instr extends IrUser {
         return block;
     }
 
+    /**
+     * 所在块中的前一条指令，位于块首或不在块中时为 null
+     */
+    public Instr getPrev() {
+        return prev;
+    }
+
+    /**
+     * 所在块中的后一条指令，位于块尾或不在块中时为 null
+     */
+    public Instr getNext() {
+        return next;
+    }
+
+    /**
+     * 从所在块的指令链表中摘下，O(1)
+     */
+    public void removeFromBlock() {
+        if (list != null) {
+            list.remove(this);
+        }
+    }
+
     public InstrType getInstrType() {
         return instrType;
     }
@@ -0,0 +1,159 @@
+package midend.llvm.instr;
+
+import midend.llvm.value.IrBasicBlock;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 基本块的指令序列，Instr 结点本身构成的双向链表
+ * 在任意指令前后插入、删除指令都是 O(1)；插入一条已在其他块中的指令时先将其摘下，即移动到本块。
+ * 迭代器预先取得下一条指令，遍历时删除当前指令（直接删除或经 Iterator.remove）不影响后续遍历
+ */
+public class InstrList implements Iterable<Instr> {
+    private final IrBasicBlock block;
+    private Instr head;
+    private Instr tail;
+    private int size;
+
+    public InstrList(IrBasicBlock block) {
+        this.block = block;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Instr getFirst() {
+        return head;
+    }
+
+    public Instr getLast() {
+        return tail;
+    }
+
+    public void add(Instr instr) {
+        detach(instr);
+        link(instr, tail, null);
+    }
+
+    public void addFirst(Instr instr) {
+        detach(instr);
+        link(instr, null, head);
+    }
+
+    /**
+     * 将 instr 插入到本块中的 anchor 之前
+     */
+    public void insertBefore(Instr anchor, Instr instr) {
+        if (anchor == instr) {
+            return;
+        }
+        detach(instr);
+        link(instr, anchor.prev, anchor);
+    }
+
+    /**
+     * 将 instr 插入到本块中的 anchor 之后
+     */
+    public void insertAfter(Instr anchor, Instr instr) {
+        if (anchor == instr) {
+            return;
+        }
+        detach(instr);
+        link(instr, anchor, anchor.next);
+    }
+
+    public void remove(Instr instr) {
+        if (instr.list != this) {
+            return;
+        }
+        if (instr.prev == null) {
+            head = instr.next;
+        } else {
+            instr.prev.next = instr.next;
+        }
+        if (instr.next == null) {
+            tail = instr.prev;
+        } else {
+            instr.next.prev = instr.prev;
+        }
+        instr.prev = null;
+        instr.next = null;
+        instr.list = null;
+        size--;
+    }
+
+    /**
+     * 复制为数组列表，供需要下标访问或在遍历中大量改动的调用方使用
+     */
+    public List<Instr> toList() {
+        List<Instr> list = new ArrayList<>(size);
+        for (Instr instr = head; instr != null; instr = instr.next) {
+            list.add(instr);
+        }
+        return list;
+    }
+
+    @Override
+    public Iterator<Instr> iterator() {
+        return new Iterator<>() {
+            private Instr cursor = head;
+            private Instr last = null;
+
+            @Override
+            public boolean hasNext() {
+                return cursor != null;
+            }
+
+            @Override
+            public Instr next() {
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                last = cursor;
+                cursor = cursor.next;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                InstrList.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    private static void detach(Instr instr) {
+        if (instr.list != null) {
+            instr.list.remove(instr);
+        }
+    }
+
+    private void link(Instr instr, Instr prev, Instr next) {
+        instr.prev = prev;
+        instr.next = next;
+        if (prev == null) {
+            head = instr;
+        } else {
+            prev.next = instr;
+        }
+        if (next == null) {
+            tail = instr;
+        } else {
+            next.prev = instr;
+        }
+        instr.list = this;
+        instr.setBlock(block);
+        size++;
+    }
+}
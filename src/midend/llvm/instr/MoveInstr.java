@@ -28,8 +28,7 @@ public class MoveInstr extends Instr {
     }
 
     public void setSrcValue(IrValue srcValue) {
-        this.getSrcValue().deleteUser(this);
-        this.getUseValueList().set(0, srcValue);
+        this.setUseValue(0, srcValue);
     }
 
     @Override
@@ -16,6 +16,7 @@ import backend.mips.assembly.fake.MarsMove;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 public class CallInstr extends Instr {
@@ -74,11 +75,13 @@ public class CallInstr extends Instr {
         List<Register> allocatedRegisterList = MipsBuilder.getAllocatedRegList();
 
         // 1. 计算需要保护的寄存器：在当前指令处活跃的 Caller-Saved 寄存器
-        HashSet<Register> registersToSave = new HashSet<>();
+        HashSet<Register> registersToSave = new LinkedHashSet<>();
         // 活跃变量 (getLiveValuesAt 返回的是指令执行后的活跃变量，即跨越调用的变量)
-        HashSet<midend.llvm.value.IrValue> liveValues = this.getBlock().getLiveValuesAt(this);
-        liveValues.remove(this); // 优化：不需要保存当前指令定义的返回值
-        for (midend.llvm.value.IrValue val : liveValues) {
+        List<IrValue> liveValues = this.getBlock().getLiveValuesAt(this);
+        for (IrValue val : liveValues) {
+            if (val == this) {
+                continue; // 优化：不需要保存当前指令定义的返回值
+            }
             Register reg = MipsBuilder.getValueToRegister(val);
             if (reg != null && MipsBuilder.isCallerSaved(reg)) {
                 registersToSave.add(reg);
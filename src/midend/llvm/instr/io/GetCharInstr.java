@@ -29,10 +29,12 @@ public class GetCharInstr extends IOInstr {
         java.util.List<Register> allocatedRegisterList = MipsBuilder.getAllocatedRegList();
 
         // 1. 计算需要保护的寄存器 (仅关注 $v0)
-        java.util.HashSet<Register> registersToSave = new java.util.HashSet<>();
-        java.util.HashSet<midend.llvm.value.IrValue> liveValues = this.getBlock().getLiveValuesAt(this);
-        liveValues.remove(this); // 结果本身不需要保存
+        java.util.HashSet<Register> registersToSave = new java.util.LinkedHashSet<>();
+        java.util.List<midend.llvm.value.IrValue> liveValues = this.getBlock().getLiveValuesAt(this);
         for (midend.llvm.value.IrValue val : liveValues) {
+            if (val == this) {
+                continue; // 结果本身不需要保存
+            }
             Register reg = MipsBuilder.getValueToRegister(val);
             if (reg == Register.V0) {
                 registersToSave.add(reg);
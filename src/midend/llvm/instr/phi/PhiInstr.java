@@ -4,7 +4,6 @@ import midend.llvm.IrBuilder;
 import midend.llvm.instr.Instr;
 import midend.llvm.instr.InstrType;
 import midend.llvm.type.IrType;
-import midend.llvm.use.IrUse;
 import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrValue;
 
@@ -66,10 +65,8 @@ public class PhiInstr extends Instr {
     public void convertBlockToValue(IrValue irValue, IrBasicBlock beforeBlock) {
         int index = this.beforeBlockList.indexOf(beforeBlock);
         if (index >= 0) {
-            // 进行相应的值替换：原先只会是 null
-            this.getUseValueList().set(index, irValue);
-            // 添加 use 关系
-            irValue.addUse(new IrUse(this, irValue));
+            // 进行相应的值替换并添加 use 关系：原先只会是 null
+            this.setUseValue(index, irValue);
         }
     }
 
@@ -79,12 +76,8 @@ public class PhiInstr extends Instr {
     public void removeBlock(IrBasicBlock irBasicBlock) {
         int index = this.beforeBlockList.indexOf(irBasicBlock);
         if (index >= 0) {
-            IrValue oldValue = this.getUseValueList().get(index);
-            this.getUseValueList().remove(index);
+            this.removeUseValue(index);
             this.beforeBlockList.remove(index);
-            if (oldValue != null) {
-                oldValue.deleteUser(this);
-            }
         }
     }
 
@@ -96,7 +89,7 @@ public class PhiInstr extends Instr {
         if (this.beforeBlockList.contains(newBlock)) {
             index = this.beforeBlockList.indexOf(newBlock);
             this.beforeBlockList.remove(index);
-            this.getUseValueList().remove(index);
+            this.removeUseValue(index);
         }
 
         index = this.beforeBlockList.indexOf(oldBlock);
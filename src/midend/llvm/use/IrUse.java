@@ -2,12 +2,23 @@ package midend.llvm.use;
 
 import midend.llvm.value.IrValue;
 
+/**
+ * 一次使用：user 的第 operandIndex 个操作数是 value
+ * 同时是 value 的使用链表中的结点，前后指针由 IrUseList 维护，挂入和摘除都是 O(1)
+ */
 public class IrUse {
     private final IrUser user;
-    private final IrValue value;
-    public IrUse(IrUser user, IrValue value) {
+    private IrValue value;
+    private int operandIndex;
+    // 使用链表中的前后结点及所在链表，未挂入时 list 为 null
+    IrUse prev;
+    IrUse next;
+    IrUseList list;
+
+    IrUse(IrUser user, IrValue value, int operandIndex) {
         this.user = user;
         this.value = value;
+        this.operandIndex = operandIndex;
     }
 
     public IrValue getValue() {
@@ -17,4 +28,16 @@ public class IrUse {
     public IrUser getUser() {
         return user;
     }
+
+    public int getOperandIndex() {
+        return operandIndex;
+    }
+
+    void setValue(IrValue value) {
+        this.value = value;
+    }
+
+    void setOperandIndex(int operandIndex) {
+        this.operandIndex = operandIndex;
+    }
 }
@@ -0,0 +1,110 @@
+package midend.llvm.use;
+
+import midend.llvm.value.IrValue;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 一个值的全部使用，IrUse 结点本身构成的双向链表
+ * 新的使用挂在表尾，顺序与添加顺序一致；只能经由 IrUser 修改操作数时增删。
+ * 全局变量、函数等会被多个函数的指令同时使用，并行优化时不同线程可能同时增删，因此 add 和 remove 加锁；
+ * 读取（getFirst、size、遍历）不加锁：并行优化中只有处理所属函数的任务读取其指令和参数的使用链表，
+ * 共享值的链表只在并行阶段结束后读取
+ */
+public class IrUseList implements Iterable<IrUse> {
+    private IrUse head;
+    private IrUse tail;
+    private int size;
+
+    synchronized void add(IrUse use) {
+        use.list = this;
+        use.prev = tail;
+        use.next = null;
+        if (tail == null) {
+            head = use;
+        } else {
+            tail.next = use;
+        }
+        tail = use;
+        size++;
+    }
+
+    synchronized void remove(IrUse use) {
+        if (use.prev == null) {
+            head = use.next;
+        } else {
+            use.prev.next = use.next;
+        }
+        if (use.next == null) {
+            tail = use.prev;
+        } else {
+            use.next.prev = use.prev;
+        }
+        use.prev = null;
+        use.next = null;
+        use.list = null;
+        size--;
+    }
+
+    public IrUse getFirst() {
+        return head;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 遍历时可以摘除当前结点
+     */
+    @Override
+    public Iterator<IrUse> iterator() {
+        return new Iterator<>() {
+            private IrUse cursor = head;
+
+            @Override
+            public boolean hasNext() {
+                return cursor != null;
+            }
+
+            @Override
+            public IrUse next() {
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                IrUse use = cursor;
+                cursor = use.next;
+                return use;
+            }
+        };
+    }
+
+    /**
+     * 检查链表结构：前后指针互相一致、结点数等于 size、每个结点都登记为其 user 的对应操作数
+     * @return 总是 true，便于写在 assert 中；发现不一致时抛出异常
+     */
+    public boolean check(IrValue owner) {
+        int count = 0;
+        IrUse prev = null;
+        for (IrUse use = head; use != null; use = use.next) {
+            if (use.prev != prev || use.list != this || use.getValue() != owner) {
+                throw new RuntimeException("Broken use list of " + owner + " at " + use.getUser());
+            }
+            if (use.getUser().getUse(use.getOperandIndex()) != use) {
+                throw new RuntimeException("Use of " + owner + " is not operand " + use.getOperandIndex()
+                        + " of " + use.getUser());
+            }
+            prev = use;
+            count++;
+        }
+        if (prev != tail || count != size) {
+            throw new RuntimeException("Use list of " + owner + " has " + count + " nodes but size " + size);
+        }
+        return true;
+    }
+}
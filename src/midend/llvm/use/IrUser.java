@@ -4,43 +4,111 @@ import midend.llvm.type.IrType;
 import midend.llvm.value.IrValue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class IrUser extends IrValue {
     private final List<IrValue> useValueList;
+    // 与 useValueList 一一对应的使用结点，操作数为 null 时结点不挂入任何链表
+    private final List<IrUse> useList;
+    private final List<IrValue> useValueView;
 
     public IrUser(IrType type, String name) {
         super(type, name);
         this.useValueList = new ArrayList<>();
+        this.useList = new ArrayList<>();
+        this.useValueView = Collections.unmodifiableList(useValueList);
     }
 
     public void addUseValue(IrValue value) {
+        IrUse use = new IrUse(this, value, useList.size());
         useValueList.add(value);
+        useList.add(use);
         if (value != null) {
-            value.addUse(new IrUse(this, value));
+            value.getBeUsedList().add(use);
         }
     }
 
+    /**
+     * 操作数列表的只读视图，修改操作数须经 setUseValue/removeUseValue 以维护使用链表
+     */
     public List<IrValue> getUseValueList() {
-        return useValueList;
+        return useValueView;
+    }
+
+    public IrUse getUse(int index) {
+        return useList.get(index);
+    }
+
+    /**
+     * 将第 index 个操作数换为 value，O(1)
+     */
+    public void setUseValue(int index, IrValue value) {
+        IrUse use = useList.get(index);
+        IrValue oldValue = use.getValue();
+        if (oldValue == value) {
+            return;
+        }
+        if (oldValue != null) {
+            oldValue.getBeUsedList().remove(use);
+        }
+        use.setValue(value);
+        useValueList.set(index, value);
+        if (value != null) {
+            value.getBeUsedList().add(use);
+        }
+    }
+
+    /**
+     * 删除第 index 个操作数，之后的操作数下标前移
+     */
+    public void removeUseValue(int index) {
+        IrUse use = useList.remove(index);
+        useValueList.remove(index);
+        if (use.getValue() != null) {
+            use.getValue().getBeUsedList().remove(use);
+        }
+        for (int i = index; i < useList.size(); i++) {
+            useList.get(i).setOperandIndex(i);
+        }
     }
 
     /**
-     * 将 oldValue 替换为 newValue
+     * 将所有为 oldValue 的操作数替换为 newValue
      */
     public void modifyValue(IrValue oldValue, IrValue newValue) {
-        int index = this.useValueList.indexOf(oldValue);
-        if (index >= 0) {
-            this.useValueList.set(index, newValue);
+        for (int i = 0; i < useValueList.size(); i++) {
+            if (useValueList.get(i) == oldValue) {
+                setUseValue(i, newValue);
+            }
         }
     }
 
     public void removeAllValueUse() {
-        for (IrValue value : useValueList) {
-            if (value != null) {
-                value.deleteUser(this);
+        for (IrUse use : useList) {
+            if (use.getValue() != null) {
+                use.getValue().getBeUsedList().remove(use);
             }
         }
         useValueList.clear();
+        useList.clear();
+    }
+
+    /**
+     * 检查各操作数的使用结点与操作数一致并挂在操作数的使用链表中
+     * @return 总是 true，便于写在 assert 中；发现不一致时抛出异常
+     */
+    public boolean checkUses() {
+        for (int i = 0; i < useList.size(); i++) {
+            IrUse use = useList.get(i);
+            IrValue value = useValueList.get(i);
+            if (use.getUser() != this || use.getOperandIndex() != i || use.getValue() != value) {
+                throw new RuntimeException("Operand " + i + " of " + this + " does not match its use");
+            }
+            if ((value == null) != (use.list == null) || value != null && use.list != value.getBeUsedList()) {
+                throw new RuntimeException("Operand " + i + " of " + this + " is not linked to its value");
+            }
+        }
+        return true;
     }
 }
@@ -1,7 +1,7 @@
 package midend.llvm.value;
 
 import midend.llvm.instr.Instr;
-import midend.llvm.instr.MoveInstr;
+import midend.llvm.instr.InstrList;
 import midend.llvm.instr.ctrl.BrCondInstr;
 import midend.llvm.instr.ctrl.BrInstr;
 import midend.llvm.instr.ctrl.ReturnInstr;
@@ -9,32 +9,32 @@ import midend.llvm.type.IrBasicBlockType;
 
 import backend.mips.assembly.MipsLabel;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class IrBasicBlock extends IrValue {
     private final IrFunction function;
-    private final List<Instr> instructions;
+    private final InstrList instructions;
 
     public IrBasicBlock(String irName, IrFunction function) {
         super(IrBasicBlockType.BASIC_BLOCK, irName);
         this.function = function;
-        this.instructions = new ArrayList<>();
+        this.instructions = new InstrList(this);
         this.function.addBasicBlock(this);
     }
 
     public void addInstruction(Instr instruction) {
         this.instructions.add(instruction);
-        instruction.setBlock(this);
     }
 
     public IrFunction getFunction() {
         return function;
     }
 
-    public List<Instr> getInstructions() {
+    public InstrList getInstructions() {
         return instructions;
     }
 
@@ -43,48 +43,22 @@ public class IrBasicBlock extends IrValue {
     }
 
     public boolean hasTerminator() {
-        if (instructions.isEmpty()) {
-            return false;
-        }
-        Instr last = instructions.get(instructions.size() - 1);
+        Instr last = instructions.getLast();
         return last instanceof ReturnInstr || last instanceof BrInstr || last instanceof BrCondInstr;
     }
 
     public Instr getLastInstr() {
-        if (instructions.isEmpty()) {
-            return null;
-        }
-        return instructions.get(instructions.size() - 1);
+        return instructions.getLast();
     }
 
     private final ArrayList<IrBasicBlock> beforeBlocks = new ArrayList<>();
     private final ArrayList<IrBasicBlock> nextBlocks = new ArrayList<>();
-    private final HashSet<IrBasicBlock> dominatorBlocks = new HashSet<>();
-    private final HashSet<IrBasicBlock> dominateFrontier = new HashSet<>();
-    private final HashSet<IrBasicBlock> directDominateBlocks = new HashSet<>();
+    private final HashSet<IrBasicBlock> dominateFrontier = new LinkedHashSet<>();
+    private final HashSet<IrBasicBlock> directDominateBlocks = new LinkedHashSet<>();
     private IrBasicBlock directDominator = null;
-
-    // 活跃变量分析相关的集合
-    private final HashSet<IrValue> useSet = new HashSet<>();
-    private final HashSet<IrValue> defSet = new HashSet<>();
-    private final HashSet<IrValue> liveIn = new HashSet<>();
-    private final HashSet<IrValue> liveOut = new HashSet<>();
-
-    public HashSet<IrValue> getUseSet() {
-        return useSet;
-    }
-
-    public HashSet<IrValue> getDefSet() {
-        return defSet;
-    }
-
-    public HashSet<IrValue> getLiveIn() {
-        return liveIn;
-    }
-
-    public HashSet<IrValue> getLiveOut() {
-        return liveOut;
-    }
+    // 支配树上的先序、后序编号，未计算时为 -1
+    private int dominatorPreorder = -1;
+    private int dominatorPostorder = -1;
 
     public void addNextBlock(IrBasicBlock block) {
         this.nextBlocks.add(block);
@@ -102,12 +76,24 @@ public class IrBasicBlock extends IrValue {
         return beforeBlocks;
     }
 
-    public void addDominator(IrBasicBlock block) {
-        this.dominatorBlocks.add(block);
+    /**
+     * 记录本块在支配树上的先序、后序编号
+     * 入口不可达的块记为 (Integer.MAX_VALUE, Integer.MIN_VALUE)，视为被所有块支配
+     */
+    public void setDominatorOrder(int preorder, int postorder) {
+        this.dominatorPreorder = preorder;
+        this.dominatorPostorder = postorder;
     }
 
-    public HashSet<IrBasicBlock> getDominatorBlocks() {
-        return dominatorBlocks;
+    /**
+     * 本块是否支配 block（包括 block 自身），O(1)；尚未计算支配关系的块不支配也不被支配
+     */
+    public boolean dominates(IrBasicBlock block) {
+        if (this.dominatorPreorder < 0 || block.dominatorPreorder < 0) {
+            return false;
+        }
+        return this.dominatorPreorder <= block.dominatorPreorder
+                && block.dominatorPostorder <= this.dominatorPostorder;
     }
 
     public void setDirectDominator(IrBasicBlock block) {
@@ -132,21 +118,31 @@ public class IrBasicBlock extends IrValue {
     }
 
     /**
-     * 在指定索引处插入指令
+     * 在块首插入指令
      */
-    public void addInstrAtIndex(Instr instr, int index) {
-        this.instructions.add(index, instr);
-        instr.setBlock(this);
+    public void addInstrFirst(Instr instr) {
+        this.instructions.addFirst(instr);
+    }
+
+    /**
+     * 在本块的 anchor 之前插入指令
+     */
+    public void addInstrBefore(Instr anchor, Instr instr) {
+        this.instructions.insertBefore(anchor, instr);
+    }
+
+    /**
+     * 在本块的 anchor 之后插入指令
+     */
+    public void addInstrAfter(Instr anchor, Instr instr) {
+        this.instructions.insertAfter(anchor, instr);
     }
 
     /**
      * 获取第一条指令
      */
     public Instr getFirstInstr() {
-        if (instructions.isEmpty()) {
-            return null;
-        }
-        return instructions.get(0);
+        return instructions.getFirst();
     }
 
     /**
@@ -155,21 +151,18 @@ public class IrBasicBlock extends IrValue {
     public void addInstrBeforeJump(Instr instr) {
         Instr lastInstr = this.getLastInstr();
         if (lastInstr instanceof BrInstr || lastInstr instanceof BrCondInstr) {
-            this.instructions.add(this.instructions.size() - 1, instr);
+            this.instructions.insertBefore(lastInstr, instr);
         } else {
             this.instructions.add(instr);
         }
-        instr.setBlock(this);
     }
 
     /**
      * 检查是否包含 ParallelCopy 指令
      */
     public boolean hasParallelCopyInstr() {
-        if (this.instructions.size() < 2) {
-            return false;
-        }
-        return this.instructions.get(this.instructions.size() - 2) instanceof midend.llvm.instr.phi.ParallelCopyInstr;
+        Instr last = this.instructions.getLast();
+        return last != null && last.getPrev() instanceof midend.llvm.instr.phi.ParallelCopyInstr;
     }
 
     /**
@@ -180,25 +173,40 @@ public class IrBasicBlock extends IrValue {
             return null;
         }
         midend.llvm.instr.phi.ParallelCopyInstr copyInstr = (midend.llvm.instr.phi.ParallelCopyInstr) this.instructions
-                .get(this.instructions.size() - 2);
-        this.instructions.remove(this.instructions.size() - 2);
+                .getLast().getPrev();
+        this.instructions.remove(copyInstr);
         return copyInstr;
     }
 
     public void clearCfg() {
         this.beforeBlocks.clear();
         this.nextBlocks.clear();
-        this.dominatorBlocks.clear();
         this.dominateFrontier.clear();
         this.directDominateBlocks.clear();
         this.directDominator = null;
+        this.dominatorPreorder = -1;
+        this.dominatorPostorder = -1;
     }
 
     @Override
     public String toString() {
-        return irName + ":\n" + instructions.stream()
-                .map(instr -> "\t" + instr.toString())
-                .collect(Collectors.joining("\n"));
+        StringBuilder builder = new StringBuilder();
+        try {
+            emit(builder);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return builder.toString();
+    }
+
+    public void emit(Appendable out) throws IOException {
+        out.append(irName).append(":\n");
+        for (Instr instr = instructions.getFirst(); instr != null; instr = instr.getNext()) {
+            if (instr != instructions.getFirst()) {
+                out.append("\n");
+            }
+            out.append("\t").append(instr.toString());
+        }
     }
 
     @Override
@@ -207,39 +215,14 @@ public class IrBasicBlock extends IrValue {
     }
 
     /**
-     * 获取在指定指令处活跃的变量集合
+     * 执行 targetInstr 之后仍然活跃的变量，取自所在函数最近一次活跃变量分析登记的表
      */
-    public HashSet<IrValue> getLiveValuesAt(Instr targetInstr) {
-        HashSet<IrValue> live = new HashSet<>(this.liveOut);
-        for (int i = instructions.size() - 1; i >= 0; i--) {
-            Instr current = instructions.get(i);
-            if (current == targetInstr) {
-                return live;
-            }
-            // 逆向更新活跃变量
-            // 1. 移除被定义的变量 (Def)
-            if (current instanceof MoveInstr move) {
-                live.remove(move.getDstValue());
-            } else {
-                live.remove(current);
-            }
-            // 2. 添加被使用的变量 (Use)
-            for (IrValue use : current.getUseValueList()) {
-                if (isAllocatable(use)) {
-                    live.add(use);
-                }
-            }
-        }
-        return live;
-    }
-
-    private boolean isAllocatable(IrValue value) {
-        if (value == null || value instanceof midend.llvm.constant.IrConstant ||
-                value instanceof IrGlobalValue || value instanceof IrBasicBlock ||
-                value instanceof IrFunction) {
-            return false;
+    public List<IrValue> getLiveValuesAt(Instr targetInstr) {
+        IrLiveness liveness = function.getLiveness();
+        if (liveness == null) {
+            throw new RuntimeException("Liveness not computed for function: " + function.getIrName());
         }
-        return !value.getIrType().isVoidType();
+        return liveness.getLiveValuesAt(targetInstr);
     }
 
     @Override
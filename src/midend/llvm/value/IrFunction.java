@@ -14,8 +14,10 @@ import backend.mips.assembly.MipsAlu;
 import backend.mips.assembly.MipsLsu;
 import backend.mips.assembly.MipsLabel;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,12 +25,16 @@ public class IrFunction extends IrValue {
     private final List<IrParameter> parameters;
     private final List<IrBasicBlock> basicBlocks;
     private final HashMap<IrValue, Register> valueRegisterMap;
+    private int localVarCount;
+    private IrNumbering numbering;
+    private IrLiveness liveness;
 
     public IrFunction(String name, IrType returnType) {
         super(new IrFunctionType(returnType), name);
         this.parameters = new ArrayList<>();
         this.basicBlocks = new ArrayList<>();
-        this.valueRegisterMap = new HashMap<>();
+        this.valueRegisterMap = new LinkedHashMap<>();
+        this.localVarCount = 0;
     }
 
     public void addParameter(IrParameter parameter) {
@@ -39,6 +45,36 @@ public class IrFunction extends IrValue {
         basicBlocks.add(basicBlock);
     }
 
+    /**
+     * 分配下一个局部变量编号，计数器随函数保存，不同函数之间互不影响
+     */
+    public int nextLocalVarIndex() {
+        return localVarCount++;
+    }
+
+    /**
+     * 按当前的参数、基本块和指令重新编号，分析在开始时调用
+     * 编号写在值自身，上一次的编号随之失效，基于它的分析结果（如 IrLiveness）不能再查询
+     */
+    public IrNumbering renumber() {
+        if (this.numbering != null) {
+            this.numbering.invalidate();
+        }
+        this.numbering = new IrNumbering(this);
+        return this.numbering;
+    }
+
+    /**
+     * 最近一次活跃变量分析的结果，尚未分析时为 null
+     */
+    public IrLiveness getLiveness() {
+        return this.liveness;
+    }
+
+    public void setLiveness(IrLiveness liveness) {
+        this.liveness = liveness;
+    }
+
     public List<IrParameter> getParameters() {
         return parameters;
     }
@@ -88,7 +124,8 @@ public class IrFunction extends IrValue {
         for (int i = 0; i < basicBlocks.size(); i++) {
             IrBasicBlock block = basicBlocks.get(i);
             if (block.isEmpty()) {
-                block.addInstruction(new BrInstr(basicBlocks.get(i + 1), block));
+                // BrInstr 构造时即加入 block
+                new BrInstr(basicBlocks.get(i + 1), block);
             }
         }
     }
@@ -100,15 +137,28 @@ public class IrFunction extends IrValue {
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        builder.append("define dso_local ").append(getReturnType()).append(" ").append(irName);
+        try {
+            emit(builder);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return builder.toString();
+    }
+
+    public void emit(Appendable out) throws IOException {
+        out.append("define dso_local ").append(getReturnType().toString()).append(" ").append(irName);
         // 参数声明
-        builder.append("(");
-        builder.append(parameters.stream().map(IrParameter::toString).collect(Collectors.joining(", ")));
-        builder.append(") {\n");
+        out.append("(");
+        out.append(parameters.stream().map(IrParameter::toString).collect(Collectors.joining(", ")));
+        out.append(") {\n");
         // 语句声明
-        builder.append(basicBlocks.stream().map(IrBasicBlock::toString).collect(Collectors.joining("\n")));
-        builder.append("\n}");
-        return builder.toString();
+        for (int i = 0; i < basicBlocks.size(); i++) {
+            if (i != 0) {
+                out.append("\n");
+            }
+            basicBlocks.get(i).emit(out);
+        }
+        out.append("\n}");
     }
 
     @Override
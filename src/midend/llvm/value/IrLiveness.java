@@ -0,0 +1,94 @@
+package midend.llvm.value;
+
+import midend.llvm.instr.Instr;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 一个函数的活跃变量分析结果，值和基本块按分析时的 numbering 编号
+ * 每个基本块的入口、出口活跃集合是位集；调用和输入输出指令处的活跃集合按指令存成压缩的行：
+ * pointRows 按指令编号给出行号，第 r 行的值编号依次存放在 pointValues 的 [pointStarts[r], pointStarts[r + 1]) 中，
+ * 后端布置栈帧和翻译调用时的查询为 O(1)
+ */
+public class IrLiveness {
+    private final IrNumbering numbering;
+    private final BitSet[] liveIn;
+    private final BitSet[] liveOut;
+    private final int[] pointRows;
+    private final int[] pointStarts;
+    private final int[] pointValues;
+
+    public IrLiveness(IrNumbering numbering, BitSet[] liveIn, BitSet[] liveOut,
+                      int[] pointRows, int[] pointStarts, int[] pointValues) {
+        this.numbering = numbering;
+        this.liveIn = liveIn;
+        this.liveOut = liveOut;
+        this.pointRows = pointRows;
+        this.pointStarts = pointStarts;
+        this.pointValues = pointValues;
+    }
+
+    /**
+     * 分析时的编号，后端按它给值分配栈槽
+     */
+    public IrNumbering getNumbering() {
+        checkNumbering();
+        return numbering;
+    }
+
+    /**
+     * block 入口处活跃的值编号，调用者不应修改
+     */
+    public BitSet getLiveIn(IrBasicBlock block) {
+        checkNumbering();
+        return liveIn[numbering.blockIdOf(block)];
+    }
+
+    /**
+     * block 出口处活跃的值编号，调用者不应修改
+     */
+    public BitSet getLiveOut(IrBasicBlock block) {
+        checkNumbering();
+        return liveOut[numbering.blockIdOf(block)];
+    }
+
+    /**
+     * 执行 instr 之后仍然活跃的值，即跨越 instr 的值，按编号升序
+     * 只对分析时登记的调用和输入输出指令可用，返回表中一行的只读视图
+     */
+    public List<IrValue> getLiveValuesAt(Instr instr) {
+        checkNumbering();
+        int id = numbering.idOf(instr);
+        int row = id < 0 ? -1 : pointRows[id];
+        if (row < 0) {
+            throw new RuntimeException("No live point recorded for instruction: " + instr);
+        }
+        int from = pointStarts[row];
+        int size = pointStarts[row + 1] - from;
+        return new AbstractList<>() {
+            @Override
+            public IrValue get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return numbering.getValue(pointValues[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * 函数在分析之后重新编号时，值上记的编号已不属于本结果，查询会静默得到错误的集合，因此直接报错
+     */
+    private void checkNumbering() {
+        if (numbering.isStale()) {
+            throw new RuntimeException("Liveness is stale: function was renumbered after the analysis");
+        }
+    }
+}
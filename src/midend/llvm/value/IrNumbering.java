@@ -0,0 +1,108 @@
+package midend.llvm.value;
+
+import midend.llvm.instr.Instr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 函数内的稠密编号
+ * 局部值按参数、各基本块中的指令、指令操作数中尚未编号的局部值（RemovePhi 摘下的 Phi 及其临时值）的顺序编为 [0, valueCount)，
+ * 基本块按函数中的顺序另编为 [0, blockCount)；编号记在值自身，查询为 O(1)，分析据此用位集和以编号为下标的数组
+ * 代替以对象为键的散列表。编号只反映编号时的函数，增删指令或基本块之后需经 IrFunction.renumber 重新编号
+ */
+public class IrNumbering {
+    private final IrValue[] values;
+    private final IrBasicBlock[] blocks;
+    // 函数重新编号后为 true，值上记的已是新的编号
+    private boolean stale;
+
+    IrNumbering(IrFunction function) {
+        List<IrValue> numbered = new ArrayList<>();
+        for (IrParameter parameter : function.getParameters()) {
+            number(parameter, numbered);
+        }
+        for (IrBasicBlock block : function.getBasicBlocks()) {
+            for (Instr instr : block.getInstructions()) {
+                number(instr, numbered);
+            }
+        }
+        for (IrBasicBlock block : function.getBasicBlocks()) {
+            for (Instr instr : block.getInstructions()) {
+                for (IrValue operand : instr.getUseValueList()) {
+                    if (isLocal(operand) && !contains(operand, numbered)) {
+                        number(operand, numbered);
+                    }
+                }
+            }
+        }
+        this.values = numbered.toArray(new IrValue[0]);
+
+        List<IrBasicBlock> basicBlocks = function.getBasicBlocks();
+        this.blocks = basicBlocks.toArray(new IrBasicBlock[0]);
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i].localId = i;
+        }
+    }
+
+    private static void number(IrValue value, List<IrValue> numbered) {
+        value.localId = numbered.size();
+        numbered.add(value);
+    }
+
+    private static boolean contains(IrValue value, List<IrValue> numbered) {
+        int id = value.localId;
+        return id >= 0 && id < numbered.size() && numbered.get(id) == value;
+    }
+
+    /**
+     * 函数私有的值：参数、指令以及 RemovePhi 引入的临时值；常量、全局变量、函数和基本块不参与编号
+     */
+    private static boolean isLocal(IrValue value) {
+        return value instanceof Instr || value instanceof IrParameter
+                || value != null && value.getClass() == IrValue.class;
+    }
+
+    void invalidate() {
+        this.stale = true;
+    }
+
+    /**
+     * 所属函数是否已经重新编号；失效的编号不能再用 idOf 和 blockIdOf 查询
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public int getValueCount() {
+        return values.length;
+    }
+
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    public IrValue getValue(int id) {
+        return values[id];
+    }
+
+    public IrBasicBlock getBlock(int id) {
+        return blocks[id];
+    }
+
+    /**
+     * @return value 的编号；不属于本次编号的值返回 -1
+     */
+    public int idOf(IrValue value) {
+        int id = value.localId;
+        return id >= 0 && id < values.length && values[id] == value ? id : -1;
+    }
+
+    /**
+     * @return block 的编号；不属于本次编号的基本块返回 -1
+     */
+    public int blockIdOf(IrBasicBlock block) {
+        int id = block.localId;
+        return id >= 0 && id < blocks.length && blocks[id] == block ? id : -1;
+    }
+}
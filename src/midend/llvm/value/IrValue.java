@@ -2,20 +2,19 @@ package midend.llvm.value;
 
 import midend.llvm.type.IrType;
 import midend.llvm.use.IrUse;
-import midend.llvm.use.IrUser;
-
-import java.util.ArrayList;
-import java.util.List;
+import midend.llvm.use.IrUseList;
 
 public class IrValue {
     protected final IrType irType;
     protected final String irName;
-    protected final List<IrUse> beUsedList;
+    protected final IrUseList beUsedList;
+    // 所在函数最近一次编号时分配的编号，由 IrNumbering 维护
+    int localId = -1;
 
     public IrValue(IrType irType, String irName) {
         this.irType = irType;
         this.irName = irName;
-        this.beUsedList = new ArrayList<>();
+        this.beUsedList = new IrUseList();
     }
 
     public IrType getIrType() {
@@ -26,31 +25,24 @@ public class IrValue {
         return this.irName;
     }
 
-    public void addUse(IrUse use) {
-        this.beUsedList.add(use);
-    }
-
-    public void deleteUser(IrUser user) {
-        this.beUsedList.removeIf(use -> use.getUser() == user);
-    }
-
-    public List<IrUse> getBeUsedList() {
+    /**
+     * 使用此 value 的全部 IrUse，按添加顺序排列
+     */
+    public IrUseList getBeUsedList() {
         return this.beUsedList;
     }
 
     /**
-     * 将所有使用此 value 的 user 替换为使用 newValue
+     * 将所有使用此 value 的 user 替换为使用 newValue，与使用次数成正比
      */
     public void modifyAllUsersToNewValue(IrValue newValue) {
-        ArrayList<IrUser> userList = new ArrayList<>();
-        for (IrUse use : this.beUsedList) {
-            userList.add(use.getUser());
+        if (newValue == this) {
+            return;
         }
-        for (IrUser user : userList) {
-            user.modifyValue(this, newValue);
-            this.deleteUser(user);
-            // 将 newValue 加入到 user 的使用列表中
-            newValue.addUse(new IrUse(user, newValue));
+        IrUse use;
+        while ((use = this.beUsedList.getFirst()) != null) {
+            // 改写操作数时结点从本链表摘下、挂到 newValue 的链表尾部
+            use.getUser().setUseValue(use.getOperandIndex(), newValue);
         }
     }
 
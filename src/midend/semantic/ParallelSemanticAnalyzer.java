@@ -0,0 +1,109 @@
+package midend.semantic;
+
+import driver.CompilationContext;
+import driver.telemetry.Telemetry;
+import error.Error;
+import error.ErrorRecorder;
+import frontend.ast.CompUnit;
+import frontend.ast.FuncDef;
+import frontend.ast.MainFuncDef;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 函数体的并行语义分析
+ * 全局声明分析完后，第一阶段按顺序登记全部函数符号，并在登记每个函数之后 fork 出它的 SymbolManager，
+ * 使其只看到全局变量、在它之前定义的函数和它自身，与串行分析时的可见范围一致；
+ * 第二阶段各函数体（连同主函数）在独立的 ForkJoin 任务中用私有的作用域栈和错误缓冲分析。
+ * 全部完成后按源程序顺序并入符号表（作用域序号与串行分析相同）并登记错误，
+ * 每个函数的错误先是函数头的重定义、再是函数体内的，与串行分析的登记顺序一致
+ */
+public class ParallelSemanticAnalyzer {
+    // 函数定义少于该数量时并行没有收益
+    private static final int MIN_FUNCTIONS = 2;
+
+    /**
+     * 分析 compUnit 的全部函数定义和主函数，全局声明须已分析
+     * @return 是否已完成分析；不满足并行条件时返回 false，由调用者串行分析
+     */
+    static boolean analyze(SymbolManager symbolManager, CompUnit compUnit) {
+        // 只有一个工作线程时拆分只会增加开销
+        if (ForkJoinPool.getCommonPoolParallelism() < 2
+                || compUnit.getFunctionDefinitions().size() < MIN_FUNCTIONS) {
+            return false;
+        }
+
+        CompilationContext context = CompilationContext.current();
+        List<Body> bodies = new ArrayList<>();
+        for (FuncDef funcDef : compUnit.getFunctionDefinitions()) {
+            Body body = new Body(context, funcDef, null);
+            body.funcSymbol = new SemanticAnalyzer(symbolManager, body.errors).declareFunction(funcDef);
+            body.symbolManager = symbolManager.fork();
+            bodies.add(body);
+        }
+        if (compUnit.hasMainFunction()) {
+            Body body = new Body(context, null, compUnit.getMainFunction());
+            body.symbolManager = symbolManager.fork();
+            bodies.add(body);
+        }
+
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(bodies);
+            }
+        });
+
+        ErrorRecorder recorder = ErrorRecorder.getErrorRecorder();
+        for (Body body : bodies) {
+            if (body.failure != null) {
+                throw body.failure;
+            }
+            symbolManager.join(body.symbolManager);
+            for (Error error : body.errors) {
+                recorder.addError(error);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一个函数体的分析任务
+     */
+    @SuppressWarnings("serial")
+    private static class Body extends RecursiveAction {
+        private final CompilationContext context;
+        private final FuncDef funcDef;
+        private final MainFuncDef mainFuncDef;
+        private final List<Error> errors = new ArrayList<>();
+        private FunctionSymbol funcSymbol;
+        private SymbolManager symbolManager;
+        private RuntimeException failure;
+
+        Body(CompilationContext context, FuncDef funcDef, MainFuncDef mainFuncDef) {
+            this.context = context;
+            this.funcDef = funcDef;
+            this.mainFuncDef = mainFuncDef;
+        }
+
+        @Override
+        protected void compute() {
+            context.run(() -> Telemetry.getTelemetry().worker(() -> {
+                try {
+                    SemanticAnalyzer analyzer = new SemanticAnalyzer(symbolManager, errors);
+                    if (mainFuncDef != null) {
+                        analyzer.analyzeMainFunction(mainFuncDef);
+                    } else if (funcSymbol != null) {
+                        analyzer.analyzeFunctionBody(funcDef, funcSymbol);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package midend.semantic;
+
+import java.util.Arrays;
+
+/**
+ * 扁平的作用域符号索引
+ * 标识符驻留为整数编号，开放定址表把名字映射到编号，编号再映射到该名字当前可见的最内层条目；
+ * 同名条目经 shadowed 链成栈，栈顶是最内层定义。进入作用域时记下条目数，离开时按相反顺序弹出
+ * 此后压入的条目并恢复被遮蔽的定义，因此查找不随作用域深度增长，离开作用域的代价与其中的符号数成正比
+ * 可以叠加在只读的基础索引上：本索引中没有的名字到 base 的前 baseLimit 个条目中查找，
+ * 并行分析各函数体时各自的局部索引共享同一份全局索引
+ */
+public class ScopedSymbolIndex {
+    private static final int NONE = -1;
+
+    // 驻留表：槽位 → 名字及其编号
+    private String[] slotNames;
+    private int[] slotIds;
+    private int nameCount;
+    // 编号 → 栈顶条目
+    private int[] heads;
+
+    // 条目：符号、所在符号表、名字编号、被遮蔽的条目
+    private Symbol[] entrySymbols;
+    private SymbolTable[] entryTables;
+    private int[] entryNames;
+    private int[] entryShadowed;
+    private int entryCount;
+
+    // 每层作用域进入时的条目数
+    private int[] scopeMarks;
+    private int scopeCount;
+
+    // 只读的基础索引及其中可见的条目数
+    private final ScopedSymbolIndex base;
+    private final int baseLimit;
+
+    public ScopedSymbolIndex() {
+        this(null, 0);
+    }
+
+    public ScopedSymbolIndex(ScopedSymbolIndex base, int baseLimit) {
+        this.base = base;
+        this.baseLimit = baseLimit;
+        this.slotNames = new String[64];
+        this.slotIds = new int[64];
+        this.nameCount = 0;
+        this.heads = new int[32];
+        this.entrySymbols = new Symbol[64];
+        this.entryTables = new SymbolTable[64];
+        this.entryNames = new int[64];
+        this.entryShadowed = new int[64];
+        this.entryCount = 0;
+        this.scopeMarks = new int[16];
+        this.scopeCount = 0;
+    }
+
+    public void enterScope() {
+        if (scopeCount == scopeMarks.length) {
+            scopeMarks = Arrays.copyOf(scopeMarks, scopeCount << 1);
+        }
+        scopeMarks[scopeCount++] = entryCount;
+    }
+
+    /**
+     * 弹出最内层作用域的全部条目
+     */
+    public void exitScope() {
+        int mark = scopeMarks[--scopeCount];
+        while (entryCount > mark) {
+            entryCount--;
+            heads[entryNames[entryCount]] = entryShadowed[entryCount];
+            entrySymbols[entryCount] = null;
+            entryTables[entryCount] = null;
+        }
+    }
+
+    /**
+     * 把 symbol 作为 table 中的定义压入当前作用域
+     */
+    public void push(Symbol symbol, SymbolTable table) {
+        int id = intern(symbol.getName());
+        if (entryCount == entrySymbols.length) {
+            int capacity = entryCount << 1;
+            entrySymbols = Arrays.copyOf(entrySymbols, capacity);
+            entryTables = Arrays.copyOf(entryTables, capacity);
+            entryNames = Arrays.copyOf(entryNames, capacity);
+            entryShadowed = Arrays.copyOf(entryShadowed, capacity);
+        }
+        entrySymbols[entryCount] = symbol;
+        entryTables[entryCount] = table;
+        entryNames[entryCount] = id;
+        entryShadowed[entryCount] = heads[id];
+        heads[id] = entryCount;
+        entryCount++;
+    }
+
+    /**
+     * 已压入的条目数
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * 当前可见的最内层定义
+     */
+    public Symbol lookup(String name) {
+        int entry = headOf(name);
+        if (entry != NONE) {
+            return entrySymbols[entry];
+        }
+        if (base == null) {
+            return null;
+        }
+        entry = base.visibleEntry(name, baseLimit);
+        return entry == NONE ? null : base.entrySymbols[entry];
+    }
+
+    /**
+     * 最内层定义属于 table 时返回它，即只在 table 对应的作用域中查找
+     */
+    public Symbol lookupLocal(String name, SymbolTable table) {
+        int entry = headOf(name);
+        if (entry != NONE) {
+            return entryTables[entry] == table ? entrySymbols[entry] : null;
+        }
+        if (base == null) {
+            return null;
+        }
+        entry = base.visibleEntry(name, baseLimit);
+        return entry != NONE && base.entryTables[entry] == table ? base.entrySymbols[entry] : null;
+    }
+
+    /**
+     * 只看前 limit 个条目时名字的最内层条目
+     */
+    private int visibleEntry(String name, int limit) {
+        int entry = headOf(name);
+        while (entry != NONE && entry >= limit) {
+            entry = entryShadowed[entry];
+        }
+        return entry;
+    }
+
+    private int headOf(String name) {
+        int slot = findSlot(name);
+        return slotNames[slot] == null ? NONE : heads[slotIds[slot]];
+    }
+
+    private int findSlot(String name) {
+        int mask = slotNames.length - 1;
+        int hash = name.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (slotNames[slot] != null && !slotNames[slot].equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int intern(String name) {
+        int slot = findSlot(name);
+        if (slotNames[slot] != null) {
+            return slotIds[slot];
+        }
+        int id = nameCount++;
+        slotNames[slot] = name;
+        slotIds[slot] = id;
+        if (id == heads.length) {
+            heads = Arrays.copyOf(heads, id << 1);
+        }
+        heads[id] = NONE;
+        if (nameCount * 2 > slotNames.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        String[] oldNames = slotNames;
+        int[] oldIds = slotIds;
+        slotNames = new String[oldNames.length << 1];
+        slotIds = new int[oldNames.length << 1];
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = findSlot(oldNames[i]);
+                slotNames[slot] = oldNames[i];
+                slotIds[slot] = oldIds[i];
+            }
+        }
+    }
+}
@@ -1,32 +1,61 @@
 package midend.semantic;
 
+import driver.CompilationContext;
 import error.Error;
 import error.ErrorRecorder;
 import error.ErrorType;
 import frontend.ast.*;
 import frontend.ast.Number;
 import frontend.lexer.Token;
+import frontend.parser.Translator;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import midend.visit.IrBlockVisitor;
+import midend.visit.IrDeclVisitor;
+import midend.visit.IrFuncDefVisitor;
 import utils.ConstExpEvaluator;
 import utils.ParserWrapper;
 
 /**
  * 语义分析器
  * 负责遍历AST，建立符号表，检查语义错误
+ * 解析出的符号直接绑定到定义处和使用处的 Ident 上，中间代码生成据此取符号，不再重放作用域、按名字查找
+ * emitIr 为 true 时每分析完一个全局声明或函数体中的一个块项，只要尚无错误就立即为它生成中间代码，
+ * 与分析后单独遍历一遍的结果一致；出现错误后不再生成，已生成的部分由调用者丢弃
+ * 作为 Translator 时由 Parser 逐个顶层成分驱动，调用前先 begin
+ * 开启 parallelSemantic 且不同时生成中间代码时，函数体交给 ParallelSemanticAnalyzer 并行分析
  */
-public class SemanticAnalyzer {
+public class SemanticAnalyzer implements Translator {
     private final SymbolManager symbolManager;
     private String currentFunctionReturnType;  // 当前函数的返回类型
     // private final Map<Integer,Boolean> inLoop;  // 是否在循环中
     private boolean inLoop;
     private final Map<Integer,Boolean> hasReturnStatement;  // 当前函数是否有return语句
+    private final boolean emitIr;  // 是否在分析的同时生成中间代码
+    // 不为 null 时错误先暂存于此，由 ParallelSemanticAnalyzer 按源程序顺序登记
+    private final List<Error> errorBuffer;
 
     public SemanticAnalyzer() {
-        this.symbolManager = SymbolManager.getInstance();
+        this(false);
+    }
+
+    public SemanticAnalyzer(boolean emitIr) {
+        this(SymbolManager.getInstance(), emitIr, null);
+    }
+
+    SemanticAnalyzer(SymbolManager symbolManager, List<Error> errorBuffer) {
+        this(symbolManager, false, errorBuffer);
+    }
+
+    private SemanticAnalyzer(SymbolManager symbolManager, boolean emitIr, List<Error> errorBuffer) {
+        this.emitIr = emitIr;
+        this.errorBuffer = errorBuffer;
+        this.symbolManager = symbolManager;
         this.currentFunctionReturnType = null;
         // this.inLoop = new HashMap<>();
         this.inLoop = false;
@@ -45,23 +74,81 @@ public class SemanticAnalyzer {
      * 分析编译单元
      */
     public void analyze(CompUnit compUnit) {
-        symbolManager.initialize();
+        begin();
 
         // 处理所有声明和函数定义
         for (Decl decl : compUnit.getDeclarations()) {
-            analyzeDeclaration(decl);
+            translateDecl(decl);
+        }
+
+        if (!emitIr && CompilationContext.current().getOptions().isParallelSemantic()
+                && ParallelSemanticAnalyzer.analyze(symbolManager, compUnit)) {
+            return;
         }
 
         for (FuncDef funcDef : compUnit.getFunctionDefinitions()) {
-            analyzeFunction(funcDef);
+            translateFuncDef(funcDef);
         }
 
         // 分析主函数
         if (compUnit.hasMainFunction()) {
-            analyzeMainFunction(compUnit.getMainFunction());
+            translateMainFuncDef(compUnit.getMainFunction());
+        }
+    }
+
+    /**
+     * 重置符号表，开始分析一个新的编译单元
+     */
+    public void begin() {
+        symbolManager.initialize();
+    }
+
+    /**
+     * 分析全局声明
+     */
+    @Override
+    public void translateDecl(Decl decl) {
+        analyzeDeclaration(decl);
+        if (emitting()) {
+            // true表全局作用域
+            IrDeclVisitor.visitDecl(decl, true);
+        }
+    }
+
+    @Override
+    public void translateFuncDef(FuncDef funcDef) {
+        analyzeFunction(funcDef);
+    }
+
+    @Override
+    public void translateMainFuncDef(MainFuncDef mainFuncDef) {
+        analyzeMainFunction(mainFuncDef);
+    }
+
+    private void reportError(Error error) {
+        if (errorBuffer != null) {
+            errorBuffer.add(error);
+        } else {
+            ErrorRecorder.getErrorRecorder().addError(error);
+        }
+    }
+
+    /**
+     * 把符号加入当前作用域，同名时报告 NAME_REDEFINED
+     */
+    private void declare(Symbol symbol, int lineNumber) {
+        if (!symbolManager.addSymbol(symbol)) {
+            reportError(new Error(ErrorType.NAME_REDEFINED, lineNumber));
         }
     }
 
+    /**
+     * 是否为刚分析完的成分生成中间代码：一旦出现错误，中间代码不会被使用
+     */
+    private boolean emitting() {
+        return emitIr && !ErrorRecorder.haveError();
+    }
+
     /**
      * 分析声明
      */
@@ -103,6 +190,7 @@ public class SemanticAnalyzer {
         List<Integer> dimensions = new ArrayList<>();
         if (constDef.getConstExp() != null) {
             // 计算常量表达式得到维度
+            resolveNames(constDef.getConstExp());
             dimensions.add(ConstExpEvaluator.eval(constDef.getConstExp()));
             type = SymbolType.CONST_INT_ARRAY;
         }
@@ -110,7 +198,10 @@ public class SemanticAnalyzer {
         VariableSymbol symbol = new VariableSymbol(name, type, lineNumber, isGlobal, dimensions);
         symbol.setInitialValue(constDef.getInitVal());
 
-        symbolManager.addSymbol(symbol, lineNumber);
+        declare(symbol, lineNumber);
+        ident.setSymbol(symbol);
+        // 与中间代码生成一致，初值在定义之后解析，其中的同名引用指向正在定义的符号
+        resolveNames(constDef.getInitVal());
     }
 
     /**
@@ -144,6 +235,7 @@ public class SemanticAnalyzer {
         List<Integer> dimensions = new ArrayList<>();
         if (varDef.getConstExp() != null) {
             // 计算常量表达式得到数组维度
+            resolveNames(varDef.getConstExp());
             dimensions.add(ConstExpEvaluator.eval(varDef.getConstExp()));  // 占位
             type = SymbolType.INT_ARRAY;
         }
@@ -153,16 +245,29 @@ public class SemanticAnalyzer {
             symbol.setInitialValue(varDef.getInitVal());
         }
 
-        symbolManager.addSymbol(symbol, lineNumber);
+        declare(symbol, lineNumber);
+        ident.setSymbol(symbol);
+        resolveNames(varDef.getInitVal());
     }
 
     /**
      * 分析函数定义
      */
     private void analyzeFunction(FuncDef funcDef) {
+        FunctionSymbol funcSymbol = declareFunction(funcDef);
+        if (funcSymbol != null) {
+            analyzeFunctionBody(funcDef, funcSymbol);
+        }
+    }
+
+    /**
+     * 由函数头建立函数符号并加入全局作用域
+     * @return 函数符号，函数名缺失时为 null
+     */
+    FunctionSymbol declareFunction(FuncDef funcDef) {
         Ident ident = funcDef.getIdent();
         if (ident == null) {
-            return;
+            return null;
         }
 
         String funcName = ident.getName();
@@ -195,10 +300,19 @@ public class SemanticAnalyzer {
         FunctionSymbol funcSymbol = new FunctionSymbol(
                 funcName, returnType, lineNumber, paramTypes, paramNames);
 
-        symbolManager.addSymbol(funcSymbol, lineNumber);
+        declare(funcSymbol, lineNumber);
+        ident.setSymbol(funcSymbol);
+        return funcSymbol;
+    }
+
+    /**
+     * 在新的函数作用域中分析形参和函数体
+     */
+    void analyzeFunctionBody(FuncDef funcDef, FunctionSymbol funcSymbol) {
+        SymbolType returnType = funcSymbol.getReturnType();
 
         // 进入函数作用域
-        symbolManager.enterScope(true);
+        symbolManager.enterScope();
         currentFunctionReturnType = returnType.toString();
         hasReturnStatement.put(getCurrentScopeNumber(), Boolean.FALSE);
 
@@ -214,11 +328,16 @@ public class SemanticAnalyzer {
                     }
                     VariableSymbol paramSymbol = new VariableSymbol(
                             paramIdent.getName(), paramType, paramIdent.getLineNumber(), false);
-                    symbolManager.addSymbol(paramSymbol, paramIdent.getLineNumber());
+                    declare(paramSymbol, paramIdent.getLineNumber());
+                    paramIdent.setSymbol(paramSymbol);
                 }
             }
         }
 
+        if (emitting()) {
+            IrFuncDefVisitor.enterFuncDef(funcDef);
+        }
+
         // 分析函数体（函数体的Block不创建新作用域，直接在当前作用域中分析）
         Block block= funcDef.getBlock();
         if (block != null) {
@@ -228,10 +347,13 @@ public class SemanticAnalyzer {
         // 检查返回值
         if (returnType != SymbolType.VOID && !hasReturnStatement.get(getCurrentScopeNumber())) {
             if (block != null) {
-                ErrorRecorder.getErrorRecorder().addError(
-                        new Error(ErrorType.MISSING_RETURN, block.getChildren().get(block.getChildren().size()-1).getLineNumber()));
+                reportError(
+                        new Error(ErrorType.MISSING_RETURN, block.getChild(block.getChildCount()-1).getLineNumber()));
             }
         }
+        if (emitting()) {
+            IrFuncDefVisitor.exitFunction();
+        }
 
         // 退出函数作用域
         symbolManager.exitScope();
@@ -241,11 +363,14 @@ public class SemanticAnalyzer {
     /**
      * 分析主函数
      */
-    private void analyzeMainFunction(MainFuncDef mainFunc) {
+    void analyzeMainFunction(MainFuncDef mainFunc) {
         // 进入主函数作用域
-        symbolManager.enterScope(true);
+        symbolManager.enterScope();
         currentFunctionReturnType = "int";
         hasReturnStatement.put(getCurrentScopeNumber(),Boolean.FALSE);
+        if (emitting()) {
+            IrFuncDefVisitor.enterMainFuncDef();
+        }
 
         // 分析函数体（Block不创建新作用域）
         Block block = mainFunc.getBlock();
@@ -257,11 +382,14 @@ public class SemanticAnalyzer {
         if (!hasReturnStatement.get(getCurrentScopeNumber())) {
             int lineNumber = 0;
             if (block != null) {
-                lineNumber = block.getChildren().get(block.getChildren().size()-1).getLineNumber();
+                lineNumber = block.getChild(block.getChildCount()-1).getLineNumber();
             }
-            ErrorRecorder.getErrorRecorder().addError(
+            reportError(
                     new Error(ErrorType.MISSING_RETURN, lineNumber));
         }
+        if (emitting()) {
+            IrFuncDefVisitor.exitFunction();
+        }
 
         // 退出主函数作用域
         symbolManager.exitScope();
@@ -272,7 +400,7 @@ public class SemanticAnalyzer {
      * 分析代码块（会创建新作用域）
      */
     private void analyzeBlock(Block block) {
-        symbolManager.enterScope(true);
+        symbolManager.enterScope();
 
         for (BlockItem item : block.getBlockItems()) {
             analyzeBlockItem(item);
@@ -304,6 +432,9 @@ public class SemanticAnalyzer {
                 }
             }
             analyzeBlockItem(block.getBlockItems().get(i));
+            if (emitting()) {
+                IrBlockVisitor.visitBlockItem(block.getBlockItems().get(i));
+            }
         }
     }
 
@@ -383,15 +514,17 @@ public class SemanticAnalyzer {
 
         // 查找符号
         Symbol symbol = symbolManager.lookupSymbol(name);
+        lVal.getIdent().setSymbol(symbol);
+        resolveNames(lVal.getIndexExp());
         if (symbol == null) {
-            ErrorRecorder.getErrorRecorder().addError(
+            reportError(
                     new Error(ErrorType.NAME_UNDEFINED, lineNumber));
             return;
         }
 
         // 检查是否为常量
         if (symbol instanceof VariableSymbol varSymbol && varSymbol.isConst()) {
-            ErrorRecorder.getErrorRecorder().addError(
+            reportError(
                     new Error(ErrorType.MODIFY_CONSTANT, lineNumber));
         }
 
@@ -412,8 +545,8 @@ public class SemanticAnalyzer {
             analyzeExpression(returnStmt.getExp());
 
             if ("void".equals(currentFunctionReturnType)) {
-                ErrorRecorder.getErrorRecorder().addError(
-                        new Error(ErrorType.RETURN_TYPE_MISMATCH, returnStmt.getChildren().get(0).getLineNumber()));
+                reportError(
+                        new Error(ErrorType.RETURN_TYPE_MISMATCH, returnStmt.getChild(0).getLineNumber()));
             }
         }
     }
@@ -485,7 +618,7 @@ public class SemanticAnalyzer {
             Symbol symbol = symbolManager.lookupSymbol(name);
             // 检查是否为常量
             if (symbol instanceof VariableSymbol varSymbol && varSymbol.isConst()) {
-                ErrorRecorder.getErrorRecorder().addError(
+                reportError(
                         new Error(ErrorType.MODIFY_CONSTANT, lineNumber));
             }
             analyzeLVal(lVal);
@@ -506,7 +639,7 @@ public class SemanticAnalyzer {
             Symbol symbol = symbolManager.lookupSymbol(name);
             // 检查是否为常量
             if (symbol instanceof VariableSymbol varSymbol && varSymbol.isConst()) {
-                ErrorRecorder.getErrorRecorder().addError(
+                reportError(
                         new Error(ErrorType.MODIFY_CONSTANT, lineNumber));
             }
             analyzeLVal(lVal);
@@ -522,8 +655,8 @@ public class SemanticAnalyzer {
     private void analyzeBreak(BreakStmt breakStmt) {
         if (!inLoop) {
         // if (!inLoop.getOrDefault(getCurrentScopeNumber(),false)) {
-            ErrorRecorder.getErrorRecorder().addError(
-                    new Error(ErrorType.BREAK_CONTINUE_OUTSIDE_LOOP, breakStmt.getChildren().get(0).getLineNumber()));
+            reportError(
+                    new Error(ErrorType.BREAK_CONTINUE_OUTSIDE_LOOP, breakStmt.getChild(0).getLineNumber()));
         }
     }
 
@@ -533,8 +666,8 @@ public class SemanticAnalyzer {
     private void analyzeContinue(ContinueStmt continueStmt) {
         if (!inLoop) {
         // if (!inLoop.getOrDefault(getCurrentScopeNumber(),false)) {
-            ErrorRecorder.getErrorRecorder().addError(
-                    new Error(ErrorType.BREAK_CONTINUE_OUTSIDE_LOOP, continueStmt.getChildren().get(0).getLineNumber()));
+            reportError(
+                    new Error(ErrorType.BREAK_CONTINUE_OUTSIDE_LOOP, continueStmt.getChild(0).getLineNumber()));
         }
     }
 
@@ -616,8 +749,9 @@ public class SemanticAnalyzer {
 
         // 查找符号
         Symbol symbol = symbolManager.lookupSymbol(name);
+        lVal.getIdent().setSymbol(symbol);
         if (symbol == null) {
-            ErrorRecorder.getErrorRecorder().addError(
+            reportError(
                     new Error(ErrorType.NAME_UNDEFINED, lineNumber));
         }
 
@@ -627,6 +761,30 @@ public class SemanticAnalyzer {
         }
     }
 
+    /**
+     * 只解析 node 子树中的左值和函数名并绑定符号，不报告错误
+     * 用于语义检查不遍历、而中间代码生成会访问的部分（变量初值、赋值左值的下标）
+     */
+    private void resolveNames(ASTNode node) {
+        if (node == null) {
+            return;
+        }
+        Deque<ASTNode> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            ASTNode current = stack.pop();
+            if (current instanceof LVal lVal && lVal.getIdent() != null) {
+                lVal.getIdent().setSymbol(symbolManager.lookupSymbol(lVal.getIdent().getName()));
+            } else if (current instanceof UnaryExp unaryExp && unaryExp.isFunctionCall()
+                    && unaryExp.getFuncName() != null) {
+                unaryExp.getFuncName().setSymbol(symbolManager.lookupSymbol(unaryExp.getFuncName().getName()));
+            }
+            for (ASTNode child : current.getChildren()) {
+                stack.push(child);
+            }
+        }
+    }
+
     /**
      * 分析一元表达式
      */
@@ -664,11 +822,12 @@ public class SemanticAnalyzer {
 
         // 查找函数符号
         Symbol symbol = symbolManager.lookupSymbol(name);
+        funcName.setSymbol(symbol);
         if (symbol == null) {
-            ErrorRecorder.getErrorRecorder().addError(
+            reportError(
                     new Error(ErrorType.NAME_UNDEFINED, lineNumber));
         } else if (!(symbol instanceof FunctionSymbol)) {
-            ErrorRecorder.getErrorRecorder().addError(
+            reportError(
                     new Error(ErrorType.NAME_UNDEFINED, lineNumber));
         }
 
@@ -686,14 +845,14 @@ public class SemanticAnalyzer {
         if(symbol instanceof FunctionSymbol funcSymbol){
             // 检查参数数量
             if (argTypes.size() != funcSymbol.getParameterCount()) {
-                ErrorRecorder.getErrorRecorder().addError(
+                reportError(
                         new Error(ErrorType.FUNCTION_PARAM_COUNT_MISMATCH, lineNumber));
                 return;
             }
 
             // 检查参数类型
             if (!funcSymbol.matchParameters(argTypes)) {
-                ErrorRecorder.getErrorRecorder().addError(
+                reportError(
                         new Error(ErrorType.FUNCTION_PARAM_TYPE_MISMATCH, lineNumber));
             }
         }
@@ -788,7 +947,7 @@ public class SemanticAnalyzer {
         if (unaryExp.isFunctionCall()) {
             // 可以进一步查符号表获取函数返回类型，但 SysY 中返回值函数都是 int
             if (unaryExp.getFuncName() != null) {
-                Symbol symbol = symbolManager.lookupSymbol(unaryExp.getFuncName().getName());
+                Symbol symbol = unaryExp.getFuncName().getSymbol();
                 if (symbol instanceof FunctionSymbol funcSymbol) {
                     // 如果是 void 函数，理论上不应该在表达式中使用，这里还是返回 INT
                     return funcSymbol.getReturnType();
@@ -845,8 +1004,8 @@ public class SemanticAnalyzer {
             return SymbolType.INT;
         }
 
-        String name = lVal.getIdent().getName();
-        Symbol symbol = symbolManager.lookupSymbol(name);
+        // 实参已经分析过，直接使用绑定的符号
+        Symbol symbol = lVal.getSymbol();
 
         if (!(symbol instanceof VariableSymbol varSymbol)) {
             return SymbolType.INT;
@@ -889,8 +1048,8 @@ public class SemanticAnalyzer {
 
             // 检查格式说明符数量是否与表达式数量匹配
             if (formatSpecifierCount != expCount) {
-                ErrorRecorder.getErrorRecorder().addError(
-                        new Error(ErrorType.PRINTF_FORMAT_MISMATCH, printStmt.getChildren().get(0).getLineNumber()));
+                reportError(
+                        new Error(ErrorType.PRINTF_FORMAT_MISMATCH, printStmt.getChild(0).getLineNumber()));
             }
         }
     }
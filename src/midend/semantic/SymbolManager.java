@@ -1,5 +1,8 @@
 package midend.semantic;
 
+import driver.CompilationContext;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
@@ -7,25 +10,35 @@ import java.util.Stack;
 /**
  * 符号管理器
  * 管理符号表的创建、切换和查找
- * 使用栈来管理作用域
+ * 使用栈来管理作用域，名字查找经由扁平的 ScopedSymbolIndex，与作用域深度无关
+ * fork 得到的管理器共享全局符号表，只看到 fork 时已有的全局符号，自己的作用域从 0 起编号，
+ * 各自分析一个函数体，再由 join 按顺序重新编号并并入
  */
 public class SymbolManager {
-    private static SymbolManager instance;
     private SymbolTable rootTable;  // 全局符号表
     private Stack<SymbolTable> scopeStack;  // 作用域栈
     private List<SymbolTable> allTables;  // 所有符号表（用于输出）
     private int nextScopeNumber;  // 下一个作用域序号
-    private int nextOnlyReadScopeNumber;
+    private ScopedSymbolIndex index;  // 当前作用域链上全部可见符号
+    private boolean forked;  // 是否由 fork 得到，此时不修改共享的全局符号表
 
     private SymbolManager() {
         initialize();
     }
 
+    private SymbolManager(SymbolManager global) {
+        rootTable = global.rootTable;
+        scopeStack = new Stack<>();
+        scopeStack.push(rootTable);
+        allTables = new ArrayList<>();
+        nextScopeNumber = 0;
+        index = new ScopedSymbolIndex(global.index, global.index.size());
+        index.enterScope();
+        forked = true;
+    }
+
     public static SymbolManager getInstance() {
-        if (instance == null) {
-            instance = new SymbolManager();
-        }
-        return instance;
+        return CompilationContext.current().getComponent(SymbolManager.class, SymbolManager::new);
     }
 
     /**
@@ -33,13 +46,36 @@ public class SymbolManager {
      */
     public void initialize() {
         nextScopeNumber = 1;  // 全局作用域序号为1
-        nextOnlyReadScopeNumber = 1;
         rootTable = new SymbolTable(0, nextScopeNumber++, null);
-        rootTable.addSymbol(new FunctionSymbol("getint",SymbolType.INT,0,null,null),0);
         scopeStack = new Stack<>();
         scopeStack.push(rootTable);
         allTables = new ArrayList<>();
         allTables.add(rootTable);
+        index = new ScopedSymbolIndex();
+        index.enterScope();
+        forked = false;
+        addSymbol(new FunctionSymbol("getint",SymbolType.INT,0,null,null));
+    }
+
+    /**
+     * 以当前已有的全局符号为可见范围，创建分析函数体用的管理器
+     * fork 之后直到 join 全部完成，本管理器不能再修改
+     */
+    SymbolManager fork() {
+        return new SymbolManager(this);
+    }
+
+    /**
+     * 并入 fork 出的管理器建立的符号表，按创建顺序接在已有序号之后编号
+     */
+    void join(SymbolManager fork) {
+        for (SymbolTable table : fork.allTables) {
+            table.setScopeNumber(nextScopeNumber++);
+            if (table.getParent() == rootTable) {
+                rootTable.addChildTable(table);
+            }
+            allTables.add(table);
+        }
     }
 
     /**
@@ -66,48 +102,54 @@ public class SymbolManager {
     /**
      * 进入新作用域
      */
-    public void enterScope(boolean build) {
+    public void enterScope() {
         SymbolTable current = getCurrentTable();
-        if(build) {
-            SymbolTable newTable = new SymbolTable(current.getDepth() + 1, nextScopeNumber++, current);
+        index.enterScope();
+        SymbolTable newTable = new SymbolTable(current.getDepth() + 1, nextScopeNumber++, current);
+        // 共享的全局符号表在 join 时再登记子表
+        if (!forked || current != rootTable) {
             current.addChildTable(newTable);
-            scopeStack.push(newTable);
-            allTables.add(newTable);
-        } else {
-            SymbolTable nextTable = allTables.get(nextOnlyReadScopeNumber++);
-            scopeStack.push(nextTable);
         }
-
+        scopeStack.push(newTable);
+        allTables.add(newTable);
     }
 
     /**
-     * 离开当前作用域
+     * 离开当前作用域，弹出其中的符号
      */
     public void exitScope() {
         if (scopeStack.size() > 1) {
             scopeStack.pop();
+            index.exitScope();
         }
     }
 
     /**
      * 添加符号到当前作用域
+     * @return 是否成功添加（当前作用域已有同名符号时返回false，由调用者报告错误）
      */
-    public boolean addSymbol(Symbol symbol, int lineNumber) {
-        return getCurrentTable().addSymbol(symbol, lineNumber);
+    public boolean addSymbol(Symbol symbol) {
+        SymbolTable current = getCurrentTable();
+        if (index.lookupLocal(symbol.getName(), current) != null) {
+            return false;
+        }
+        current.addSymbol(symbol);
+        index.push(symbol, current);
+        return true;
     }
 
     /**
      * 查找符号（从当前作用域向上查找）
      */
     public Symbol lookupSymbol(String name) {
-        return getCurrentTable().lookup(name);
+        return index.lookup(name);
     }
 
     /**
      * 只在当前作用域查找符号
      */
     public Symbol lookupLocal(String name) {
-        return getCurrentTable().lookupLocal(name);
+        return index.lookupLocal(name, getCurrentTable());
     }
 
     /**
@@ -123,6 +165,7 @@ public class SymbolManager {
     public void resetToGlobal() {
         while (scopeStack.size() > 1) {
             scopeStack.pop();
+            index.exitScope();
         }
     }
 
@@ -144,13 +187,24 @@ public class SymbolManager {
      * 输出所有符号表（按作用域序号排序）
      */
     public String outputAllSymbols() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            emitAllSymbols(sb);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 将 symbol.txt 内容逐表写入 out
+     */
+    public void emitAllSymbols(Appendable out) throws IOException {
         // 按作用域序号排序
         allTables.sort((a, b) -> Integer.compare(a.getScopeNumber(), b.getScopeNumber()));
-        StringBuilder sb = new StringBuilder();
         for (SymbolTable table : allTables) {
-            sb.append(table.toOutputString());
+            table.emit(out);
         }
-        return sb.toString();
     }
 }
 
@@ -12,6 +12,7 @@ public class VariableSymbol extends Symbol {
     private final boolean isStatic;  // 是否为static变量
     private final List<Integer> dimensions;  // 数组维度，空列表表示非数组
     private Object initialValue;  // 初始值
+    private Integer[] constValues;  // 常量各元素已求得的值，由 ConstExpEvaluator 按需填充
 
     public VariableSymbol(String name, SymbolType type, int lineNumber, boolean isGlobal) {
         super(name, type, lineNumber);
@@ -82,5 +83,13 @@ public class VariableSymbol extends Symbol {
         return type.isConst();
     }
 
+    public Integer[] getConstValues() {
+        return constValues;
+    }
+
+    public void setConstValues(Integer[] constValues) {
+        this.constValues = constValues;
+    }
+
 }
 
@@ -14,7 +14,6 @@ import midend.llvm.type.IrType;
 import midend.llvm.value.IrGlobalValue;
 import midend.llvm.value.IrValue;
 import midend.semantic.Symbol;
-import midend.semantic.SymbolManager;
 import midend.semantic.SymbolType;
 import midend.semantic.VariableSymbol;
 import utils.ConstExpEvaluator;
@@ -42,7 +41,7 @@ public class IrDeclVisitor {
 
     public static void visitConstDef(ConstDef constDef, boolean isGlobal) {
         String constName = constDef.getName();
-        Symbol symbol = SymbolManager.getInstance().getCurrentTable().lookup(constName);
+        Symbol symbol = constDef.getIdent().getSymbol();
 
         if (!(symbol instanceof VariableSymbol varSymbol))
             throw new RuntimeException("Symbol is not a variable" + constName);
@@ -80,7 +79,7 @@ public class IrDeclVisitor {
 
     public static void visitVarDef(VarDef varDef, boolean isGlobal) {
         String varName = varDef.getName();
-        Symbol symbol = SymbolManager.getInstance().getCurrentTable().lookup(varName);
+        Symbol symbol = varDef.getIdent().getSymbol();
 
         if (!(symbol instanceof VariableSymbol varSymbol))
             throw new RuntimeException("Symbol is not a variable " + varName);
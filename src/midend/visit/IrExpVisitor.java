@@ -16,7 +16,6 @@ import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
 import midend.llvm.value.IrValue;
 import midend.semantic.FunctionSymbol;
-import midend.semantic.SymbolManager;
 import utils.IrTypeConverter;
 import utils.ParserWrapper;
 
@@ -84,7 +83,7 @@ public class IrExpVisitor {
         if(unaryExp.isPrimary()){
             return visitPrimaryExp(unaryExp.getPrimaryExp());
         } else if(unaryExp.isFunctionCall()){
-            return visitFunctionCall(unaryExp.getFuncName().getName(),unaryExp.getFuncRParams());
+            return visitFunctionCall(unaryExp.getFuncName(),unaryExp.getFuncRParams());
         } else if(unaryExp.isUnary()){
             return visitUnaryUnary(unaryExp.getUnaryOp(),unaryExp.getUnaryExp());
         } else {
@@ -105,8 +104,9 @@ public class IrExpVisitor {
         }
     }
 
-    public static IrValue visitFunctionCall(String funcName, FuncRParams funcRParams){
-        FunctionSymbol functionSymbol = (FunctionSymbol) SymbolManager.getInstance().lookupSymbol(funcName);
+    public static IrValue visitFunctionCall(Ident funcIdent, FuncRParams funcRParams){
+        String funcName = funcIdent.getName();
+        FunctionSymbol functionSymbol = (FunctionSymbol) funcIdent.getSymbol();
         if(!funcName.equals("getint")&&!funcName.equals("getchar")){
             IrFunction irFunction = (IrFunction) functionSymbol.getIrValue();
             if(irFunction==null) throw new RuntimeException("The IrFunction of Function Symbol is null");
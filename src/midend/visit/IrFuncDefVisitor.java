@@ -15,9 +15,32 @@ import java.util.List;
 
 public class IrFuncDefVisitor {
     public static void visitFuncDef(FuncDef funcDef) {
+        enterFuncDef(funcDef);
+
+        // 处理函数体
+        Block block = funcDef.getBlock();
+        IrBlockVisitor.visitBlock(block);
+
+        exitFunction();
+    }
+
+    public static void visitMainFuncDef(MainFuncDef mainFunc) {
+        enterMainFuncDef();
+
+        // 处理函数体
+        Block block = mainFunc.getBlock();
+        IrBlockVisitor.visitBlock(block);
+
+        exitFunction();
+    }
+
+    /**
+     * 创建函数及其形参的 Ir，之后生成的指令都属于该函数
+     */
+    public static void enterFuncDef(FuncDef funcDef) {
         // 获取符号
         String funcName = funcDef.getName();
-        FunctionSymbol functionSymbol = (FunctionSymbol) SymbolManager.getInstance().getCurrentTable().lookup(funcName);
+        FunctionSymbol functionSymbol = (FunctionSymbol) funcDef.getIdent().getSymbol();
         if(functionSymbol == null) {
             throw new RuntimeException("No such function: " + funcName);
         }
@@ -27,20 +50,15 @@ public class IrFuncDefVisitor {
         IrFunction irFunction = IrBuilder.getNewFunctionIr(funcName, returnIrType);
         functionSymbol.setIrValue(irFunction); // 关联Symbol与Ir
 
-        // 进入作用域
-        SymbolManager.getInstance().enterScope(false);
-
         // 获取参数相关信息
         FuncFParams params = funcDef.getFuncFParams();
-        List<String> paramsNames = functionSymbol.getParameterNames();
         List<SymbolType> paramsTypes = functionSymbol.getParameterTypes();
 
         // 处理参数
-        for(int i = 0; i < paramsNames.size(); i++) {
+        for(int i = 0; i < paramsTypes.size(); i++) {
             FuncFParam param = params.getParams().get(i);
-            String paramName = paramsNames.get(i);
             SymbolType paramType = paramsTypes.get(i);
-            VariableSymbol paramSymbol = (VariableSymbol) SymbolManager.getInstance().getCurrentTable().lookup(paramName);
+            VariableSymbol paramSymbol = (VariableSymbol) param.getIdent().getSymbol();
 
             // 创建参数Ir
             IrType paramIrType = IrTypeConverter.symbolType2IrType4Param(paramType);
@@ -52,40 +70,22 @@ public class IrFuncDefVisitor {
 
             paramSymbol.setIrValue(allocateInstr); // 关联其地址
         }
-
-        // 处理函数体
-        Block block = funcDef.getBlock();
-        IrBlockVisitor.visitBlock(block);
-
-        // 保证含有返回语句
-        if(!IrBuilder.getCurrentBasicBlock().hasTerminator()){
-            IrBuilder.getCurrentFunction().promiseReturn();
-        }
-
-        // 退出作用域
-        SymbolManager.getInstance().exitScope();
     }
 
-    public static void visitMainFuncDef(MainFuncDef mainFunc) {
+    public static void enterMainFuncDef() {
         /* 创建main函数ir
          * 由于main不进入符号表，因此不去关联
          */
-        IrFunction irFunction = IrBuilder.getNewFunctionIr("main", IrBaseType.INT32);
-
-
-        // 进入作用域
-        SymbolManager.getInstance().enterScope(false);
-
-        // 处理函数体
-        Block block = mainFunc.getBlock();
-        IrBlockVisitor.visitBlock(block);
+        IrBuilder.getNewFunctionIr("main", IrBaseType.INT32);
+    }
 
+    /**
+     * 函数体生成完毕
+     */
+    public static void exitFunction() {
         // 保证含有返回语句
         if (!IrBuilder.getCurrentBasicBlock().hasTerminator()) {
             IrBuilder.getCurrentFunction().promiseReturn();
         }
-
-        // 退出作用域
-        SymbolManager.getInstance().exitScope();
     }
 }
@@ -8,13 +8,12 @@ import midend.llvm.instr.memory.LoadInstr;
 import midend.llvm.type.IrPointerType;
 import midend.llvm.value.IrValue;
 import midend.semantic.Symbol;
-import midend.semantic.SymbolManager;
 import midend.semantic.VariableSymbol;
 
 public class IrLValVisitor {
     public static IrValue visitLValValue(LVal lVal){
         String lValName = lVal.getName();
-        Symbol symbol = SymbolManager.getInstance().getCurrentTable().lookupWithIrValue(lValName);
+        Symbol symbol = lVal.getSymbol();
         Exp indexExp = lVal.getIndexExp();
         if(!(symbol instanceof VariableSymbol variableSymbol)) throw new RuntimeException("LVal is not a variable" + lValName);
         if(!variableSymbol.isArray()){
@@ -39,7 +38,7 @@ public class IrLValVisitor {
 
     public static IrValue visitLValAddress(LVal lVal){
         String lValName = lVal.getName();
-        Symbol symbol = SymbolManager.getInstance().getCurrentTable().lookupWithIrValue(lValName);
+        Symbol symbol = lVal.getSymbol();
         Exp indexExp = lVal.getIndexExp();
         if(!(symbol instanceof VariableSymbol variableSymbol)) throw new RuntimeException("LVal is not a variable" + lValName);
         if(!variableSymbol.isArray()){
@@ -14,7 +14,6 @@ import midend.llvm.type.IrPointerType;
 import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrLoop;
 import midend.llvm.value.IrValue;
-import midend.semantic.SymbolManager;
 import utils.IrTypeConverter;
 import utils.ParserWrapper;
 
@@ -55,9 +54,7 @@ public class IrStmtVisitor {
     }
 
     public static void visitBlockStmt(Block block){
-        SymbolManager.getInstance().enterScope(false);
         IrBlockVisitor.visitBlock(block);
-        SymbolManager.getInstance().exitScope();
     }
 
     public static void visitIfStmt(IfStmt ifStmt){
@@ -5,122 +5,196 @@ import midend.llvm.instr.ctrl.BrCondInstr;
 import midend.llvm.instr.ctrl.BrInstr;
 import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
+import midend.llvm.value.IrNumbering;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.util.Arrays;
 
-public class CfgBuilder extends Optimizer {
+public class CfgBuilder extends FunctionOptimizer {
     @Override
-    public void optimize() {
+    public void optimizeFunction(IrFunction irFunction) {
         // 清除之前生成的支配关系
-        this.initFunction();
+        this.initFunction(irFunction);
         // 构建CFG图
-        this.buildCfg();
-        // 构建支配关系
-        this.buildDominateRelationship();
-        // 构建直接支配关系
-        this.buildDirectDominator();
+        this.buildCfg(irFunction);
+        // 构建直接支配关系和支配树编号
+        this.buildDominateRelationship(irFunction);
         // 构建支配边界
-        this.buildDominateFrontier();
+        this.buildDominateFrontier(irFunction);
     }
 
-    private void initFunction() {
-        for (IrFunction irFunction : irModule.getFunctions()) {
-            for (IrBasicBlock irBasicBlock : irFunction.getBasicBlocks()) {
-                irBasicBlock.clearCfg();
-            }
+    private void initFunction(IrFunction irFunction) {
+        for (IrBasicBlock irBasicBlock : irFunction.getBasicBlocks()) {
+            irBasicBlock.clearCfg();
         }
     }
 
-    private void buildCfg() {
-        for (IrFunction irFunction : irModule.getFunctions()) {
-            for (IrBasicBlock visitBlock : irFunction.getBasicBlocks()) {
-                for (Instr instr : visitBlock.getInstructions()) {
-                    if (instr instanceof BrInstr brInstr) {
-                        IrBasicBlock targetBlock = brInstr.getTargetBlock();
-                        visitBlock.addNextBlock(targetBlock);
-                        targetBlock.addBeforeBlock(visitBlock);
-                    } else if (instr instanceof BrCondInstr brCondInstr) {
-                        IrBasicBlock trueBlock = brCondInstr.getSucBlock();
-                        IrBasicBlock falseBlock = brCondInstr.getFailBlock();
-                        visitBlock.addNextBlock(trueBlock);
-                        visitBlock.addNextBlock(falseBlock);
-                        trueBlock.addBeforeBlock(visitBlock);
-                        falseBlock.addBeforeBlock(visitBlock);
-                    }
+    private void buildCfg(IrFunction irFunction) {
+        for (IrBasicBlock visitBlock : irFunction.getBasicBlocks()) {
+            for (Instr instr : visitBlock.getInstructions()) {
+                if (instr instanceof BrInstr brInstr) {
+                    IrBasicBlock targetBlock = brInstr.getTargetBlock();
+                    visitBlock.addNextBlock(targetBlock);
+                    targetBlock.addBeforeBlock(visitBlock);
+                } else if (instr instanceof BrCondInstr brCondInstr) {
+                    IrBasicBlock trueBlock = brCondInstr.getSucBlock();
+                    IrBasicBlock falseBlock = brCondInstr.getFailBlock();
+                    visitBlock.addNextBlock(trueBlock);
+                    visitBlock.addNextBlock(falseBlock);
+                    trueBlock.addBeforeBlock(visitBlock);
+                    falseBlock.addBeforeBlock(visitBlock);
                 }
             }
         }
     }
 
-    private void buildDominateRelationship() {
-        for (IrFunction irFunction : irModule.getFunctions()) {
-            List<IrBasicBlock> blockList = irFunction.getBasicBlocks();
-            if (blockList.isEmpty())
-                continue;
+    /**
+     * Cooper-Harvey-Kennedy 迭代算法：按逆后序处理各块，用已处理前驱的直接支配者沿支配树求交，直到不再变化；
+     * 然后按基本块顺序登记直接支配者，再给支配树编先序、后序号，支配查询由 IrBasicBlock.dominates 以 O(1) 回答
+     */
+    private void buildDominateRelationship(IrFunction irFunction) {
+        if (irFunction.getBasicBlocks().isEmpty())
+            return;
+
+        IrNumbering numbering = irFunction.renumber();
+        int blockCount = numbering.getBlockCount();
+        // 从入口出发的后序：postorder[i] 为后序第 i 个块，postIndex 反之，不可达的块为 -1
+        int[] postorder = new int[blockCount];
+        int[] postIndex = new int[blockCount];
+        Arrays.fill(postIndex, -1);
+        int reachableCount = buildPostorder(numbering, postorder, postIndex);
 
-            for (IrBasicBlock deleteBlock : blockList) {
-                HashSet<IrBasicBlock> visited = new HashSet<>();
-                this.searchDfs(blockList.get(0), deleteBlock, visited);
-                for (IrBasicBlock visitBlock : blockList) {
-                    if (!visited.contains(visitBlock)) {
-                        visitBlock.addDominator(deleteBlock);
-                    }
+        int[] directDominators = new int[blockCount];
+        Arrays.fill(directDominators, -1);
+        directDominators[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // 入口在后序的最后，逆后序从它的下一个开始
+            for (int i = reachableCount - 2; i >= 0; i--) {
+                int block = postorder[i];
+                int newDominator = -1;
+                for (IrBasicBlock beforeBlock : numbering.getBlock(block).getBeforeBlocks()) {
+                    int pred = numbering.blockIdOf(beforeBlock);
+                    if (pred < 0 || directDominators[pred] < 0)
+                        continue;
+                    newDominator = newDominator < 0 ? pred
+                            : intersect(pred, newDominator, directDominators, postIndex);
+                }
+                if (directDominators[block] != newDominator) {
+                    directDominators[block] = newDominator;
+                    changed = true;
                 }
             }
         }
-    }
 
-    private void searchDfs(IrBasicBlock visitBlock, IrBasicBlock deleteBlock,
-            HashSet<IrBasicBlock> visited) {
-        if (visitBlock == deleteBlock) {
-            return;
+        // 按基本块顺序登记，每个块的直接支配子块也就按基本块顺序排列
+        for (int block = 1; block < blockCount; block++) {
+            if (directDominators[block] >= 0) {
+                numbering.getBlock(block).setDirectDominator(numbering.getBlock(directDominators[block]));
+            }
         }
+        numberDominatorTree(numbering, directDominators);
+    }
 
-        visited.add(visitBlock);
-        for (IrBasicBlock nextBlock : visitBlock.getNextBlocks()) {
-            if (!visited.contains(nextBlock) && nextBlock != deleteBlock) {
-                this.searchDfs(nextBlock, deleteBlock, visited);
+    /**
+     * @return 入口可达的块数
+     */
+    private int buildPostorder(IrNumbering numbering, int[] postorder, int[] postIndex) {
+        int blockCount = numbering.getBlockCount();
+        boolean[] visited = new boolean[blockCount];
+        int[] stack = new int[blockCount];
+        int[] nextIndex = new int[blockCount];
+        int top = 0;
+        int count = 0;
+        visited[0] = true;
+        stack[top++] = 0;
+        while (top > 0) {
+            int block = stack[top - 1];
+            ArrayList<IrBasicBlock> nextBlocks = numbering.getBlock(block).getNextBlocks();
+            if (nextIndex[block] < nextBlocks.size()) {
+                int next = numbering.blockIdOf(nextBlocks.get(nextIndex[block]++));
+                if (next >= 0 && !visited[next]) {
+                    visited[next] = true;
+                    stack[top++] = next;
+                }
+            } else {
+                postorder[count] = block;
+                postIndex[block] = count++;
+                top--;
             }
         }
+        return count;
     }
 
-    private void buildDirectDominator() {
-        for (IrFunction irFunction : irModule.getFunctions()) {
-            for (IrBasicBlock visitBlock : irFunction.getBasicBlocks()) {
-                for (IrBasicBlock dominator : visitBlock.getDominatorBlocks()) {
-                    if (dominator == visitBlock)
-                        continue;
-
-                    HashSet<IrBasicBlock> sharedDominators = new HashSet<>(visitBlock.getDominatorBlocks());
-                    sharedDominators.retainAll(dominator.getDominatorBlocks());
+    private static int intersect(int first, int second, int[] directDominators, int[] postIndex) {
+        while (first != second) {
+            while (postIndex[first] < postIndex[second]) {
+                first = directDominators[first];
+            }
+            while (postIndex[second] < postIndex[first]) {
+                second = directDominators[second];
+            }
+        }
+        return first;
+    }
 
-                    HashSet<IrBasicBlock> diffDominators = new HashSet<>(visitBlock.getDominatorBlocks());
-                    diffDominators.removeAll(sharedDominators);
+    /**
+     * 深度优先遍历支配树，给每个块编先序、后序号；a 支配 b 当且仅当 b 的区间嵌套在 a 的区间内
+     */
+    private void numberDominatorTree(IrNumbering numbering, int[] directDominators) {
+        int blockCount = numbering.getBlockCount();
+        // 子结点按编号压缩存放：block 的子结点为 children[childStarts[block], childStarts[block + 1])
+        int[] childStarts = new int[blockCount + 1];
+        for (int block = 1; block < blockCount; block++) {
+            if (directDominators[block] >= 0) {
+                childStarts[directDominators[block] + 1]++;
+            }
+        }
+        for (int block = 0; block < blockCount; block++) {
+            childStarts[block + 1] += childStarts[block];
+        }
+        int[] children = new int[childStarts[blockCount]];
+        int[] filled = Arrays.copyOf(childStarts, blockCount);
+        for (int block = 1; block < blockCount; block++) {
+            if (directDominators[block] >= 0) {
+                children[filled[directDominators[block]]++] = block;
+            } else {
+                numbering.getBlock(block).setDominatorOrder(Integer.MAX_VALUE, Integer.MIN_VALUE);
+            }
+        }
 
-                    if (diffDominators.size() == 1 && diffDominators.contains(visitBlock)) {
-                        visitBlock.setDirectDominator(dominator);
-                        break;
-                    }
-                }
+        int[] stack = new int[blockCount];
+        int[] nextChild = Arrays.copyOf(childStarts, blockCount);
+        int[] preorders = new int[blockCount];
+        int top = 0;
+        int preorder = 0;
+        int postorder = 0;
+        preorders[0] = preorder++;
+        stack[top++] = 0;
+        while (top > 0) {
+            int block = stack[top - 1];
+            if (nextChild[block] < childStarts[block + 1]) {
+                int child = children[nextChild[block]++];
+                preorders[child] = preorder++;
+                stack[top++] = child;
+            } else {
+                numbering.getBlock(block).setDominatorOrder(preorders[block], postorder++);
+                top--;
             }
         }
     }
 
-    private void buildDominateFrontier() {
-        for (IrFunction irFunction : irModule.getFunctions()) {
-            for (IrBasicBlock visitBlock : irFunction.getBasicBlocks()) {
-                ArrayList<IrBasicBlock> nextBlocks = visitBlock.getNextBlocks();
-                for (IrBasicBlock nextBlock : nextBlocks) {
-                    IrBasicBlock currentBlock = visitBlock;
-                    while (!nextBlock.getDominatorBlocks().contains(currentBlock) || currentBlock == nextBlock) {
-                        currentBlock.addDominateFrontier(nextBlock);
-                        currentBlock = currentBlock.getDirectDominator();
-                        if (currentBlock == null) {
-                            break;
-                        }
-                    }
+    private void buildDominateFrontier(IrFunction irFunction) {
+        // 边 (B, S) 的起点沿支配树上行到 S 的直接支配者为止，途经的块都以 S 为支配边界
+        for (IrBasicBlock visitBlock : irFunction.getBasicBlocks()) {
+            ArrayList<IrBasicBlock> nextBlocks = visitBlock.getNextBlocks();
+            for (IrBasicBlock nextBlock : nextBlocks) {
+                IrBasicBlock stopBlock = nextBlock.getDirectDominator();
+                IrBasicBlock currentBlock = visitBlock;
+                while (currentBlock != null && currentBlock != stopBlock) {
+                    currentBlock.addDominateFrontier(nextBlock);
+                    currentBlock = currentBlock.getDirectDominator();
                 }
             }
         }
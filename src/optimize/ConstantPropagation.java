@@ -10,32 +10,31 @@ import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
 import midend.llvm.value.IrValue;
 
-import java.util.Iterator;
-
 /**
  * 常量传播优化器
  * 在 SSA 形式下，识别结果为常量的指令并进行替换
  */
-public class ConstantPropagation extends Optimizer {
-    private boolean changed;
+public class ConstantPropagation extends FunctionOptimizer {
+    @Override
+    protected boolean hasChangeLoop() {
+        return true;
+    }
 
     @Override
-    public void optimize() {
-        changed = true;
+    public void optimizeFunction(IrFunction function) {
+        boolean changed = true;
         while (changed) {
+            countIteration();
             changed = false;
-            for (IrFunction function : irModule.getFunctions()) {
-                for (IrBasicBlock block : function.getBasicBlocks()) {
-                    optimizeBlock(block);
-                }
+            for (IrBasicBlock block : function.getBasicBlocks()) {
+                changed |= optimizeBlock(block);
             }
         }
     }
 
-    private void optimizeBlock(IrBasicBlock block) {
-        Iterator<Instr> iterator = block.getInstructions().iterator();
-        while (iterator.hasNext()) {
-            Instr instr = iterator.next();
+    private boolean optimizeBlock(IrBasicBlock block) {
+        boolean changed = false;
+        for (Instr instr : block.getInstructions()) {
             IrValue constant = null;
 
             if (instr instanceof CalculateInstr calc) {
@@ -57,11 +56,12 @@ public class ConstantPropagation extends Optimizer {
                 instr.removeAllValueUse();
                 
                 // 3. 从基本块中移除该指令
-                iterator.remove();
+                instr.removeFromBlock();
                 
                 changed = true;
             }
         }
+        return changed;
     }
 
     private IrValue foldCalculate(CalculateInstr calc) {
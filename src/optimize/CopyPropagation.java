@@ -8,7 +8,6 @@ import midend.llvm.value.IrFunction;
 import midend.llvm.value.IrValue;
 
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 /**
@@ -18,26 +17,27 @@ import java.util.Set;
  * 1. Phi 指令：如果所有操作数都相同，或者只有一个操作数。
  * 2. Move 指令：显式的值复制。
  */
-public class CopyPropagation extends Optimizer {
-    private boolean changed;
+public class CopyPropagation extends FunctionOptimizer {
+    @Override
+    protected boolean hasChangeLoop() {
+        return true;
+    }
 
     @Override
-    public void optimize() {
-        changed = true;
+    public void optimizeFunction(IrFunction function) {
+        boolean changed = true;
         while (changed) {
+            countIteration();
             changed = false;
-            for (IrFunction function : irModule.getFunctions()) {
-                for (IrBasicBlock block : function.getBasicBlocks()) {
-                    optimizeBlock(block);
-                }
+            for (IrBasicBlock block : function.getBasicBlocks()) {
+                changed |= optimizeBlock(block);
             }
         }
     }
 
-    private void optimizeBlock(IrBasicBlock block) {
-        Iterator<Instr> iterator = block.getInstructions().iterator();
-        while (iterator.hasNext()) {
-            Instr instr = iterator.next();
+    private boolean optimizeBlock(IrBasicBlock block) {
+        boolean changed = false;
+        for (Instr instr : block.getInstructions()) {
             IrValue simplified = null;
 
             if (instr instanceof PhiInstr phi) {
@@ -54,10 +54,11 @@ public class CopyPropagation extends Optimizer {
                 // 2. 维护 Use 关系
                 instr.removeAllValueUse();
                 // 3. 移除该指令
-                iterator.remove();
+                instr.removeFromBlock();
                 changed = true;
             }
         }
+        return changed;
     }
 
     /**
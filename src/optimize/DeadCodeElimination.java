@@ -17,32 +17,31 @@ import midend.llvm.instr.phi.PhiInstr;
 import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
 
-import java.util.Iterator;
-
 /**
  * 死代码删除优化器
  * 移除没有副作用且结果未被使用的指令
  */
-public class DeadCodeElimination extends Optimizer {
-    private boolean changed;
+public class DeadCodeElimination extends FunctionOptimizer {
+    @Override
+    protected boolean hasChangeLoop() {
+        return true;
+    }
 
     @Override
-    public void optimize() {
-        changed = true;
+    public void optimizeFunction(IrFunction function) {
+        boolean changed = true;
         while (changed) {
+            countIteration();
             changed = false;
-            for (IrFunction function : irModule.getFunctions()) {
-                for (IrBasicBlock block : function.getBasicBlocks()) {
-                    optimizeBlock(block);
-                }
+            for (IrBasicBlock block : function.getBasicBlocks()) {
+                changed |= optimizeBlock(block);
             }
         }
     }
 
-    private void optimizeBlock(IrBasicBlock block) {
-        Iterator<Instr> iterator = block.getInstructions().iterator();
-        while (iterator.hasNext()) {
-            Instr instr = iterator.next();
+    private boolean optimizeBlock(IrBasicBlock block) {
+        boolean changed = false;
+        for (Instr instr : block.getInstructions()) {
 
             if (isDead(instr)) {
                 // 维护 Use 关系：该指令不再使用其操作数
@@ -50,10 +49,11 @@ public class DeadCodeElimination extends Optimizer {
                 instr.removeAllValueUse();
 
                 // 从基本块中移除
-                iterator.remove();
+                instr.removeFromBlock();
                 changed = true;
             }
         }
+        return changed;
     }
 
     /**
@@ -24,10 +24,16 @@ public class FunctionConstantFolding extends Optimizer {
     private boolean changed;
     private final Map<IrFunction, Boolean> pureCache = new HashMap<>();
 
+    @Override
+    protected boolean hasChangeLoop() {
+        return true;
+    }
+
     @Override
     public void optimize() {
         changed = true;
         while (changed) {
+            countIteration();
             changed = false;
             pureCache.clear();
             for (IrFunction function : irModule.getFunctions()) {
@@ -39,9 +45,7 @@ public class FunctionConstantFolding extends Optimizer {
     }
 
     private void optimizeBlock(IrBasicBlock block) {
-        Iterator<Instr> iterator = block.getInstructions().iterator();
-        while (iterator.hasNext()) {
-            Instr instr = iterator.next();
+        for (Instr instr : block.getInstructions()) {
             if (instr instanceof CallInstr call) {
                 IrFunction func = call.getFunction();
                 if (isPure(func)) {
@@ -63,7 +67,7 @@ public class FunctionConstantFolding extends Optimizer {
                             IrConstInt resConst = new IrConstInt(result);
                             call.modifyAllUsersToNewValue(resConst);
                             call.removeAllValueUse();
-                            iterator.remove();
+                            instr.removeFromBlock();
                             changed = true;
                         }
                     }
@@ -0,0 +1,19 @@
+package optimize;
+
+import midend.llvm.value.IrFunction;
+
+/**
+ * 函数级优化器
+ * 只读写单个函数内部的状态，optimizeFunction 必须可重入，
+ * OptimizeManager 在并行模式下会把不同函数交给不同线程同时处理
+ */
+public abstract class FunctionOptimizer extends Optimizer {
+    @Override
+    public void optimize() {
+        for (IrFunction function : irModule.getFunctions()) {
+            optimizeFunction(function);
+        }
+    }
+
+    public abstract void optimizeFunction(IrFunction function);
+}
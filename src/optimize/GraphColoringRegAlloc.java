@@ -1,6 +1,9 @@
 package optimize;
 
+import midend.llvm.IrModule;
 import midend.llvm.value.IrFunction;
+import midend.llvm.value.IrLiveness;
+import midend.llvm.value.IrNumbering;
 import midend.llvm.value.IrValue;
 import midend.llvm.value.IrBasicBlock;
 import midend.llvm.instr.Instr;
@@ -12,228 +15,272 @@ import backend.mips.MipsBuilder;
 
 import java.util.*;
 
-public class GraphColoringRegAlloc extends Optimizer {
-    private Map<IrValue, Set<IrValue>> adjList;
-    private Map<IrValue, Integer> degree;
-    private Set<IrValue> nodes;
-    private Set<IrValue> spansCall; // 记录跨越函数调用的变量
-    private Stack<IrValue> selectStack;
-    private LivenessAnalysis livenessAnalysis;
+public class GraphColoringRegAlloc extends FunctionOptimizer {
+    private final LivenessAnalysis livenessAnalysis;
 
     public GraphColoringRegAlloc() {
         this.livenessAnalysis = new LivenessAnalysis();
     }
 
     @Override
-    public void optimize() {
-        livenessAnalysis.optimize();
+    public void setIrModule(IrModule module) {
+        super.setIrModule(module);
+        livenessAnalysis.setIrModule(module);
+    }
 
-        for (IrFunction function : irModule.getFunctions()) {
-            if (function.getBasicBlocks().isEmpty())
-                continue;
-            allocateRegister(function);
-        }
+    @Override
+    public void optimizeFunction(IrFunction function) {
+        livenessAnalysis.optimizeFunction(function);
+
+        if (function.getBasicBlocks().isEmpty())
+            return;
+        new Allocator().allocateRegister(function);
     }
 
-    private void allocateRegister(IrFunction function) {
-        adjList = new HashMap<>();
-        degree = new HashMap<>();
-        nodes = new HashSet<>();
-        spansCall = new HashSet<>();
-        selectStack = new Stack<>();
+    /**
+     * 单个函数的着色状态，每次分配新建，保证不同函数可以并行分配
+     * 结点以函数的稠密编号为下标：邻接关系和活跃集合是位集，度数是整数数组；
+     * nodeOrder 记录结点的加入顺序，化简时按此顺序挑选，使结果与加入顺序一致
+     */
+    private class Allocator {
+        private IrLiveness liveness;
+        private IrNumbering numbering;
+        private BitSet nodes;
+        private int[] nodeOrder;
+        private int nodeCount;
+        private BitSet[] adjList;
+        private int[] degree;
+        private BitSet spansCall; // 记录跨越函数调用的变量
+        private final Stack<Integer> selectStack = new Stack<>();
 
-        // 收集节点
-        for (int i = 4; i < function.getParameters().size(); i++) {
-            addNode(function.getParameters().get(i));
-        }
-        for (IrBasicBlock block : function.getBasicBlocks()) {
-            for (Instr instr : block.getInstructions()) {
-                if (instr instanceof MoveInstr move) {
-                    IrValue dst = move.getDstValue();
-                    if (livenessAnalysis.isAllocatable(dst)) {
-                        addNode(dst);
+        private void allocateRegister(IrFunction function) {
+            liveness = function.getLiveness();
+            numbering = liveness.getNumbering();
+            int valueCount = numbering.getValueCount();
+            nodes = new BitSet(valueCount);
+            nodeOrder = new int[valueCount];
+            nodeCount = 0;
+            adjList = new BitSet[valueCount];
+            degree = new int[valueCount];
+            spansCall = new BitSet(valueCount);
+
+            // 收集节点
+            for (int i = 4; i < function.getParameters().size(); i++) {
+                addNode(function.getParameters().get(i));
+            }
+            for (IrBasicBlock block : function.getBasicBlocks()) {
+                for (Instr instr : block.getInstructions()) {
+                    if (instr instanceof MoveInstr move) {
+                        IrValue dst = move.getDstValue();
+                        if (livenessAnalysis.isAllocatable(dst)) {
+                            addNode(dst);
+                        }
+                    }
+                    if (livenessAnalysis.isAllocatable(instr)) {
+                        addNode(instr);
                     }
-                }
-                if (livenessAnalysis.isAllocatable(instr)) {
-                    addNode(instr);
                 }
             }
+
+            buildInterferenceGraph(function);
+            simplify();
+            assignColors(function);
         }
 
-        buildInterferenceGraph(function);
-        simplify();
-        assignColors(function);
-    }
+        private void addNode(IrValue value) {
+            int id = numbering.idOf(value);
+            if (id < 0) {
+                throw new RuntimeException("Value not numbered in function: " + value.getIrName());
+            }
+            if (!nodes.get(id)) {
+                nodes.set(id);
+                nodeOrder[nodeCount++] = id;
+                adjList[id] = new BitSet();
+            }
+        }
 
-    private void addNode(IrValue value) {
-        if (!nodes.contains(value)) {
-            nodes.add(value);
-            adjList.put(value, new HashSet<>());
-            degree.put(value, 0);
+        /**
+         * @return value 作为结点的编号，不是结点时返回 -1
+         */
+        private int nodeId(IrValue value) {
+            int id = numbering.idOf(value);
+            return id >= 0 && nodes.get(id) ? id : -1;
         }
-    }
 
-    private void addEdge(IrValue u, IrValue v) {
-        if (u == v)
-            return;
-        if (!nodes.contains(u) || !nodes.contains(v))
-            return;
+        private void addEdge(int u, int v) {
+            if (u == v)
+                return;
 
-        if (adjList.get(u).add(v)) {
-            degree.put(u, degree.get(u) + 1);
+            if (!adjList[u].get(v)) {
+                adjList[u].set(v);
+                degree[u]++;
+            }
+            if (!adjList[v].get(u)) {
+                adjList[v].set(u);
+                degree[v]++;
+            }
         }
-        if (adjList.get(v).add(u)) {
-            degree.put(v, degree.get(v) + 1);
+
+        private void addEdges(int u, BitSet live, int except) {
+            for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+                if (v != except) {
+                    addEdge(u, v);
+                }
+            }
         }
-    }
 
-    private void buildInterferenceGraph(IrFunction function) {
-        for (IrBasicBlock block : function.getBasicBlocks()) {
-            HashSet<IrValue> live = new HashSet<>(block.getLiveOut());
-            live.retainAll(nodes);
-
-            List<Instr> instructions = block.getInstructions();
-            for (int i = instructions.size() - 1; i >= 0; i--) {
-                Instr instr = instructions.get(i);
-
-                // 定义点处理
-                if (instr instanceof MoveInstr move) {
-                    IrValue dst = move.getDstValue();
-                    if (nodes.contains(dst)) {
-                        IrValue src = move.getSrcValue();
-                        for (IrValue v : live) {
-                            if (v == src)
-                                continue;
-                            addEdge(dst, v);
+        private void buildInterferenceGraph(IrFunction function) {
+            for (IrBasicBlock block : function.getBasicBlocks()) {
+                BitSet live = (BitSet) liveness.getLiveOut(block).clone();
+                live.and(nodes);
+
+                for (Instr instr = block.getLastInstr(); instr != null; instr = instr.getPrev()) {
+
+                    // 定义点处理
+                    if (instr instanceof MoveInstr move) {
+                        int dst = nodeId(move.getDstValue());
+                        if (dst >= 0) {
+                            addEdges(dst, live, nodeId(move.getSrcValue()));
+                            live.clear(dst);
+                        }
+                    } else {
+                        int def = nodeId(instr);
+                        if (def >= 0) {
+                            addEdges(def, live, -1);
+                            live.clear(def);
                         }
-                        live.remove(dst);
-                    }
-                } else if (nodes.contains(instr)) {
-                    for (IrValue v : live) {
-                        addEdge(instr, v);
                     }
-                    live.remove(instr);
-                }
 
-                // 核心改进：识别跨调用变量
-                if (instr instanceof CallInstr) {
-                    spansCall.addAll(live);
-                }
+                    // 核心改进：识别跨调用变量
+                    if (instr instanceof CallInstr) {
+                        spansCall.or(live);
+                    }
 
-                for (IrValue use : instr.getUseValueList()) {
-                    addUseToLive(use, live);
+                    for (IrValue use : instr.getUseValueList()) {
+                        addUseToLive(use, live);
+                    }
                 }
-            }
 
-            if (block == function.getEntryBlock()) {
-                List<IrValue> liveList = new ArrayList<>(live);
-                for (int i = 0; i < liveList.size(); i++) {
-                    for (int j = i + 1; j < liveList.size(); j++) {
-                        addEdge(liveList.get(i), liveList.get(j));
+                if (block == function.getEntryBlock()) {
+                    for (int u = live.nextSetBit(0); u >= 0; u = live.nextSetBit(u + 1)) {
+                        for (int v = live.nextSetBit(u + 1); v >= 0; v = live.nextSetBit(v + 1)) {
+                            addEdge(u, v);
+                        }
                     }
                 }
             }
         }
-    }
 
-    private void addUseToLive(IrValue val, HashSet<IrValue> live) {
-        if (val == null)
-            return;
-        if (val instanceof GepInstr gep && gep.canBeFoldedIntoAllUsers()) {
-            for (IrValue op : gep.getUseValueList()) {
-                addUseToLive(op, live);
+        private void addUseToLive(IrValue val, BitSet live) {
+            if (val == null)
+                return;
+            if (val instanceof GepInstr gep && gep.canBeFoldedIntoAllUsers()) {
+                for (IrValue op : gep.getUseValueList()) {
+                    addUseToLive(op, live);
+                }
+            } else {
+                int id = nodeId(val);
+                if (id >= 0) {
+                    live.set(id);
+                }
             }
-        } else if (nodes.contains(val)) {
-            live.add(val);
         }
-    }
 
-    private void simplify() {
-        int K = Register.getUsableRegisters().size();
-        Set<IrValue> workList = new HashSet<>(nodes);
-        Map<IrValue, Integer> currentDegree = new HashMap<>(degree);
-
-        while (!workList.isEmpty()) {
-            IrValue nodeToRemove = null;
-            for (IrValue v : workList) {
-                if (currentDegree.get(v) < K) {
-                    nodeToRemove = v;
-                    break;
-                }
-            }
+        private void simplify() {
+            int K = Register.getUsableRegisters().size();
+            BitSet workList = (BitSet) nodes.clone();
+            int[] currentDegree = degree.clone();
 
-            if (nodeToRemove == null) {
-                double minCost = Double.MAX_VALUE;
-                for (IrValue v : workList) {
-                    // 跨调用变量的溢出代价更高
-                    double weight = spansCall.contains(v) ? 10.0 : 1.0;
-                    double cost = (weight + v.getBeUsedList().size()) / (currentDegree.get(v) + 1);
-                    if (cost < minCost) {
-                        minCost = cost;
+            for (int remaining = nodeCount; remaining > 0; remaining--) {
+                int nodeToRemove = -1;
+                for (int i = 0; i < nodeCount; i++) {
+                    int v = nodeOrder[i];
+                    if (workList.get(v) && currentDegree[v] < K) {
                         nodeToRemove = v;
+                        break;
+                    }
+                }
+
+                if (nodeToRemove < 0) {
+                    double minCost = Double.MAX_VALUE;
+                    for (int i = 0; i < nodeCount; i++) {
+                        int v = nodeOrder[i];
+                        if (!workList.get(v))
+                            continue;
+                        // 跨调用变量的溢出代价更高
+                        double weight = spansCall.get(v) ? 10.0 : 1.0;
+                        double cost = (weight + numbering.getValue(v).getBeUsedList().size()) / (currentDegree[v] + 1);
+                        if (cost < minCost) {
+                            minCost = cost;
+                            nodeToRemove = v;
+                        }
                     }
                 }
-            }
 
-            workList.remove(nodeToRemove);
-            selectStack.push(nodeToRemove);
+                workList.clear(nodeToRemove);
+                selectStack.push(nodeToRemove);
 
-            for (IrValue neighbor : adjList.get(nodeToRemove)) {
-                if (workList.contains(neighbor)) {
-                    currentDegree.put(neighbor, currentDegree.get(neighbor) - 1);
+                BitSet neighbors = adjList[nodeToRemove];
+                for (int neighbor = neighbors.nextSetBit(0); neighbor >= 0; neighbor = neighbors.nextSetBit(neighbor + 1)) {
+                    if (workList.get(neighbor)) {
+                        currentDegree[neighbor]--;
+                    }
                 }
             }
         }
-    }
 
-    private void assignColors(IrFunction function) {
-        List<Register> usableRegisters = Register.getUsableRegisters();
-
-        // 将可用寄存器分为 T 类和 S 类
-        List<Register> tRegs = new ArrayList<>();
-        List<Register> sRegs = new ArrayList<>();
-        for (Register reg : usableRegisters) {
-            if (MipsBuilder.isCalleeSaved(reg))
-                sRegs.add(reg);
-            else
-                tRegs.add(reg);
-        }
+        private void assignColors(IrFunction function) {
+            List<Register> usableRegisters = Register.getUsableRegisters();
+
+            // 将可用寄存器分为 T 类和 S 类
+            List<Register> tRegs = new ArrayList<>();
+            List<Register> sRegs = new ArrayList<>();
+            for (Register reg : usableRegisters) {
+                if (MipsBuilder.isCalleeSaved(reg))
+                    sRegs.add(reg);
+                else
+                    tRegs.add(reg);
+            }
 
-        Map<IrValue, Register> colors = function.getValueRegisterMap();
+            Map<IrValue, Register> colors = function.getValueRegisterMap();
 
-        while (!selectStack.isEmpty()) {
-            IrValue node = selectStack.pop();
-            Set<Register> usedColors = new HashSet<>();
-            for (IrValue neighbor : adjList.get(node)) {
-                if (colors.containsKey(neighbor)) {
-                    usedColors.add(colors.get(neighbor));
+            while (!selectStack.isEmpty()) {
+                int id = selectStack.pop();
+                IrValue node = numbering.getValue(id);
+                Set<Register> usedColors = EnumSet.noneOf(Register.class);
+                BitSet neighbors = adjList[id];
+                for (int neighbor = neighbors.nextSetBit(0); neighbor >= 0; neighbor = neighbors.nextSetBit(neighbor + 1)) {
+                    Register color = colors.get(numbering.getValue(neighbor));
+                    if (color != null) {
+                        usedColors.add(color);
+                    }
                 }
-            }
 
-            Register assignedReg = null;
-            if (spansCall.contains(node)) {
-                // 跨调用变量：优先选 S 寄存器，避开 T 寄存器
-                assignedReg = pickRegister(sRegs, usedColors);
-                if (assignedReg == null)
-                    assignedReg = pickRegister(tRegs, usedColors);
-            } else {
-                // 非跨调用变量：优先选 T 寄存器，节省 Prologue/Epilogue 开销
-                assignedReg = pickRegister(tRegs, usedColors);
-                if (assignedReg == null)
+                Register assignedReg = null;
+                if (spansCall.get(id)) {
+                    // 跨调用变量：优先选 S 寄存器，避开 T 寄存器
                     assignedReg = pickRegister(sRegs, usedColors);
-            }
+                    if (assignedReg == null)
+                        assignedReg = pickRegister(tRegs, usedColors);
+                } else {
+                    // 非跨调用变量：优先选 T 寄存器，节省 Prologue/Epilogue 开销
+                    assignedReg = pickRegister(tRegs, usedColors);
+                    if (assignedReg == null)
+                        assignedReg = pickRegister(sRegs, usedColors);
+                }
 
-            if (assignedReg != null) {
-                colors.put(node, assignedReg);
+                if (assignedReg != null) {
+                    colors.put(node, assignedReg);
+                }
             }
         }
-    }
 
-    private Register pickRegister(List<Register> preferred, Set<Register> used) {
-        for (Register reg : preferred) {
-            if (!used.contains(reg))
-                return reg;
+        private Register pickRegister(List<Register> preferred, Set<Register> used) {
+            for (Register reg : preferred) {
+                if (!used.contains(reg))
+                    return reg;
+            }
+            return null;
         }
-        return null;
     }
 }
@@ -17,37 +17,33 @@ import java.util.*;
  * 扩展 LVN 到全局范围，利用支配树在整个函数范围内消除公共子表达式。
  * 在 SSA 形式下，支配节点中定义的表达式在被支配节点中依然有效。
  */
-public class Gvn extends Optimizer {
-    private boolean changed;
-    private final Map<ExpressionKey, IrValue> globalExpressionMap = new HashMap<>();
+public class Gvn extends FunctionOptimizer {
+    @Override
+    protected boolean hasChangeLoop() {
+        return true;
+    }
 
     @Override
-    public void optimize() {
-        changed = true;
+    public void optimizeFunction(IrFunction function) {
+        if (function.getBasicBlocks().isEmpty())
+            return;
+        boolean changed = true;
         while (changed) {
-            changed = false;
-            for (IrFunction function : irModule.getFunctions()) {
-                if (function.getBasicBlocks().isEmpty())
-                    continue;
-                globalExpressionMap.clear();
-                optimizeFunction(function);
-            }
+            countIteration();
+            // 表达式表按函数独立创建，不同函数可以并行处理
+            Map<ExpressionKey, IrValue> globalExpressionMap = new HashMap<>();
+            IrBasicBlock entry = function.getEntryBlock();
+            // 按照支配树进行深度优先搜索
+            changed = domTreeDFS(entry, globalExpressionMap);
         }
     }
 
-    private void optimizeFunction(IrFunction function) {
-        IrBasicBlock entry = function.getEntryBlock();
-        // 按照支配树进行深度优先搜索
-        domTreeDFS(entry);
-    }
-
-    private void domTreeDFS(IrBasicBlock block) {
+    private boolean domTreeDFS(IrBasicBlock block, Map<ExpressionKey, IrValue> globalExpressionMap) {
+        boolean changed = false;
         // 记录进入当前块前，Map 中已有的状态，以便回溯
         List<ExpressionKey> addedKeys = new ArrayList<>();
 
-        Iterator<Instr> iterator = block.getInstructions().iterator();
-        while (iterator.hasNext()) {
-            Instr instr = iterator.next();
+        for (Instr instr : block.getInstructions()) {
 
             if (isGvnCandidate(instr)) {
                 ExpressionKey key = new ExpressionKey(instr);
@@ -55,7 +51,7 @@ public class Gvn extends Optimizer {
                     IrValue existingValue = globalExpressionMap.get(key);
                     instr.modifyAllUsersToNewValue(existingValue);
                     instr.removeAllValueUse();
-                    iterator.remove();
+                    instr.removeFromBlock();
                     changed = true;
                 } else {
                     globalExpressionMap.put(key, instr);
@@ -66,13 +62,14 @@ public class Gvn extends Optimizer {
 
         // 递归访问支配树中的子节点
         for (IrBasicBlock child : block.getDirectDominateBlocks()) {
-            domTreeDFS(child);
+            changed |= domTreeDFS(child, globalExpressionMap);
         }
 
         // 回溯：移除当前块添加的表达式，恢复到父节点的状态
         for (ExpressionKey key : addedKeys) {
             globalExpressionMap.remove(key);
         }
+        return changed;
     }
 
     private boolean isGvnCandidate(Instr instr) {
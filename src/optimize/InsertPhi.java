@@ -12,7 +12,7 @@ import midend.llvm.value.IrValue;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Stack;
 
 /**
@@ -31,8 +31,8 @@ public class InsertPhi {
     public InsertPhi(AllocateInstr allocateInstr, IrBasicBlock entryBlock) {
         this.allocateInstr = allocateInstr;
         this.entryBlock = entryBlock;
-        this.defineInstrs = new HashSet<>();
-        this.useInstrs = new HashSet<>();
+        this.defineInstrs = new LinkedHashSet<>();
+        this.useInstrs = new LinkedHashSet<>();
         this.defineBlocks = new ArrayList<>();
         this.useBlocks = new ArrayList<>();
         this.valueStack = new Stack<>();
@@ -123,7 +123,7 @@ public class InsertPhi {
      */
     private void insertPhiInstr(IrBasicBlock irBasicBlock) {
         PhiInstr phiInstr = new PhiInstr(this.allocateInstr.getTargetType(), irBasicBlock);
-        irBasicBlock.addInstrAtIndex(phiInstr, 0);
+        irBasicBlock.addInstrFirst(phiInstr);
         // phi 既是 define，又是 use
         this.useInstrs.add(phiInstr);
         this.defineInstrs.add(phiInstr);
@@ -155,20 +155,18 @@ public class InsertPhi {
      * 移除基本块中与当前 allocate 相关的 load/store 指令
      */
     private void removeBlockLoadStore(IrBasicBlock visitBlock) {
-        Iterator<Instr> iterator = visitBlock.getInstructions().iterator();
-        while (iterator.hasNext()) {
-            Instr instr = iterator.next();
+        for (Instr instr : visitBlock.getInstructions()) {
             // store：将值压入栈中，并移除指令
             if (instr instanceof StoreInstr storeInstr && this.defineInstrs.contains(instr)) {
                 this.valueStack.push(storeInstr.getBury());
                 storeInstr.removeAllValueUse();
-                iterator.remove();
+                instr.removeFromBlock();
             }
             // load（非 phi）：将使用该 load 的地方替换为栈顶值
             else if (!(instr instanceof PhiInstr) && this.useInstrs.contains(instr)) {
                 instr.modifyAllUsersToNewValue(this.peekValueStack());
                 instr.removeAllValueUse();
-                iterator.remove();
+                instr.removeFromBlock();
             }
             // phi：将 phi 的结果压入栈中
             else if (instr instanceof PhiInstr && this.defineInstrs.contains(instr)) {
@@ -176,7 +174,7 @@ public class InsertPhi {
             }
             // 当前分析的 allocate：使用 mem2reg 后不需要 allocate
             else if (instr == this.allocateInstr) {
-                iterator.remove();
+                instr.removeFromBlock();
             }
         }
     }
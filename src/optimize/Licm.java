@@ -16,7 +16,7 @@ import java.util.*;
 /**
  * 循环不变代码外提 (LICM) 优化
  */
-public class Licm extends Optimizer {
+public class Licm extends FunctionOptimizer {
     private static class NaturalLoop {
         IrBasicBlock header;
         Set<IrBasicBlock> blocks;
@@ -24,27 +24,25 @@ public class Licm extends Optimizer {
 
         NaturalLoop(IrBasicBlock header) {
             this.header = header;
-            this.blocks = new HashSet<>();
+            this.blocks = new LinkedHashSet<>();
             this.blocks.add(header);
         }
     }
 
     @Override
-    public void optimize() {
-        for (IrFunction function : irModule.getFunctions()) {
-            if (function.getBasicBlocks().isEmpty())
-                continue;
+    public void optimizeFunction(IrFunction function) {
+        if (function.getBasicBlocks().isEmpty())
+            return;
 
-            // 1. 发现自然循环
-            List<NaturalLoop> loops = findNaturalLoops(function);
+        // 1. 发现自然循环
+        List<NaturalLoop> loops = findNaturalLoops(function);
 
-            // 2. 按照循环深度排序（从内向外处理）
-            // 简单的启发式：块数越少的循环通常越靠内
-            loops.sort(Comparator.comparingInt(l -> l.blocks.size()));
+        // 2. 按照循环深度排序（从内向外处理）
+        // 简单的启发式：块数越少的循环通常越靠内
+        loops.sort(Comparator.comparingInt(l -> l.blocks.size()));
 
-            for (NaturalLoop loop : loops) {
-                processLoop(loop);
-            }
+        for (NaturalLoop loop : loops) {
+            processLoop(loop);
         }
     }
 
@@ -53,7 +51,7 @@ public class Licm extends Optimizer {
         for (IrBasicBlock n : function.getBasicBlocks()) {
             for (IrBasicBlock d : n.getNextBlocks()) {
                 // 如果 d 支配 n，则 (n, d) 是一条回边
-                if (n.getDominatorBlocks().contains(d)) {
+                if (d.dominates(n)) {
                     NaturalLoop loop = buildNaturalLoop(d, n);
                     // 合并具有相同 header 的循环
                     boolean merged = false;
@@ -150,8 +148,8 @@ public class Licm extends Optimizer {
             preHeader.addBeforeBlock(pred);
         }
 
-        // Pre-header 跳转到 Header
-        preHeader.addInstruction(new BrInstr(header, preHeader));
+        // Pre-header 跳转到 Header，BrInstr 构造时即加入 preHeader
+        new BrInstr(header, preHeader);
         preHeader.addNextBlock(header);
         header.addBeforeBlock(preHeader);
 
@@ -160,7 +158,7 @@ public class Licm extends Optimizer {
 
     private List<Instr> findInvariants(NaturalLoop loop) {
         List<Instr> invariants = new ArrayList<>();
-        Set<IrValue> loopDefinedValues = new HashSet<>();
+        Set<IrValue> loopDefinedValues = new LinkedHashSet<>();
         for (IrBasicBlock block : loop.blocks) {
             for (Instr instr : block.getInstructions()) {
                 if (!instr.getIrType().isVoidType()) {
@@ -276,8 +274,7 @@ public class Licm extends Optimizer {
     }
 
     private void moveInstrToPreHeader(Instr instr, IrBasicBlock preHeader) {
-        IrBasicBlock oldBlock = instr.getBlock();
-        oldBlock.getInstructions().remove(instr);
+        // 插入时从原所在块摘下
         preHeader.addInstrBeforeJump(instr);
     }
 }
@@ -2,105 +2,291 @@ package optimize;
 
 import midend.llvm.instr.Instr;
 import midend.llvm.instr.MoveInstr;
+import midend.llvm.instr.ctrl.CallInstr;
+import midend.llvm.instr.io.IOInstr;
 import midend.llvm.instr.memory.GepInstr;
 import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
+import midend.llvm.value.IrLiveness;
+import midend.llvm.value.IrNumbering;
 import midend.llvm.value.IrValue;
 import midend.llvm.value.IrGlobalValue;
 import midend.llvm.constant.IrConstant;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
-public class LivenessAnalysis extends Optimizer {
+/**
+ * 活跃变量分析
+ * 值按函数的稠密编号记为位集，每个基本块先求出 def 和 use，再以后序为初始顺序用工作表迭代：
+ * 基本块的入口集合变化时只把它的前驱重新放回工作表。收敛后逆向扫描每个含调用或输入输出指令的基本块，
+ * 把这些指令处的活跃集合登记成表，结果保存在 IrFunction.getLiveness 中
+ */
+public class LivenessAnalysis extends FunctionOptimizer {
     @Override
-    public void optimize() {
-        for (IrFunction function : irModule.getFunctions()) {
-            analyzeFunction(function);
+    public void optimizeFunction(IrFunction function) {
+        IrNumbering numbering = function.renumber();
+        int valueCount = numbering.getValueCount();
+        int blockCount = numbering.getBlockCount();
+
+        BitSet allocatable = new BitSet(valueCount);
+        for (int id = 0; id < valueCount; id++) {
+            if (isAllocatable(numbering.getValue(id))) {
+                allocatable.set(id);
+            }
         }
-    }
 
-    private void analyzeFunction(IrFunction function) {
-        List<IrBasicBlock> blocks = function.getBasicBlocks();
+        // 1. 初始化每个基本块的 def、use 和后继、前驱
+        BitSet[] defSets = new BitSet[blockCount];
+        BitSet[] useSets = new BitSet[blockCount];
+        int[][] successors = new int[blockCount][];
+        int[] predecessorCounts = new int[blockCount];
+        for (int b = 0; b < blockCount; b++) {
+            IrBasicBlock block = numbering.getBlock(b);
+            defSets[b] = new BitSet(valueCount);
+            useSets[b] = new BitSet(valueCount);
+            computeDefAndUse(block, numbering, allocatable, defSets[b], useSets[b]);
+
+            List<IrBasicBlock> nextBlocks = block.getNextBlocks();
+            successors[b] = new int[nextBlocks.size()];
+            int count = 0;
+            for (IrBasicBlock nextBlock : nextBlocks) {
+                // 已被删除的基本块不再参与分析
+                int next = numbering.blockIdOf(nextBlock);
+                if (next >= 0) {
+                    successors[b][count++] = next;
+                    predecessorCounts[next]++;
+                }
+            }
+            if (count < successors[b].length) {
+                successors[b] = Arrays.copyOf(successors[b], count);
+            }
+        }
+        int[][] predecessors = new int[blockCount][];
+        for (int b = 0; b < blockCount; b++) {
+            predecessors[b] = new int[predecessorCounts[b]];
+        }
+        Arrays.fill(predecessorCounts, 0);
+        for (int b = 0; b < blockCount; b++) {
+            for (int next : successors[b]) {
+                predecessors[next][predecessorCounts[next]++] = b;
+            }
+        }
 
-        // 1. 初始化每个基本块的 defSet 和 useSet
-        for (IrBasicBlock block : blocks) {
-            computeDefAndUse(block);
+        // 2. 工作表迭代：后继先于前驱处理，无环部分一遍即可收敛
+        BitSet[] liveIn = new BitSet[blockCount];
+        BitSet[] liveOut = new BitSet[blockCount];
+        for (int b = 0; b < blockCount; b++) {
+            liveIn[b] = new BitSet(valueCount);
+            liveOut[b] = new BitSet(valueCount);
         }
+        int[] queue = postOrder(successors);
+        boolean[] queued = new boolean[blockCount];
+        Arrays.fill(queued, true);
+        int head = 0;
+        int pending = blockCount;
+        while (pending > 0) {
+            int b = queue[head];
+            head = (head + 1) % blockCount;
+            pending--;
+            queued[b] = false;
 
-        // 2. 迭代计算 liveIn 和 liveOut
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            // 逆序遍历基本块通常收敛更快
-            for (int i = blocks.size() - 1; i >= 0; i--) {
-                IrBasicBlock block = blocks.get(i);
+            // LiveOut[B] = Union(LiveIn[S]) for all successors S of B，各集合只增不减
+            for (int next : successors[b]) {
+                liveOut[b].or(liveIn[next]);
+            }
+            // LiveIn[B] = Use[B] Union (LiveOut[B] - Def[B])
+            BitSet newLiveIn = (BitSet) liveOut[b].clone();
+            newLiveIn.andNot(defSets[b]);
+            newLiveIn.or(useSets[b]);
 
-                // LiveOut[B] = Union(LiveIn[S]) for all successors S of B
-                HashSet<IrValue> newLiveOut = new HashSet<>();
-                for (IrBasicBlock next : block.getNextBlocks()) {
-                    newLiveOut.addAll(next.getLiveIn());
-                }
-                block.getLiveOut().clear();
-                block.getLiveOut().addAll(newLiveOut);
-
-                // LiveIn[B] = Use[B] Union (LiveOut[B] - Def[B])
-                HashSet<IrValue> newLiveIn = new HashSet<>(block.getLiveOut());
-                newLiveIn.removeAll(block.getDefSet());
-                newLiveIn.addAll(block.getUseSet());
-
-                if (!newLiveIn.equals(block.getLiveIn())) {
-                    block.getLiveIn().clear();
-                    block.getLiveIn().addAll(newLiveIn);
-                    changed = true;
+            if (!newLiveIn.equals(liveIn[b])) {
+                liveIn[b] = newLiveIn;
+                for (int pred : predecessors[b]) {
+                    if (!queued[pred]) {
+                        queued[pred] = true;
+                        queue[(head + pending) % blockCount] = pred;
+                        pending++;
+                    }
                 }
             }
         }
+
+        function.setLiveness(buildLivePoints(numbering, allocatable, liveIn, liveOut));
     }
 
-    private void computeDefAndUse(IrBasicBlock block) {
-        HashSet<IrValue> def = block.getDefSet();
-        HashSet<IrValue> use = block.getUseSet();
-        def.clear();
-        use.clear();
+    /**
+     * 从入口出发的后序，入口不可达的基本块按逆序排在最后
+     */
+    private static int[] postOrder(int[][] successors) {
+        int blockCount = successors.length;
+        int[] order = new int[blockCount];
+        int count = 0;
+        boolean[] visited = new boolean[blockCount];
+        int[] stack = new int[blockCount];
+        int[] nextIndex = new int[blockCount];
+        int top = 0;
+        if (blockCount > 0) {
+            visited[0] = true;
+            stack[top++] = 0;
+        }
+        while (top > 0) {
+            int b = stack[top - 1];
+            if (nextIndex[b] < successors[b].length) {
+                int next = successors[b][nextIndex[b]++];
+                if (!visited[next]) {
+                    visited[next] = true;
+                    stack[top++] = next;
+                }
+            } else {
+                order[count++] = b;
+                top--;
+            }
+        }
+        for (int b = blockCount - 1; b >= 0; b--) {
+            if (!visited[b]) {
+                order[count++] = b;
+            }
+        }
+        return order;
+    }
 
+    private void computeDefAndUse(IrBasicBlock block, IrNumbering numbering, BitSet allocatable,
+                                  BitSet def, BitSet use) {
         for (Instr instr : block.getInstructions()) {
             if (instr instanceof MoveInstr moveInstr) {
                 // MoveInstr 特殊处理：src 是 use，dst 是 def
-                IrValue src = moveInstr.getSrcValue();
-                IrValue dst = moveInstr.getDstValue();
-
-                addUse(src, use, def);
-                if (dst != null && isAllocatable(dst)) {
-                    def.add(dst);
+                addUse(moveInstr.getSrcValue(), numbering, allocatable, use, def);
+                int dst = idOf(moveInstr.getDstValue(), numbering, allocatable);
+                if (dst >= 0) {
+                    def.set(dst);
                 }
             } else {
                 // 普通指令：操作数是 use，指令本身是 def
                 for (IrValue operand : instr.getUseValueList()) {
-                    addUse(operand, use, def);
+                    addUse(operand, numbering, allocatable, use, def);
                 }
-                if (isAllocatable(instr)) {
-                    def.add(instr);
+                int id = idOf(instr, numbering, allocatable);
+                if (id >= 0) {
+                    def.set(id);
                 }
             }
         }
     }
 
-    private void addUse(IrValue val, HashSet<IrValue> use, HashSet<IrValue> def) {
+    private void addUse(IrValue val, IrNumbering numbering, BitSet allocatable, BitSet use, BitSet def) {
         if (val == null)
             return;
         if (val instanceof GepInstr gep && gep.canBeFoldedIntoAllUsers()) {
             // 如果是折叠的 Gep，则其操作数才是真正的使用点
             for (IrValue op : gep.getUseValueList()) {
-                addUse(op, use, def);
+                addUse(op, numbering, allocatable, use, def);
             }
-        } else if (isAllocatable(val)) {
-            if (!def.contains(val)) {
-                use.add(val);
+        } else {
+            int id = idOf(val, numbering, allocatable);
+            if (id >= 0 && !def.get(id)) {
+                use.set(id);
             }
         }
     }
 
+    /**
+     * 与 addUse 一致：折叠的 Gep 不占寄存器，跨越调用时活跃的是它的操作数
+     */
+    private void addLive(IrValue val, IrNumbering numbering, BitSet allocatable, BitSet live) {
+        if (val instanceof GepInstr gep && gep.canBeFoldedIntoAllUsers()) {
+            for (IrValue op : gep.getUseValueList()) {
+                addLive(op, numbering, allocatable, live);
+            }
+        } else {
+            int id = idOf(val, numbering, allocatable);
+            if (id >= 0) {
+                live.set(id);
+            }
+        }
+    }
+
+    /**
+     * 逆向扫描含调用或输入输出指令的基本块，登记这些指令执行之后的活跃集合
+     */
+    private IrLiveness buildLivePoints(IrNumbering numbering, BitSet allocatable, BitSet[] liveIn, BitSet[] liveOut) {
+        int[] pointRows = new int[numbering.getValueCount()];
+        Arrays.fill(pointRows, -1);
+        int rowCount = 0;
+        for (int b = 0; b < numbering.getBlockCount(); b++) {
+            for (Instr instr : numbering.getBlock(b).getInstructions()) {
+                if (isLivePoint(instr)) {
+                    pointRows[numbering.idOf(instr)] = rowCount++;
+                }
+            }
+        }
+
+        int[] pointStarts = new int[rowCount + 1];
+        int[][] rows = new int[rowCount][];
+        for (int b = 0; b < numbering.getBlockCount(); b++) {
+            IrBasicBlock block = numbering.getBlock(b);
+            if (!hasLivePoint(block)) {
+                continue;
+            }
+            BitSet live = (BitSet) liveOut[b].clone();
+            for (Instr instr = block.getLastInstr(); instr != null; instr = instr.getPrev()) {
+                if (isLivePoint(instr)) {
+                    rows[pointRows[numbering.idOf(instr)]] = live.stream().toArray();
+                }
+                if (instr instanceof MoveInstr moveInstr) {
+                    // Move 的目标只是被定义，不因出现在操作数中而活跃
+                    int dst = idOf(moveInstr.getDstValue(), numbering, allocatable);
+                    if (dst >= 0) {
+                        live.clear(dst);
+                    }
+                    addLive(moveInstr.getSrcValue(), numbering, allocatable, live);
+                } else {
+                    int id = idOf(instr, numbering, allocatable);
+                    if (id >= 0) {
+                        live.clear(id);
+                    }
+                    for (IrValue operand : instr.getUseValueList()) {
+                        addLive(operand, numbering, allocatable, live);
+                    }
+                }
+            }
+        }
+
+        for (int row = 0; row < rowCount; row++) {
+            pointStarts[row + 1] = pointStarts[row] + rows[row].length;
+        }
+        int[] pointValues = new int[pointStarts[rowCount]];
+        for (int row = 0; row < rowCount; row++) {
+            System.arraycopy(rows[row], 0, pointValues, pointStarts[row], rows[row].length);
+        }
+        return new IrLiveness(numbering, liveIn, liveOut, pointRows, pointStarts, pointValues);
+    }
+
+    private static boolean isLivePoint(Instr instr) {
+        return instr instanceof CallInstr || instr instanceof IOInstr;
+    }
+
+    private static boolean hasLivePoint(IrBasicBlock block) {
+        for (Instr instr : block.getInstructions()) {
+            if (isLivePoint(instr)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 可分配寄存器的值的编号，其余值返回 -1
+     */
+    private static int idOf(IrValue value, IrNumbering numbering, BitSet allocatable) {
+        if (value == null) {
+            return -1;
+        }
+        int id = numbering.idOf(value);
+        return id >= 0 && allocatable.get(id) ? id : -1;
+    }
+
     public boolean isAllocatable(IrValue value) {
         if (value == null) {
             return false;
@@ -121,4 +307,4 @@ public class LivenessAnalysis extends Optimizer {
         }
         return true;
     }
-}
\ No newline at end of file
+}
@@ -11,7 +11,6 @@ import midend.llvm.value.IrValue;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 
@@ -22,10 +21,16 @@ import java.util.Objects;
 public class Lvn extends Optimizer {
     private boolean changed;
 
+    @Override
+    protected boolean hasChangeLoop() {
+        return true;
+    }
+
     @Override
     public void optimize() {
         changed = true;
         while (changed) {
+            countIteration();
             changed = false;
             for (IrFunction function : irModule.getFunctions()) {
                 for (IrBasicBlock block : function.getBasicBlocks()) {
@@ -39,9 +44,7 @@ public class Lvn extends Optimizer {
         // 表达式 -> 产生该表达式结果的指令(Value)
         HashMap<ExpressionKey, IrValue> expressionMap = new HashMap<>();
 
-        Iterator<Instr> iterator = block.getInstructions().iterator();
-        while (iterator.hasNext()) {
-            Instr instr = iterator.next();
+        for (Instr instr : block.getInstructions()) {
 
             // 只有无副作用的指令才能进行 LVN
             if (isLvnCandidate(instr)) {
@@ -58,7 +61,7 @@ public class Lvn extends Optimizer {
                     instr.removeAllValueUse();
 
                     // 3. 移除重复指令
-                    iterator.remove();
+                    instr.removeFromBlock();
                     changed = true;
                 } else {
                     // 记录新的表达式
@@ -8,7 +8,7 @@ import midend.llvm.type.IrType;
 import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * MemToReg 优化器
@@ -25,7 +25,7 @@ public class MemToReg extends Optimizer {
             // 遍历函数中的所有基本块
             for (IrBasicBlock irBasicBlock : irFunction.getBasicBlocks()) {
                 // 复制指令列表以避免并发修改
-                ArrayList<Instr> instrList = new ArrayList<>(irBasicBlock.getInstructions());
+                List<Instr> instrList = irBasicBlock.getInstructions().toList();
 
                 for (Instr instr : instrList) {
                     // 只对非数组类型的 alloca 进行 mem2reg 优化
@@ -1,46 +1,163 @@
 package optimize;
 
+import driver.CompilationContext;
+import driver.telemetry.PassRecord;
+import driver.telemetry.Telemetry;
 import midend.llvm.IrModule;
+import midend.llvm.value.IrFunction;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class OptimizeManager {
     private final IrModule irModule;
     private final List<Optimizer> optimizers;
+    private final boolean parallel;
 
     public OptimizeManager(IrModule irModule) {
+        this(irModule, false);
+    }
+
+    /**
+     * @param parallel 为 true 时，连续的函数级优化器按函数拆成 ForkJoin 任务并行执行
+     */
+    public OptimizeManager(IrModule irModule, boolean parallel) {
         this.irModule = irModule;
         this.optimizers = new ArrayList<>();
-        Optimizer.setIrModule(irModule);
+        this.parallel = parallel;
 
         // 添加优化器
-        this.optimizers.add(new RemoveUnReachCode());
-        this.optimizers.add(new CfgBuilder());
+        addOptimizer(new RemoveUnReachCode());
+        addOptimizer(new CfgBuilder());
         // MemToReg 需要在 CfgBuilder 构建完支配信息后执行
-        this.optimizers.add(new MemToReg());
+        addOptimizer(new MemToReg());
 
         // 迭代优化：GVN, 常量传播, 强度削弱, 复制传播, LICM, 死代码删除, 不可达代码删除
         for (int i = 0; i < 5; i++) {
-            this.optimizers.add(new Gvn());
-            this.optimizers.add(new ConstantPropagation());
-            // this.optimizers.add(new FunctionConstantFolding());
-            this.optimizers.add(new StrengthReduction());
-            this.optimizers.add(new CopyPropagation());
-            this.optimizers.add(new Licm());
-            this.optimizers.add(new DeadCodeElimination());
-            this.optimizers.add(new RemoveUnReachCode());
-            this.optimizers.add(new CfgBuilder()); // 维护最新的 CFG 和支配信息
+            addOptimizer(new Gvn());
+            addOptimizer(new ConstantPropagation());
+            // addOptimizer(new FunctionConstantFolding());
+            addOptimizer(new StrengthReduction());
+            addOptimizer(new CopyPropagation());
+            addOptimizer(new Licm());
+            addOptimizer(new DeadCodeElimination());
+            addOptimizer(new RemoveUnReachCode());
+            addOptimizer(new CfgBuilder()); // 维护最新的 CFG 和支配信息
         }
 
         // RemovePhi 需要在所有 SSA 优化完成后执行
-        this.optimizers.add(new RemovePhi());
+        addOptimizer(new RemovePhi());
         // 活跃变量分析，为寄存器分配做准备
-        this.optimizers.add(new GraphColoringRegAlloc());
+        addOptimizer(new GraphColoringRegAlloc());
+    }
+
+    private void addOptimizer(Optimizer optimizer) {
+        optimizer.setIrModule(irModule);
+        this.optimizers.add(optimizer);
     }
 
     public void optimize() {
+        Telemetry telemetry = Telemetry.getTelemetry();
+        // 开启遥测时每个优化器实例对应一条记录，并行模式下各函数的测量累加到同一条记录
+        Map<Optimizer, PassRecord> records = new HashMap<>();
+        if (telemetry.isEnabled()) {
+            for (int i = 0; i < optimizers.size(); i++) {
+                Optimizer optimizer = optimizers.get(i);
+                records.put(optimizer, telemetry.newRecord("pass", optimizer.getClass().getSimpleName(), i));
+            }
+        }
+
+        if (!parallel) {
+            for (Optimizer optimizer : optimizers) {
+                runOptimizer(optimizer, telemetry, records);
+            }
+            return;
+        }
+
+        // 连续的函数级优化器合并为一段，每个函数依次执行整段；模块级优化器作为分界点串行执行
+        List<FunctionOptimizer> stage = new ArrayList<>();
         for (Optimizer optimizer : optimizers) {
+            if (optimizer instanceof FunctionOptimizer functionOptimizer) {
+                stage.add(functionOptimizer);
+            } else {
+                runStage(stage, telemetry, records);
+                stage.clear();
+                runOptimizer(optimizer, telemetry, records);
+            }
+        }
+        runStage(stage, telemetry, records);
+    }
+
+    private void runOptimizer(Optimizer optimizer, Telemetry telemetry, Map<Optimizer, PassRecord> records) {
+        if (!telemetry.isEnabled()) {
             optimizer.optimize();
+        } else {
+            telemetry.pass(records.get(optimizer), irModule, optimizer::getIterations, optimizer::optimize);
+        }
+        // 调试构建（-ea）中每个优化器之后检查 use-def 链表
+        assert irModule.checkUses();
+    }
+
+    private void runStage(List<FunctionOptimizer> stage, Telemetry telemetry, Map<Optimizer, PassRecord> records) {
+        if (stage.isEmpty()) {
+            return;
+        }
+        CompilationContext context = CompilationContext.current();
+        List<FunctionTask> tasks = new ArrayList<>();
+        for (IrFunction function : irModule.getFunctions()) {
+            tasks.add(new FunctionTask(context, new ArrayList<>(stage), function, telemetry, records));
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+        assert irModule.checkUses();
+        if (telemetry.isEnabled()) {
+            for (FunctionOptimizer optimizer : stage) {
+                records.get(optimizer).setIterations(optimizer.getIterations());
+            }
+        }
+    }
+
+    /**
+     * 对单个函数依次执行一段函数级优化器
+     */
+    @SuppressWarnings("serial")
+    private static class FunctionTask extends RecursiveAction {
+        private final CompilationContext context;
+        private final List<FunctionOptimizer> stage;
+        private final IrFunction function;
+        private final Telemetry telemetry;
+        private final Map<Optimizer, PassRecord> records;
+
+        FunctionTask(CompilationContext context, List<FunctionOptimizer> stage, IrFunction function,
+                     Telemetry telemetry, Map<Optimizer, PassRecord> records) {
+            this.context = context;
+            this.stage = stage;
+            this.function = function;
+            this.telemetry = telemetry;
+            this.records = records;
+        }
+
+        @Override
+        protected void compute() {
+            context.run(() -> {
+                for (FunctionOptimizer optimizer : stage) {
+                    if (telemetry.isEnabled()) {
+                        telemetry.function(records.get(optimizer), function,
+                                () -> optimizer.optimizeFunction(function));
+                    } else {
+                        optimizer.optimizeFunction(function);
+                    }
+                }
+            });
         }
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,34 @@ package optimize;
 
 import midend.llvm.IrModule;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public abstract class Optimizer {
-    protected static IrModule irModule;
+    protected IrModule irModule;
+    // 变化驱动循环的累计迭代次数，并行模式下各函数会同时累加
+    private final AtomicInteger iterations = new AtomicInteger();
 
-    public static void setIrModule(IrModule module) {
+    public void setIrModule(IrModule module) {
         irModule = module;
     }
 
     public abstract void optimize();
+
+    protected void countIteration() {
+        iterations.incrementAndGet();
+    }
+
+    /**
+     * 是否以变化驱动的循环反复执行，带有此类循环的优化器覆盖为 true 并在每轮调用 countIteration
+     */
+    protected boolean hasChangeLoop() {
+        return false;
+    }
+
+    /**
+     * 已执行的 changed 循环迭代次数，没有此类循环的优化器为 -1，与 PassRecord 的约定一致
+     */
+    public int getIterations() {
+        return hasChangeLoop() ? iterations.get() : -1;
+    }
 }
@@ -14,7 +14,6 @@ import midend.llvm.value.IrValue;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
 
 /**
  * RemovePhi 优化器
@@ -53,9 +52,7 @@ public class RemovePhi extends Optimizer {
                 }
 
                 // 向 phi 的 copy 中填充相应值，可能有多个 phi
-                Iterator<Instr> iterator = irBasicBlock.getInstructions().iterator();
-                while (iterator.hasNext()) {
-                    Instr instr = iterator.next();
+                for (Instr instr : irBasicBlock.getInstructions()) {
                     if (instr instanceof PhiInstr phiInstr) {
                         // 遍历所有操作数，将其添加到对应前驱块的 copy 指令中
                         for (int i = 0; i < phiInstr.getUseValueList().size(); i++) {
@@ -64,7 +61,7 @@ public class RemovePhi extends Optimizer {
                             // phiInstr 的 beforeBlockList 顺序也和 irBasicBlock.getBeforeBlocks() 一致
                             copyList.get(i).addCopy(useValue, phiInstr);
                         }
-                        iterator.remove();
+                        instr.removeFromBlock();
                     }
                 }
             }
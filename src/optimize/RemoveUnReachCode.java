@@ -8,61 +8,54 @@ import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
 
 import java.util.HashSet;
-import java.util.Iterator;
 
-public class RemoveUnReachCode extends Optimizer {
+public class RemoveUnReachCode extends FunctionOptimizer {
     @Override
-    public void optimize() {
+    public void optimizeFunction(IrFunction irFunction) {
         // 删除多余的jump (基本块结束后的指令)
-        this.removeUselessJump();
+        this.removeUselessJump(irFunction);
         // 删除不可达块
-        this.removeUselessBlock();
+        this.removeUselessBlock(irFunction);
     }
 
-    private void removeUselessJump() {
-        for (IrFunction irFunction : irModule.getFunctions()) {
-            for (IrBasicBlock irBasicBlock : irFunction.getBasicBlocks()) {
-                boolean hasJump = false;
-                Iterator<Instr> iterator = irBasicBlock.getInstructions().iterator();
-                while (iterator.hasNext()) {
-                    Instr instr = iterator.next();
-                    if (hasJump) {
-                        instr.removeAllValueUse();
-                        iterator.remove();
-                        continue;
-                    }
+    private void removeUselessJump(IrFunction irFunction) {
+        for (IrBasicBlock irBasicBlock : irFunction.getBasicBlocks()) {
+            boolean hasJump = false;
+            for (Instr instr : irBasicBlock.getInstructions()) {
+                if (hasJump) {
+                    instr.removeAllValueUse();
+                    instr.removeFromBlock();
+                    continue;
+                }
 
-                    if (instr instanceof BrInstr || instr instanceof BrCondInstr ||
-                            instr instanceof ReturnInstr) {
-                        hasJump = true;
-                    }
+                if (instr instanceof BrInstr || instr instanceof BrCondInstr ||
+                        instr instanceof ReturnInstr) {
+                    hasJump = true;
                 }
             }
         }
     }
 
-    private void removeUselessBlock() {
-        for (IrFunction irFunction : irModule.getFunctions()) {
-            if (irFunction.getBasicBlocks().isEmpty())
-                continue;
+    private void removeUselessBlock(IrFunction irFunction) {
+        if (irFunction.getBasicBlocks().isEmpty())
+            return;
 
-            IrBasicBlock entryBlock = irFunction.getBasicBlocks().get(0);
-            HashSet<IrBasicBlock> visited = new HashSet<>();
-            // 使用dfs记录可达的block
-            this.dfsBlock(entryBlock, visited);
+        IrBasicBlock entryBlock = irFunction.getBasicBlocks().get(0);
+        HashSet<IrBasicBlock> visited = new HashSet<>();
+        // 使用dfs记录可达的block
+        this.dfsBlock(entryBlock, visited);
 
-            // 删除不可达块中的指令引用
-            for (IrBasicBlock block : irFunction.getBasicBlocks()) {
-                if (!visited.contains(block)) {
-                    for (Instr instr : block.getInstructions()) {
-                        instr.removeAllValueUse();
-                    }
+        // 删除不可达块中的指令引用
+        for (IrBasicBlock block : irFunction.getBasicBlocks()) {
+            if (!visited.contains(block)) {
+                for (Instr instr : block.getInstructions()) {
+                    instr.removeAllValueUse();
                 }
             }
-
-            // 移除不可达块
-            irFunction.getBasicBlocks().removeIf(block -> !visited.contains(block));
         }
+
+        // 移除不可达块
+        irFunction.getBasicBlocks().removeIf(block -> !visited.contains(block));
     }
 
     private void dfsBlock(IrBasicBlock block, HashSet<IrBasicBlock> visited) {
@@ -7,32 +7,31 @@ import midend.llvm.value.IrBasicBlock;
 import midend.llvm.value.IrFunction;
 import midend.llvm.value.IrValue;
 
-import java.util.Iterator;
-
 /**
  * 强度削弱与代数化简优化器
  * 处理 x*0, x*1, x/1, x%1 等代数恒等式
  */
-public class StrengthReduction extends Optimizer {
-    private boolean changed;
+public class StrengthReduction extends FunctionOptimizer {
+    @Override
+    protected boolean hasChangeLoop() {
+        return true;
+    }
 
     @Override
-    public void optimize() {
-        changed = true;
+    public void optimizeFunction(IrFunction function) {
+        boolean changed = true;
         while (changed) {
+            countIteration();
             changed = false;
-            for (IrFunction function : irModule.getFunctions()) {
-                for (IrBasicBlock block : function.getBasicBlocks()) {
-                    optimizeBlock(block);
-                }
+            for (IrBasicBlock block : function.getBasicBlocks()) {
+                changed |= optimizeBlock(block);
             }
         }
     }
 
-    private void optimizeBlock(IrBasicBlock block) {
-        Iterator<Instr> iterator = block.getInstructions().iterator();
-        while (iterator.hasNext()) {
-            Instr instr = iterator.next();
+    private boolean optimizeBlock(IrBasicBlock block) {
+        boolean changed = false;
+        for (Instr instr : block.getInstructions()) {
             if (!(instr instanceof CalculateInstr calc))
                 continue;
 
@@ -51,10 +50,11 @@ public class StrengthReduction extends Optimizer {
             if (simplified != null) {
                 instr.modifyAllUsersToNewValue(simplified);
                 instr.removeAllValueUse();
-                iterator.remove();
+                instr.removeFromBlock();
                 changed = true;
             }
         }
+        return changed;
     }
 
     private IrValue simplifyMul(IrValue l, IrValue r) {
@@ -3,7 +3,6 @@ package utils;
 import frontend.ast.*;
 import frontend.ast.Number;
 import midend.semantic.Symbol;
-import midend.semantic.SymbolManager;
 import midend.semantic.VariableSymbol;
 
 import java.util.List;
@@ -11,6 +10,8 @@ import java.util.List;
 /**
  * 常量表达式求值器
  * 用于在编译期计算常量表达式的值
+ * 结果按 AddExp 节点缓存在节点上，常量的各元素值缓存在 VariableSymbol 上，
+ * 语义分析求过的维度、常量初值在中间代码生成时直接复用，引用常量不再重复遍历其初值
  */
 public class ConstExpEvaluator {
 
@@ -19,6 +20,16 @@ public class ConstExpEvaluator {
     }
 
     public static int evalAddExp(AddExp addExp) {
+        Integer cached = addExp.getConstValue();
+        if (cached != null) {
+            return cached;
+        }
+        int value = computeAddExp(addExp);
+        addExp.setConstValue(value);
+        return value;
+    }
+
+    private static int computeAddExp(AddExp addExp) {
         List<ASTNode> children = addExp.getChildren();
         if (children.size() == 1) {
             return evalMulExp((MulExp) children.get(0));
@@ -112,8 +123,11 @@ public class ConstExpEvaluator {
     }
 
     public static int evalLVal(LVal lVal) {
-        String name = lVal.getIdent().getName();
-        Symbol symbol = SymbolManager.getInstance().getCurrentTable().lookup(name);
+        // 调用方求值前已由语义分析绑定符号
+        Symbol symbol = lVal.getSymbol();
+        if (symbol == null) {
+            throw new RuntimeException("Unbound LVal in constant expression: " + lVal.getName());
+        }
 
         if (symbol instanceof VariableSymbol varSymbol) {
             if (varSymbol.isConst()) {
@@ -121,18 +135,16 @@ public class ConstExpEvaluator {
                 if (lVal.isArrayAccess()) {
                     // 数组访问
                     if (initVal instanceof ConstInitVal constInitVal) {
-                        List <ConstExp> constExps = constInitVal.getConstExpList();
                         Exp arrayLengthExp = lVal.getIndexExp();
-                        ConstExp arrayLengthConstExp = new ConstExp();
+                        AddExp indexAddExp = null;
                         if(arrayLengthExp instanceof ParserWrapper.ExpWrapper wrapper){
-                            AddExp wrapped = (AddExp) wrapper.getWrappedNode();
-                            arrayLengthConstExp.setAddExp(wrapped);
+                            indexAddExp = (AddExp) wrapper.getWrappedNode();
                         } else if(arrayLengthExp instanceof ConstExp arc){
-                            arrayLengthConstExp.setAddExp(arc.getAddExp());
+                            indexAddExp = arc.getAddExp();
                         }
-                        int index = eval(arrayLengthConstExp);
-                        if (index >= 0 && index < constExps.size()) {
-                            return eval(constExps.get(index));
+                        int index = evalAddExp(indexAddExp);
+                        if (index >= 0 && index < constInitVal.getConstExpList().size()) {
+                            return evalElement(varSymbol, constInitVal, index);
                         }
                         throw new RuntimeException("Array index out of bounds in constant expression: " + index);
                     }
@@ -140,12 +152,28 @@ public class ConstExpEvaluator {
                 } else {
                     // 标量访问
                     if (initVal instanceof ConstInitVal constInitVal) {
-                        List <ConstExp> constExps = constInitVal.getConstExpList();
-                        return eval(constExps.get(0));
+                        return evalElement(varSymbol, constInitVal, 0);
                     }
                 }
             }
         }
-        throw new RuntimeException("Cannot evaluate LVal in constant expression: " + name);
+        throw new RuntimeException("Cannot evaluate LVal in constant expression: " + lVal.getName());
+    }
+
+    /**
+     * 常量 varSymbol 第 index 个元素的值，求过的直接取缓存
+     */
+    private static int evalElement(VariableSymbol varSymbol, ConstInitVal constInitVal, int index) {
+        Integer[] values = varSymbol.getConstValues();
+        if (values == null) {
+            values = new Integer[constInitVal.getConstExpList().size()];
+            varSymbol.setConstValues(values);
+        }
+        Integer value = values[index];
+        if (value == null) {
+            value = eval(constInitVal.getConstExpList().get(index));
+            values[index] = value;
+        }
+        return value;
     }
 }
@@ -1,85 +1,106 @@
 package utils;
 
-import backend.BackEnd;
-import error.Error;
-import error.ErrorRecorder;
-import frontend.FrontEnd;
-import frontend.ast.CompUnit;
-import frontend.lexer.Lexer;
-import frontend.lexer.Token;
-import midend.llvm.IrBuilder;
-import midend.semantic.SymbolManager;
-import midend.semantic.SymbolTable;
-import midend.MidEnd;
-
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import driver.CompileResult;
+
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PushbackInputStream;
-import java.util.ArrayList;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class IOhelper {
-    private static PushbackInputStream input = null;
-    private static FileOutputStream lexerOutput = null;
-    private static FileOutputStream errorOutput = null;
-    private static FileOutputStream parserOutput = null;
-    private static FileOutputStream symbolOutputFile = null;
-    private static FileOutputStream llvmOutputFile = null;
-    private static FileOutputStream mipsOutputFile = null;
+    private static final String INPUT_FILE = "testfile.txt";
+    private static final String TELEMETRY_JSON_FILE = "telemetry.json";
+    private static final String TELEMETRY_CSV_FILE = "telemetry.csv";
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static Writer lexerOutput = null;
+    private static Writer errorOutput = null;
+    private static Writer parserOutput = null;
+    private static Writer symbolOutputFile = null;
+    private static Writer llvmOutputFile = null;
+    private static Writer mipsOutputFile = null;
 
 
     // 分离类加载和流初始化
     public static void initialIO() throws IOException {
-        input = new PushbackInputStream(new FileInputStream("testfile.txt"),16);
-        lexerOutput = new FileOutputStream("lexer.txt");
-        errorOutput = new FileOutputStream("error.txt");
-        parserOutput = new FileOutputStream("parser.txt");
-        symbolOutputFile = new FileOutputStream("symbol.txt");
-        llvmOutputFile = new FileOutputStream("llvm_ir.txt");
-        mipsOutputFile = new FileOutputStream("mips.txt");
+        lexerOutput = openOutput("lexer.txt");
+        errorOutput = openOutput("error.txt");
+        parserOutput = openOutput("parser.txt");
+        symbolOutputFile = openOutput("symbol.txt");
+        llvmOutputFile = openOutput("llvm_ir.txt");
+        mipsOutputFile = openOutput("mips.txt");
     }
 
-    // 获得输入流
-    public static PushbackInputStream getInput() {
-        return input;
+    /**
+     * 基于 FileChannel 的缓冲输出，各产物通过 emit 逐段写入，内存中只保留一个缓冲区
+     * 编码方式与 String.getBytes() 相同：平台默认字符集，无法编码的字符替换
+     */
+    private static Writer openOutput(String fileName) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return new BufferedWriter(Channels.newWriter(channel, encoder, BUFFER_SIZE), BUFFER_SIZE);
     }
 
-    // Lexer输出
-    public static void printLexer() throws IOException {
-        for(Token token : Lexer.getLexer().getTokens()){
-            lexerOutput.write(token.info().getBytes());
+    public static void closeIO() throws IOException {
+        for (Writer writer : new Writer[]{lexerOutput, errorOutput, parserOutput,
+                symbolOutputFile, llvmOutputFile, mipsOutputFile}) {
+            if (writer != null) {
+                writer.close();
+            }
         }
     }
 
+    // 读取源程序
+    public static byte[] readSource() throws IOException {
+        return Files.readAllBytes(Paths.get(INPUT_FILE));
+    }
+
+    // Lexer输出
+    public static void printLexer(CompileResult result) throws IOException {
+        result.emitLexerOutput(lexerOutput);
+        lexerOutput.flush();
+    }
+
     // Error输出
-    public static void printError() throws IOException {
-        ArrayList<Error> errors = ErrorRecorder.getErrorRecorder().getErrors();
-        for (int i = 0; i < errors.size(); i++) {
-            errorOutput.write(errors.get(i).info().getBytes());
-            if (i != errors.size() - 1) {
-                errorOutput.write(System.lineSeparator().getBytes());
-            }
-        }
+    public static void printError(CompileResult result) throws IOException {
+        result.emitErrorOutput(errorOutput);
+        errorOutput.flush();
     }
 
 
     //Parser输出
-    public static void printParser() throws IOException {
-        CompUnit ast = FrontEnd.getAST();
-        if (ast != null) {
-            parserOutput.write(ast.toString().getBytes());
-        }
+    public static void printParser(CompileResult result) throws IOException {
+        result.emitParserOutput(parserOutput);
+        parserOutput.flush();
+    }
+
+    public static void printSymbolTable(CompileResult result) throws IOException {
+        result.emitSymbolOutput(symbolOutputFile);
+        symbolOutputFile.flush();
     }
 
-    public static void printSymbolTable() throws IOException {
-        symbolOutputFile.write(SymbolManager.getInstance().outputAllSymbols().getBytes());
+    public static void printLLVMIR(CompileResult result) throws IOException {
+        result.emitLlvmIrOutput(llvmOutputFile);
+        llvmOutputFile.flush();
     }
 
-    public static void printLLVMIR() throws IOException {
-        llvmOutputFile.write(MidEnd.getIrModule().toString().getBytes());
+    public static void printMips(CompileResult result) throws IOException {
+        result.emitMipsOutput(mipsOutputFile);
+        mipsOutputFile.flush();
     }
 
-    public static void printMips() throws IOException {
-        mipsOutputFile.write(BackEnd.getMipsCode().getBytes());
+    // 遥测报告，只在开启时创建文件
+    public static void printTelemetry(CompileResult result) throws IOException {
+        Files.write(Paths.get(TELEMETRY_JSON_FILE), result.getTelemetry().toJson().getBytes());
+        Files.write(Paths.get(TELEMETRY_CSV_FILE), result.getTelemetry().toCsv().getBytes());
     }
-}
\ No newline at end of file
+}